@@ -0,0 +1,8 @@
+#!/bin/sh
+# Builds the library and the benchmarks, then runs every suite (or the ones matching the given
+# JMH arguments) with the GC profiler and writes the results to benchmarks/target/jmh-result.json.
+set -e
+cd "$(dirname "$0")/.."
+mvn -B -q install -DskipTests
+mvn -B -q -f benchmarks/pom.xml package
+java -jar benchmarks/target/benchmarks.jar -prof gc -rf json -rff benchmarks/target/jmh-result.json "$@"
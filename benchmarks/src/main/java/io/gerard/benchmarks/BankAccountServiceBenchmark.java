@@ -0,0 +1,124 @@
+package io.gerard.benchmarks;
+
+import io.gerard.connectors.HumanReadableAccountStatementFormatter;
+import io.gerard.connectors.InMemoryOperationRepository;
+import io.gerard.exceptions.AccountNotFoundException;
+import io.gerard.exceptions.NotEnoughFundsException;
+import io.gerard.exceptions.ZeroOrNegativeAmountException;
+import io.gerard.models.Operation;
+import io.gerard.models.OperationTypes;
+import io.gerard.services.BankAccountService;
+import io.gerard.services.BankAccountServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deposit and withdraw throughput against the in-memory repository, either all threads on one hot
+ * account or spread uniformly over many accounts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BankAccountServiceBenchmark {
+    private static final int UNIFORM_ACCOUNTS = 1024;
+    private static final BigDecimal INITIAL_BALANCE = BigDecimal.valueOf(1_000_000_000_000L);
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @Param({"HOT", "UNIFORM"})
+    public Distribution distribution;
+
+    private BankAccountService service;
+    private UUID[] accountIds;
+
+    public enum Distribution {
+        HOT, UNIFORM
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        final var repository = new InMemoryOperationRepository();
+        accountIds = new UUID[distribution == Distribution.HOT ? 1 : UNIFORM_ACCOUNTS];
+        for (int i = 0; i < accountIds.length; i++) {
+            accountIds[i] = UUID.randomUUID();
+            repository.add(new Operation(UUID.randomUUID(), accountIds[i], OperationTypes.DEPOSIT, INITIAL_BALANCE,
+                    INITIAL_BALANCE, Instant.now()));
+        }
+        service = new BankAccountServiceImpl(repository, new HumanReadableAccountStatementFormatter(), value -> {
+        });
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Operation deposit1Thread() throws ZeroOrNegativeAmountException, AccountNotFoundException {
+        return deposit();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Operation deposit8Threads() throws ZeroOrNegativeAmountException, AccountNotFoundException {
+        return deposit();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Operation deposit64Threads() throws ZeroOrNegativeAmountException, AccountNotFoundException {
+        return deposit();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Operation withdraw1Thread()
+            throws ZeroOrNegativeAmountException, AccountNotFoundException, NotEnoughFundsException {
+        return withdraw();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Operation withdraw8Threads()
+            throws ZeroOrNegativeAmountException, AccountNotFoundException, NotEnoughFundsException {
+        return withdraw();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Operation withdraw64Threads()
+            throws ZeroOrNegativeAmountException, AccountNotFoundException, NotEnoughFundsException {
+        return withdraw();
+    }
+
+    private Operation deposit() throws ZeroOrNegativeAmountException, AccountNotFoundException {
+        return service.deposit(nextAccountId(), AMOUNT);
+    }
+
+    private Operation withdraw()
+            throws ZeroOrNegativeAmountException, AccountNotFoundException, NotEnoughFundsException {
+        return service.withdraw(nextAccountId(), AMOUNT);
+    }
+
+    private UUID nextAccountId() {
+        if (accountIds.length == 1) {
+            return accountIds[0];
+        }
+        return accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)];
+    }
+}
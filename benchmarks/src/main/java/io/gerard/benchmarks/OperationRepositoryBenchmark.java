@@ -0,0 +1,121 @@
+package io.gerard.benchmarks;
+
+import io.gerard.connectors.CachingOperationRepository;
+import io.gerard.connectors.InMemoryOperationRepository;
+import io.gerard.connectors.MappedJournalOperationRepository;
+import io.gerard.connectors.OffHeapOperationRepository;
+import io.gerard.connectors.TieredOperationRepository;
+import io.gerard.models.Operation;
+import io.gerard.models.OperationTypes;
+import io.gerard.services.OperationRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads on one account whose history holds {@code operations} operations, for each shipped repository.
+ * The tiered repository is compacted every quarter of the history, so that reads go through merged
+ * segments and a hot tier holding the last quarter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class OperationRepositoryBenchmark {
+    private static final int PAGE_SIZE = 50;
+    private static final int COMPACTIONS = 4;
+
+    @Param({"1000", "100000", "10000000"})
+    public int operations;
+
+    @Param({"IN_MEMORY", "JOURNAL", "CACHING", "OFF_HEAP", "TIERED"})
+    public RepositoryType repositoryType;
+
+    private final UUID accountId = UUID.randomUUID();
+    private OperationRepository repository;
+    private Path directory;
+
+    public enum RepositoryType {
+        IN_MEMORY, JOURNAL, CACHING, OFF_HEAP, TIERED
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        repository = switch (repositoryType) {
+            case IN_MEMORY -> new InMemoryOperationRepository();
+            case JOURNAL -> {
+                directory = Files.createTempDirectory("journal-benchmark");
+                yield MappedJournalOperationRepository.open(directory,
+                        MappedJournalOperationRepository.DEFAULT_RECORDS_PER_SEGMENT, 1 << 16);
+            }
+            case CACHING -> new CachingOperationRepository(new InMemoryOperationRepository(), 1024);
+            case OFF_HEAP -> new OffHeapOperationRepository();
+            case TIERED -> {
+                directory = Files.createTempDirectory("tiered-benchmark");
+                yield new TieredOperationRepository(directory);
+            }
+        };
+        final var compactEvery = Math.max(1, operations / COMPACTIONS);
+        final var start = Instant.parse("2022-01-01T00:00:00Z");
+        for (int i = 0; i < operations; i++) {
+            final var amount = BigDecimal.valueOf(i % 100, 2);
+            repository.add(new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT, amount, amount,
+                    start.plusSeconds(i)));
+            if (repository instanceof TieredOperationRepository tiered && (i + 1) % compactEvery == 0) {
+                tiered.compact(start.plusSeconds(i));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (repository instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+        if (directory != null) {
+            try (var files = Files.walk(directory)) {
+                for (final var file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public Optional<Operation> getLastOperation() {
+        return repository.getLastOperation(accountId);
+    }
+
+    @Benchmark
+    public List<Operation> getAllOrderByDateDesc() {
+        return repository.getAllOrderByDateDesc(accountId);
+    }
+
+    @Benchmark
+    public List<Operation> getPageOrderByDateDesc() {
+        return repository.getPageOrderByDateDesc(accountId, null, PAGE_SIZE);
+    }
+}
@@ -0,0 +1,88 @@
+package io.gerard.benchmarks;
+
+import io.gerard.connectors.HumanReadableAccountStatementFormatter;
+import io.gerard.models.Account;
+import io.gerard.models.Operation;
+import io.gerard.models.OperationTypes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Statement rendering throughput; run with {@code -prof gc} for the allocation rate. The
+ * {@code formatterPerLine} baseline renders lines the way the formatter did before it cached its
+ * {@link DateTimeFormatter}, so the per-line cost can be compared on the same data.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class StatementFormatterBenchmark {
+    @Param({"10", "1000"})
+    public int operations;
+
+    private final HumanReadableAccountStatementFormatter formatter = new HumanReadableAccountStatementFormatter();
+    private final StringBuilder output = new StringBuilder();
+    private Account account;
+
+    @Setup
+    public void setUp() {
+        final var accountId = UUID.randomUUID();
+        final var start = Instant.parse("2022-01-01T00:00:00Z");
+        final var history = new ArrayList<Operation>(operations);
+        for (int i = operations - 1; i >= 0; i--) {
+            final var type = i % 3 == 0 ? OperationTypes.WITHDRAWAL : OperationTypes.DEPOSIT;
+            history.add(new Operation(UUID.randomUUID(), accountId, type, BigDecimal.valueOf(1000 + i, 2),
+                    BigDecimal.valueOf(100_000 + i, 2), start.plusSeconds(i * 3600L)));
+        }
+        account = new Account(accountId, history.get(0).newBalance(), history);
+    }
+
+    @Benchmark
+    public String format() {
+        return formatter.format(account);
+    }
+
+    @Benchmark
+    public int formatToReusedBuilder() throws IOException {
+        output.setLength(0);
+        formatter.format(account.accountId(), account.balance(), account.operations().iterator(), output);
+        return output.length();
+    }
+
+    @Benchmark
+    public String formatterPerLine() {
+        return account.operations().stream()
+                .map(operation -> {
+                    final var alignAmount = operation.operationType().equals(OperationTypes.DEPOSIT) ? "\t\t" : "\t";
+                    final var dateTimeFormatter = DateTimeFormatter.ofLocalizedDateTime(FormatStyle.SHORT)
+                            .withLocale(Locale.FRANCE)
+                            .withZone(ZoneId.systemDefault());
+                    return dateTimeFormatter.format(operation.dateTime()) + "\t\t" + operation.operationType()
+                            + alignAmount + operation.amount();
+                })
+                .collect(Collectors.joining("\n"));
+    }
+}
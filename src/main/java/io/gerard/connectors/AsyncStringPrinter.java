@@ -0,0 +1,272 @@
+package io.gerard.connectors;
+
+import io.gerard.services.MpscRingBuffer;
+import io.gerard.services.StringPrinter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+
+/**
+ * Printer handing values to a single writer thread through a bounded ring buffer. The writer encodes
+ * them into one direct buffer and writes it out when it is full or when its oldest byte has waited
+ * {@code flushInterval}, so many statements go out in one write. Printing blocks while the ring
+ * buffer is full.
+ * <p>
+ * {@link #close()} stops accepting values, writes out every value already printed and closes the
+ * output. A write failure, or anything else that stops the writer thread, is reported to the
+ * following prints and to {@code close}.
+ */
+public class AsyncStringPrinter implements StringPrinter, AutoCloseable {
+    public static final int DEFAULT_QUEUE_CAPACITY = 1 << 14;
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(10);
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final int DRAIN_LIMIT = 256;
+    private static final long FULL_QUEUE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final MpscRingBuffer<String> queue;
+    private final Output output;
+    private final long flushIntervalNanos;
+    private final ByteBuffer buffer;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final AtomicInteger submitting = new AtomicInteger();
+    private final Thread writer;
+    private long pendingSince;
+    private volatile boolean closed;
+    private volatile boolean sleeping;
+    private volatile Throwable failure;
+
+    AsyncStringPrinter(Output output, int bufferSize, int queueCapacity, Duration flushInterval) {
+        this.queue = new MpscRingBuffer<>(queueCapacity);
+        this.output = output;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.writer = new Thread(this::run, "async-string-printer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Prints to the standard output as it is when called; closing the printer flushes it but leaves it open.
+     */
+    public static AsyncStringPrinter toStandardOutput(int queueCapacity, Duration flushInterval) {
+        final var out = System.out;
+        final var channel = Channels.newChannel(out);
+        return new AsyncStringPrinter(new Output() {
+            @Override
+            public void write(ByteBuffer bytes) throws IOException {
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                out.flush();
+            }
+
+            @Override
+            public void close() {
+                out.flush();
+            }
+        }, BUFFER_SIZE, queueCapacity, flushInterval);
+    }
+
+    /**
+     * Prints to {@code <prefix>-<index>.log} files of the directory, starting a new file rather than
+     * letting one grow past {@code maxFileBytes}, unless a single value is that large. Files left by
+     * earlier printers are not appended to.
+     */
+    public static AsyncStringPrinter toRotatingFiles(Path directory, String prefix, long maxFileBytes,
+                                                     int queueCapacity, Duration flushInterval) throws IOException {
+        if (maxFileBytes <= 0) {
+            throw new IllegalArgumentException("maxFileBytes must be positive");
+        }
+        return new AsyncStringPrinter(new RotatingFiles(Files.createDirectories(directory), prefix, maxFileBytes),
+                (int) Math.min(BUFFER_SIZE, maxFileBytes), queueCapacity, flushInterval);
+    }
+
+    @Override
+    public void print(String value) {
+        submitting.incrementAndGet();
+        try {
+            if (closed) {
+                throw new RejectedExecutionException("Printer is closed");
+            }
+            while (!queue.offer(value)) {
+                checkFailure();
+                wakeUp();
+                LockSupport.parkNanos(this, FULL_QUEUE_PARK_NANOS);
+            }
+            checkFailure();
+            wakeUp();
+        } finally {
+            submitting.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void close() throws IOException, InterruptedException {
+        closed = true;
+        LockSupport.unpark(writer);
+        writer.join();
+        output.close();
+        switch (failure) {
+            case null -> {
+            }
+            case IOException e -> throw e;
+            default -> throw new IOException("Printer writer failed", failure);
+        }
+    }
+
+    private void run() {
+        try {
+            drainUntilClosed();
+        } catch (Throwable e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+    }
+
+    private void drainUntilClosed() {
+        while (true) {
+            final var drained = queue.drain(this::append, DRAIN_LIMIT);
+            if (buffer.position() > 0 && System.nanoTime() - pendingSince >= flushIntervalNanos) {
+                writeBuffer();
+            }
+            if (drained > 0) {
+                continue;
+            }
+            if (closed && submitting.get() == 0 && queue.isEmpty()) {
+                writeBuffer();
+                return;
+            }
+            sleeping = true;
+            if (queue.isEmpty() && !closed) {
+                LockSupport.parkNanos(this, buffer.position() > 0
+                        ? pendingSince + flushIntervalNanos - System.nanoTime()
+                        : flushIntervalNanos);
+            }
+            sleeping = false;
+        }
+    }
+
+    /**
+     * Writes the buffer out first when the value might not fit in what is left of it, so that buffers,
+     * and thus files, only split values larger than a buffer.
+     */
+    private void append(String value) {
+        final var maxBytes = (long) ((value.length() + LINE_SEPARATOR.length()) * encoder.maxBytesPerChar());
+        if (maxBytes > buffer.remaining() && buffer.position() > 0) {
+            writeBuffer();
+        }
+        encode(CharBuffer.wrap(value));
+        encode(CharBuffer.wrap(LINE_SEPARATOR));
+    }
+
+    private void encode(CharBuffer chars) {
+        if (buffer.position() == 0) {
+            pendingSince = System.nanoTime();
+        }
+        encoder.reset();
+        while (encoder.encode(chars, buffer, true).isOverflow()) {
+            writeBuffer();
+            pendingSince = System.nanoTime();
+        }
+        encoder.flush(buffer);
+    }
+
+    private void writeBuffer() {
+        buffer.flip();
+        try {
+            if (failure == null && buffer.hasRemaining()) {
+                output.write(buffer);
+            }
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    private void wakeUp() {
+        if (sleeping) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void checkFailure() {
+        switch (failure) {
+            case null -> {
+            }
+            case IOException e -> throw new UncheckedIOException(e);
+            default -> throw new IllegalStateException("Printer writer failed", failure);
+        }
+    }
+
+    interface Output extends Closeable {
+        void write(ByteBuffer bytes) throws IOException;
+    }
+
+    private static final class RotatingFiles implements Output {
+        private final Path directory;
+        private final String prefix;
+        private final long maxFileBytes;
+        private int index;
+        private FileChannel current;
+
+        RotatingFiles(Path directory, String prefix, long maxFileBytes) throws IOException {
+            this.directory = directory;
+            this.prefix = prefix;
+            this.maxFileBytes = maxFileBytes;
+            try (var files = Files.list(directory)) {
+                this.index = files.map(path -> path.getFileName().toString())
+                        .filter(name -> name.matches(Pattern.quote(prefix) + "-\\d{6}\\.log"))
+                        .mapToInt(name -> Integer.parseInt(name, prefix.length() + 1, prefix.length() + 7, 10))
+                        .max()
+                        .orElse(0);
+            }
+        }
+
+        @Override
+        public void write(ByteBuffer bytes) throws IOException {
+            if (current == null || current.size() > 0 && current.size() + bytes.remaining() > maxFileBytes) {
+                rotate();
+            }
+            while (bytes.hasRemaining()) {
+                current.write(bytes);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (current != null) {
+                current.close();
+            }
+        }
+
+        private void rotate() throws IOException {
+            close();
+            index++;
+            current = FileChannel.open(directory.resolve(String.format("%s-%06d.log", prefix, index)),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        }
+    }
+}
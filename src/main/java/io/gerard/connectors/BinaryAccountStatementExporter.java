@@ -0,0 +1,157 @@
+package io.gerard.connectors;
+
+import io.gerard.models.Cents;
+import io.gerard.models.Operation;
+import io.gerard.services.AccountStatementExporter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes statements as tagged binary records through a direct buffer: after a magic number and a
+ * version, each statement is a {@code STATEMENT} record holding the account id and balance, one
+ * {@code OPERATION} record per operation and an {@code END} record. Amounts and balances are
+ * zigzag varints of cents; timestamps are zigzag varints of the nanos elapsed since the previous
+ * operation of the statement, so a typical operation takes about 30 bytes.
+ * Read them back with {@link BinaryAccountStatementReader}.
+ * <p>
+ * An exporter can be shared between threads: each statement is encoded in a buffer of its own and
+ * copied to the shared one in one go. A statement outgrowing its buffer is streamed through the
+ * shared one under the exporter lock, holding other statements back until its end.
+ */
+public class BinaryAccountStatementExporter implements AccountStatementExporter, Closeable {
+    static final int MAGIC = 0x424B5358;
+    static final byte VERSION = 1;
+    static final byte STATEMENT = 1;
+    static final byte OPERATION = 2;
+    static final byte END = 3;
+    static final int MAX_RECORD_SIZE = 1 + 16 + 1 + 3 * 10;
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int STATEMENT_BUFFER_SIZE = 4 * 1024;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public BinaryAccountStatementExporter(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    public BinaryAccountStatementExporter(WritableByteChannel channel, int bufferSize) {
+        if (bufferSize < MAX_RECORD_SIZE) {
+            throw new IllegalArgumentException("bufferSize must hold at least " + MAX_RECORD_SIZE + " bytes");
+        }
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        buffer.putInt(MAGIC).put(VERSION);
+    }
+
+    @Override
+    public void export(UUID accountId, BigDecimal balance, Iterator<Operation> operations) throws IOException {
+        var target = ByteBuffer.allocate(STATEMENT_BUFFER_SIZE);
+        try {
+            target.put(STATEMENT);
+            putUuid(target, accountId);
+            putVarLong(target, Cents.ofExact(balance));
+
+            var previousEpochNanos = 0L;
+            while (operations.hasNext()) {
+                final var operation = operations.next();
+                final var epochNanos = OperationRecords.toEpochNanos(operation.dateTime());
+                target = reserve(target);
+                target.put(OPERATION);
+                putUuid(target, operation.operationId());
+                target.put((byte) operation.operationType().ordinal());
+                putVarLong(target, Cents.ofExact(operation.amount()));
+                putVarLong(target, Cents.ofExact(operation.newBalance()));
+                putVarLong(target, epochNanos - previousEpochNanos);
+                previousEpochNanos = epochNanos;
+            }
+            target = reserve(target);
+            target.put(END);
+            if (target != buffer) {
+                lock.lock();
+                append(target.flip());
+            }
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    public void flush() throws IOException {
+        lock.lock();
+        try {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            flush();
+        } finally {
+            try {
+                channel.close();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns where the next record goes: the statement buffer while it has room, then the shared
+     * buffer, which the statement takes over under the lock until its end.
+     */
+    private ByteBuffer reserve(ByteBuffer target) throws IOException {
+        if (target.remaining() >= MAX_RECORD_SIZE) {
+            return target;
+        }
+        if (target == buffer) {
+            flush();
+        } else {
+            lock.lock();
+            append(target.flip());
+        }
+        return buffer;
+    }
+
+    private void append(ByteBuffer statement) throws IOException {
+        while (statement.hasRemaining()) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            final var length = Math.min(statement.remaining(), buffer.remaining());
+            buffer.put(statement.slice(statement.position(), length));
+            statement.position(statement.position() + length);
+        }
+    }
+
+    private static void putUuid(ByteBuffer target, UUID uuid) {
+        target.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+    }
+
+    private static void putVarLong(ByteBuffer target, long value) {
+        var zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            target.put((byte) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        target.put((byte) zigzag);
+    }
+}
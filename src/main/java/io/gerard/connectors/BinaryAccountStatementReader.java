@@ -0,0 +1,156 @@
+package io.gerard.connectors;
+
+import io.gerard.models.Cents;
+import io.gerard.models.Operation;
+import io.gerard.models.OperationTypes;
+import io.gerard.models.StatementHeader;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import static io.gerard.connectors.BinaryAccountStatementExporter.END;
+import static io.gerard.connectors.BinaryAccountStatementExporter.MAGIC;
+import static io.gerard.connectors.BinaryAccountStatementExporter.MAX_RECORD_SIZE;
+import static io.gerard.connectors.BinaryAccountStatementExporter.OPERATION;
+import static io.gerard.connectors.BinaryAccountStatementExporter.STATEMENT;
+import static io.gerard.connectors.BinaryAccountStatementExporter.VERSION;
+
+/**
+ * Streams back what {@link BinaryAccountStatementExporter} wrote, one statement header then its
+ * operations at a time, holding no more than one buffer of input in memory.
+ */
+public class BinaryAccountStatementReader implements Closeable {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final OperationTypes[] TYPES = OperationTypes.values();
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private boolean headerRead;
+    private StatementHeader current;
+    private long previousEpochNanos;
+
+    public BinaryAccountStatementReader(ReadableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    public BinaryAccountStatementReader(ReadableByteChannel channel, int bufferSize) {
+        if (bufferSize < MAX_RECORD_SIZE) {
+            throw new IllegalArgumentException("bufferSize must hold at least " + MAX_RECORD_SIZE + " bytes");
+        }
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize).flip();
+    }
+
+    /**
+     * Moves to the next statement, skipping the operations of the current one not read yet, or
+     * returns nothing at the end of the input.
+     */
+    public Optional<StatementHeader> nextStatement() throws IOException {
+        while (current != null) {
+            nextOperation();
+        }
+        if (!fill()) {
+            return Optional.empty();
+        }
+        if (!headerRead) {
+            if (buffer.remaining() < 5 || buffer.getInt() != MAGIC || buffer.get() != VERSION) {
+                throw new IOException("Not a binary statement export");
+            }
+            headerRead = true;
+            if (!fill()) {
+                return Optional.empty();
+            }
+        }
+        try {
+            if (buffer.get() != STATEMENT) {
+                throw new IOException("Corrupt binary statement export");
+            }
+            current = new StatementHeader(getUuid(), Cents.toBigDecimal(getVarLong()));
+        } catch (BufferUnderflowException e) {
+            throw truncated();
+        }
+        previousEpochNanos = 0;
+        return Optional.of(current);
+    }
+
+    /**
+     * Returns the next operation of the current statement, or nothing once all of them were read.
+     */
+    public Optional<Operation> nextOperation() throws IOException {
+        if (current == null) {
+            return Optional.empty();
+        }
+        if (!fill()) {
+            throw truncated();
+        }
+        try {
+            final var tag = buffer.get();
+            if (tag == END) {
+                current = null;
+                return Optional.empty();
+            }
+            if (tag != OPERATION) {
+                throw new IOException("Corrupt binary statement export");
+            }
+            final var operationId = getUuid();
+            final var ordinal = buffer.get();
+            if (ordinal < 0 || ordinal >= TYPES.length) {
+                throw new IOException("Corrupt binary statement export");
+            }
+            final var type = TYPES[ordinal];
+            final var amount = Cents.toBigDecimal(getVarLong());
+            final var newBalance = Cents.toBigDecimal(getVarLong());
+            previousEpochNanos += getVarLong();
+            return Optional.of(new Operation(operationId, current.accountId(), type, amount, newBalance,
+                    Instant.ofEpochSecond(0, previousEpochNanos)));
+        } catch (BufferUnderflowException e) {
+            throw truncated();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Tops the buffer up to a full record unless the input ends first; returns whether any byte is left.
+     */
+    private boolean fill() throws IOException {
+        if (buffer.remaining() < MAX_RECORD_SIZE) {
+            buffer.compact();
+            while (buffer.position() < MAX_RECORD_SIZE && channel.read(buffer) >= 0) {
+                // keep reading until a whole record is buffered or the input ends
+            }
+            buffer.flip();
+        }
+        return buffer.hasRemaining();
+    }
+
+    private UUID getUuid() {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private long getVarLong() throws IOException {
+        var zigzag = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final var b = buffer.get();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("Corrupt binary statement export");
+    }
+
+    private static EOFException truncated() {
+        return new EOFException("Truncated binary statement export");
+    }
+}
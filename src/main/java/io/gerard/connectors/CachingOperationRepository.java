@@ -0,0 +1,261 @@
+package io.gerard.connectors;
+
+import io.gerard.models.Operation;
+import io.gerard.models.OperationCursor;
+import io.gerard.models.Rollup;
+import io.gerard.services.OperationRepository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Write-through cache of each account's last operation in front of another repository.
+ * Accounts are spread over independently locked LRU segments. Segment locks are only held to look
+ * up and install entries, never across a backing-store call: a write
+ * installs its operation once the store recorded it, unless another write to the account overlapped
+ * it, and a miss installs what it loaded unless a write started or ended in the segment meanwhile,
+ * so the cached entry can never fall behind the store.
+ */
+public class CachingOperationRepository implements OperationRepository {
+    public static final int DEFAULT_CONCURRENCY_LEVEL = 64;
+
+    private final OperationRepository delegate;
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingOperationRepository(OperationRepository delegate, int maximumSize) {
+        this(delegate, maximumSize, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    public CachingOperationRepository(OperationRepository delegate, int maximumSize, int concurrencyLevel) {
+        if (maximumSize <= 0 || concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("maximumSize and concurrencyLevel must be positive");
+        }
+        this.delegate = delegate;
+        final var segmentCount = Integer.highestOneBit(Math.min(concurrencyLevel, maximumSize));
+        final var segmentCapacity = (maximumSize + segmentCount - 1) / segmentCount;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    @Override
+    public Optional<Operation> getLastOperation(UUID accountId) {
+        final var segment = segmentFor(accountId);
+        final long writes;
+        synchronized (segment) {
+            final var cached = segment.get(accountId);
+            if (cached != null) {
+                hits.increment();
+                return Optional.of(cached);
+            }
+            writes = segment.writes;
+        }
+        misses.increment();
+        final var lastOperation = delegate.getLastOperation(accountId);
+        if (lastOperation.isPresent()) {
+            synchronized (segment) {
+                if (segment.writes == writes) {
+                    segment.put(accountId, lastOperation.get());
+                }
+            }
+        }
+        return lastOperation;
+    }
+
+    @Override
+    public Operation add(Operation operation) {
+        final var segment = segmentFor(operation.accountId());
+        final var write = segment.beginWrite(operation.accountId());
+        final Operation added;
+        try {
+            added = delegate.add(operation);
+        } catch (RuntimeException | Error e) {
+            segment.endWrite(write, null);
+            throw e;
+        }
+        segment.endWrite(write, added);
+        return added;
+    }
+
+    @Override
+    public boolean compareAndAdd(Operation expectedLastOperation, Operation operation) {
+        final var segment = segmentFor(operation.accountId());
+        final var write = segment.beginWrite(operation.accountId());
+        final boolean added;
+        try {
+            added = delegate.compareAndAdd(expectedLastOperation, operation);
+        } catch (RuntimeException | Error e) {
+            segment.endWrite(write, null);
+            throw e;
+        }
+        segment.endWrite(write, added, operation);
+        return added;
+    }
+
+    @Override
+    public boolean compareAndAddAll(Operation expectedLastOperation, List<Operation> operations) {
+        final var last = operations.get(operations.size() - 1);
+        final var segment = segmentFor(last.accountId());
+        final var write = segment.beginWrite(last.accountId());
+        final boolean added;
+        try {
+            added = delegate.compareAndAddAll(expectedLastOperation, operations);
+        } catch (RuntimeException | Error e) {
+            segment.endWrite(write, null);
+            throw e;
+        }
+        segment.endWrite(write, added, last);
+        return added;
+    }
+
+    @Override
+    public boolean compareAndAddPair(Operation expectedFirstLastOperation, Operation first,
+                                     Operation expectedSecondLastOperation, Operation second) {
+        final var firstSegment = segmentFor(first.accountId());
+        final var secondSegment = segmentFor(second.accountId());
+        final var firstWrite = firstSegment.beginWrite(first.accountId());
+        final var secondWrite = secondSegment.beginWrite(second.accountId());
+        final boolean added;
+        try {
+            added = delegate.compareAndAddPair(expectedFirstLastOperation, first, expectedSecondLastOperation, second);
+        } catch (RuntimeException | Error e) {
+            firstSegment.endWrite(firstWrite, null);
+            secondSegment.endWrite(secondWrite, null);
+            throw e;
+        }
+        firstSegment.endWrite(firstWrite, added, first);
+        secondSegment.endWrite(secondWrite, added, second);
+        return added;
+    }
+
+    @Override
+    public List<Operation> getAllOrderByDateDesc(UUID accountId) {
+        return delegate.getAllOrderByDateDesc(accountId);
+    }
+
+    @Override
+    public Stream<Operation> streamAllOrderByDateDesc(UUID accountId) {
+        return delegate.streamAllOrderByDateDesc(accountId);
+    }
+
+    @Override
+    public List<Operation> getBetweenOrderByDateDesc(UUID accountId, Instant from, Instant to) {
+        return delegate.getBetweenOrderByDateDesc(accountId, from, to);
+    }
+
+    @Override
+    public List<Operation> getPageOrderByDateDesc(UUID accountId, OperationCursor before, int limit) {
+        return delegate.getPageOrderByDateDesc(accountId, before, limit);
+    }
+
+    @Override
+    public Stream<UUID> streamAccountIds() {
+        return delegate.streamAccountIds();
+    }
+
+    @Override
+    public List<Rollup> getDailyRollups(UUID accountId, LocalDate from, LocalDate to, ZoneId zone) {
+        return delegate.getDailyRollups(accountId, from, to, zone);
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    private Segment segmentFor(UUID accountId) {
+        return segments[segmentIndexOf(accountId)];
+    }
+
+    private int segmentIndexOf(UUID accountId) {
+        final var hash = accountId.hashCode();
+        return (hash ^ (hash >>> 16)) & (segments.length - 1);
+    }
+
+    public record Stats(long hitCount, long missCount, long evictionCount) {
+    }
+
+    /**
+     * Write to an account in flight, with the stamp it started with.
+     */
+    private record Write(UUID accountId, long stamp) {
+    }
+
+    /**
+     * Writes in flight to an account, and the stamp of the latest one to start.
+     */
+    private static final class PendingWrites {
+        private int active;
+        private long latest;
+    }
+
+    private final class Segment extends LinkedHashMap<UUID, Operation> {
+        private final int capacity;
+        private final Map<UUID, PendingWrites> pending = new HashMap<>();
+        private long writes;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        synchronized Write beginWrite(UUID accountId) {
+            final var stamp = ++writes;
+            final var writesOfAccount = pending.computeIfAbsent(accountId, id -> new PendingWrites());
+            writesOfAccount.active++;
+            writesOfAccount.latest = stamp;
+            return new Write(accountId, stamp);
+        }
+
+        /**
+         * Ends a write whose operation was recorded, or whose outcome is unknown when it is
+         * {@code null}. The operation is installed when no other write to the account overlapped
+         * it; otherwise the account is left to be loaded by the next lookup.
+         */
+        synchronized void endWrite(Write write, Operation recorded) {
+            writes++;
+            final var writesOfAccount = pending.get(write.accountId());
+            final var alone = --writesOfAccount.active == 0 && writesOfAccount.latest == write.stamp();
+            if (writesOfAccount.active == 0) {
+                pending.remove(write.accountId());
+            }
+            if (alone && recorded != null) {
+                put(write.accountId(), recorded);
+            } else {
+                remove(write.accountId());
+            }
+        }
+
+        /**
+         * Ends a conditional write, which left the account untouched when it was refused.
+         */
+        synchronized void endWrite(Write write, boolean added, Operation recorded) {
+            if (added) {
+                endWrite(write, recorded);
+            } else if (--pending.get(write.accountId()).active == 0) {
+                pending.remove(write.accountId());
+            }
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Operation> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
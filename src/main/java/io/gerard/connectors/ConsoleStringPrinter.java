@@ -1,10 +1,46 @@
 package io.gerard.connectors;
 
+import io.gerard.services.StatementWriter;
 import io.gerard.services.StringPrinter;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Prints to the standard output, holding one lock shared by all console printers for a whole
+ * statement so that statements printed concurrently never interleave. The lock is a
+ * {@link ReentrantLock} rather than a monitor, so that a virtual thread blocked writing does not pin
+ * its carrier.
+ */
 public class ConsoleStringPrinter implements StringPrinter {
+    private static final ReentrantLock LOCK = new ReentrantLock();
+
     @Override
     public void print(String value) {
-        System.out.println(value);
+        LOCK.lock();
+        try {
+            System.out.println(value);
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    @Override
+    public void print(StatementWriter statement) {
+        LOCK.lock();
+        try {
+            final var out = System.out;
+            final var writer = new BufferedWriter(new OutputStreamWriter(out, out.charset()));
+            statement.writeTo(writer);
+            writer.write(System.lineSeparator());
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            LOCK.unlock();
+        }
     }
 }
@@ -0,0 +1,41 @@
+package io.gerard.connectors;
+
+import io.gerard.models.Operation;
+import io.gerard.services.AccountStatementExporter;
+import io.gerard.services.AccountStatementFormatter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.UUID;
+
+/**
+ * Writes each formatted statement to {@code <accountId>.txt} in a directory. A statement is written
+ * beside its file and moved over it, so exporting an account again, as a resumed run may, replaces
+ * the file whole.
+ */
+public class FilePerAccountStatementExporter implements AccountStatementExporter {
+    private static final String SUFFIX = ".txt";
+
+    private final Path directory;
+    private final AccountStatementFormatter formatter;
+
+    public FilePerAccountStatementExporter(Path directory, AccountStatementFormatter formatter) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.formatter = formatter;
+    }
+
+    @Override
+    public void export(UUID accountId, BigDecimal balance, Iterator<Operation> operations) throws IOException {
+        final var file = directory.resolve(accountId + SUFFIX);
+        final var temporary = directory.resolve(accountId + SUFFIX + ".tmp");
+        try (var writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            formatter.format(accountId, balance, operations, writer);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
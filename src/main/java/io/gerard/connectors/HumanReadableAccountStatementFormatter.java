@@ -3,36 +3,90 @@ package io.gerard.connectors;
 import io.gerard.models.Account;
 import io.gerard.models.Operation;
 import io.gerard.models.OperationTypes;
+import io.gerard.models.Rollup;
 import io.gerard.services.AccountStatementFormatter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.FormatStyle;
-import java.util.List;
+import java.util.Iterator;
 import java.util.Locale;
+import java.util.UUID;
 
 public class HumanReadableAccountStatementFormatter implements AccountStatementFormatter {
+    private static final int HEADER_LENGTH = 128;
+    private static final int LINE_LENGTH = 48;
+
+    private final DateTimeFormatter dateTimeFormatter;
+
+    public HumanReadableAccountStatementFormatter() {
+        this(ZoneId.systemDefault(), Locale.FRANCE);
+    }
+
+    public HumanReadableAccountStatementFormatter(ZoneId zone, Locale locale) {
+        this.dateTimeFormatter = DateTimeFormatter.ofLocalizedDateTime(FormatStyle.SHORT)
+                .withLocale(locale)
+                .withZone(zone);
+    }
+
     @Override
     public String format(Account account) {
-        final var stringOperations = String.join("\n", convertOperationsToStrings(account.operations()));
-        return "Your account : " + account.accountId() + "\n" +
-               "\tyour last balance is : " + account.balance() + "\n" +
-               "Operations : \n" +
-               "Date \t\t\t\t\tType \t\tAmount \n" +
-               stringOperations;
-    }
-
-    private List<String> convertOperationsToStrings(List<Operation> operations) {
-        return operations.stream().map(operation ->
-        {
-            final var alignAmount = (operation.operationType().equals(OperationTypes.DEPOSIT)) ? "\t\t" : "\t";
-            DateTimeFormatter formatter = DateTimeFormatter.ofLocalizedDateTime( FormatStyle.SHORT )
-                    .withLocale( Locale.FRANCE )
-                    .withZone( ZoneId.systemDefault() );
-            return formatter.format(operation.dateTime()) + "\t\t" +
-                   operation.operationType() +
-                   alignAmount +
-                   operation.amount();
-        }).toList();
+        final var output = new StringBuilder(HEADER_LENGTH + account.operations().size() * LINE_LENGTH);
+        try {
+            format(account.accountId(), account.balance(), account.operations().iterator(), output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output.toString();
+    }
+
+    @Override
+    public void format(UUID accountId, BigDecimal balance, Iterator<Operation> operations, Appendable output)
+            throws IOException {
+        appendHeader(accountId, balance, output);
+        appendOperations(operations, output);
+    }
+
+    @Override
+    public void format(UUID accountId, BigDecimal balance, Rollup summary, Iterator<Operation> operations,
+                       Appendable output) throws IOException {
+        appendHeader(accountId, balance, output);
+        output.append("Summary from ").append(summary.from().toString())
+                .append(" to ").append(summary.to().minusDays(1).toString()).append(" : \n")
+                .append("\tcredits : ").append(Long.toString(summary.credits()))
+                .append(", total ").append(summary.creditTotal().toString()).append("\n")
+                .append("\tdebits : ").append(Long.toString(summary.debits()))
+                .append(", total ").append(summary.debitTotal().toString()).append("\n")
+                .append("\tlowest balance : ").append(summary.minBalance().toString())
+                .append(", highest balance : ").append(summary.maxBalance().toString()).append("\n");
+        appendOperations(operations, output);
+    }
+
+    private static void appendHeader(UUID accountId, BigDecimal balance, Appendable output) throws IOException {
+        output.append("Your account : ").append(accountId.toString()).append("\n")
+                .append("\tyour last balance is : ").append(balance.toString()).append("\n");
+    }
+
+    private void appendOperations(Iterator<Operation> operations, Appendable output) throws IOException {
+        output.append("Operations : \n")
+                .append("Date \t\t\t\t\tType \t\tAmount \n");
+        while (operations.hasNext()) {
+            appendOperation(operations.next(), output);
+            if (operations.hasNext()) {
+                output.append('\n');
+            }
+        }
+    }
+
+    private void appendOperation(Operation operation, Appendable output) throws IOException {
+        final var alignAmount = (operation.operationType() == OperationTypes.DEPOSIT) ? "\t\t" : "\t";
+        dateTimeFormatter.formatTo(operation.dateTime(), output);
+        output.append("\t\t")
+                .append(operation.operationType().name())
+                .append(alignAmount)
+                .append(operation.amount().toString());
     }
 }
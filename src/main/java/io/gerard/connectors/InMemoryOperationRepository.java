@@ -0,0 +1,221 @@
+package io.gerard.connectors;
+
+import io.gerard.models.Operation;
+import io.gerard.models.OperationCursor;
+import io.gerard.services.OperationRepository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class InMemoryOperationRepository implements OperationRepository {
+    private final ConcurrentHashMap<UUID, AccountHistory> histories = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<Operation> getLastOperation(UUID accountId) {
+        final var history = histories.get(accountId);
+        return history == null ? Optional.empty() : Optional.ofNullable(history.last);
+    }
+
+    @Override
+    public Operation add(Operation operation) {
+        historyOf(operation.accountId()).append(operation);
+        return operation;
+    }
+
+    @Override
+    public boolean compareAndAdd(Operation expectedLastOperation, Operation operation) {
+        final var history = expectedLastOperation == null
+                ? historyOf(operation.accountId())
+                : histories.get(operation.accountId());
+        return history != null && history.appendIfLastIs(expectedLastOperation, operation);
+    }
+
+    @Override
+    public boolean compareAndAddAll(Operation expectedLastOperation, List<Operation> operations) {
+        if (operations.isEmpty()) {
+            throw new IllegalArgumentException("operations must not be empty");
+        }
+        final var accountId = operations.get(0).accountId();
+        final var history = expectedLastOperation == null ? historyOf(accountId) : histories.get(accountId);
+        return history != null && history.appendAllIfLastIs(expectedLastOperation, operations);
+    }
+
+    @Override
+    public boolean compareAndAddPair(Operation expectedFirstLastOperation, Operation first,
+                                     Operation expectedSecondLastOperation, Operation second) {
+        final var order = first.accountId().compareTo(second.accountId());
+        if (order == 0) {
+            throw new IllegalArgumentException("operations must belong to two different accounts");
+        }
+        final var firstHistory = expectedFirstLastOperation == null
+                ? historyOf(first.accountId())
+                : histories.get(first.accountId());
+        final var secondHistory = expectedSecondLastOperation == null
+                ? historyOf(second.accountId())
+                : histories.get(second.accountId());
+        if (firstHistory == null || secondHistory == null) {
+            return false;
+        }
+        final var lockedFirst = order < 0 ? firstHistory : secondHistory;
+        final var lockedSecond = order < 0 ? secondHistory : firstHistory;
+        synchronized (lockedFirst) {
+            synchronized (lockedSecond) {
+                if (!AccountHistory.sameOperation(firstHistory.last, expectedFirstLastOperation)
+                        || !AccountHistory.sameOperation(secondHistory.last, expectedSecondLastOperation)) {
+                    return false;
+                }
+                firstHistory.append(first);
+                secondHistory.append(second);
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public List<Operation> getAllOrderByDateDesc(UUID accountId) {
+        final var history = histories.get(accountId);
+        if (history == null) {
+            return List.of();
+        }
+        final var snapshot = history.snapshot;
+        return snapshot.reversed(0, snapshot.size());
+    }
+
+    @Override
+    public Stream<Operation> streamAllOrderByDateDesc(UUID accountId) {
+        final var history = histories.get(accountId);
+        if (history == null) {
+            return Stream.empty();
+        }
+        final var snapshot = history.snapshot;
+        return IntStream.iterate(snapshot.size() - 1, i -> i >= 0, i -> i - 1)
+                .mapToObj(i -> snapshot.operations()[i]);
+    }
+
+    @Override
+    public List<Operation> getBetweenOrderByDateDesc(UUID accountId, Instant from, Instant to) {
+        final var history = histories.get(accountId);
+        if (history == null) {
+            return List.of();
+        }
+        final var snapshot = history.snapshot;
+        final var fromIndex = snapshot.indexOf(OperationCursor.startOf(from));
+        return snapshot.reversed(fromIndex, Math.max(fromIndex, snapshot.indexOf(OperationCursor.startOf(to))));
+    }
+
+    @Override
+    public List<Operation> getPageOrderByDateDesc(UUID accountId, OperationCursor before, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative");
+        }
+        final var history = histories.get(accountId);
+        if (history == null) {
+            return List.of();
+        }
+        final var snapshot = history.snapshot;
+        final var toIndex = before == null ? snapshot.size() : snapshot.indexOf(before);
+        return snapshot.reversed(Math.max(0, toIndex - limit), toIndex);
+    }
+
+    @Override
+    public Stream<UUID> streamAccountIds() {
+        return histories.keySet().stream();
+    }
+
+    private AccountHistory historyOf(UUID accountId) {
+        return histories.computeIfAbsent(accountId, id -> new AccountHistory());
+    }
+
+    /**
+     * Writers of one account serialize on its history monitor; readers never lock and work on
+     * the published {@link Snapshot}, whose slots below {@code size} are never modified in place.
+     */
+    private static final class AccountHistory {
+        private static final Comparator<Operation> BY_DATE = Comparator.comparing(Operation::dateTime)
+                .thenComparing(Operation::operationId);
+
+        private volatile Snapshot snapshot = new Snapshot(new Operation[8], 0);
+        private volatile Operation last;
+
+        synchronized boolean appendIfLastIs(Operation expectedLastOperation, Operation operation) {
+            if (!sameOperation(last, expectedLastOperation)) {
+                return false;
+            }
+            append(operation);
+            return true;
+        }
+
+        synchronized boolean appendAllIfLastIs(Operation expectedLastOperation, List<Operation> operations) {
+            if (!sameOperation(last, expectedLastOperation)) {
+                return false;
+            }
+            operations.forEach(this::append);
+            return true;
+        }
+
+        synchronized void append(Operation operation) {
+            final var current = snapshot;
+            final var size = current.size();
+            var operations = current.operations();
+            var index = size;
+            while (index > 0 && BY_DATE.compare(operations[index - 1], operation) > 0) {
+                index--;
+            }
+            if (size == operations.length || index < size) {
+                operations = Arrays.copyOf(operations, size == operations.length ? size * 2 : operations.length);
+                System.arraycopy(operations, index, operations, index + 1, size - index);
+            }
+            operations[index] = operation;
+            snapshot = new Snapshot(operations, size + 1);
+            last = operation;
+        }
+
+        private static boolean sameOperation(Operation actual, Operation expected) {
+            if (actual == null || expected == null) {
+                return actual == expected;
+            }
+            return actual.operationId().equals(expected.operationId());
+        }
+    }
+
+    private record Snapshot(Operation[] operations, int size) {
+
+        /**
+         * Binary search for the number of operations sorting strictly before the cursor.
+         */
+        int indexOf(OperationCursor cursor) {
+            var low = 0;
+            var high = size;
+            while (low < high) {
+                final var middle = (low + high) >>> 1;
+                if (compare(operations[middle], cursor) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        List<Operation> reversed(int fromIndex, int toIndex) {
+            final var reversed = new ArrayList<Operation>(toIndex - fromIndex);
+            for (int i = toIndex - 1; i >= fromIndex; i--) {
+                reversed.add(operations[i]);
+            }
+            return reversed;
+        }
+
+        private static int compare(Operation operation, OperationCursor cursor) {
+            final var result = operation.dateTime().compareTo(cursor.dateTime());
+            return result != 0 ? result : operation.operationId().compareTo(cursor.operationId());
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package io.gerard.connectors;
+
+import io.gerard.models.Operation;
+import io.gerard.models.OperationCursor;
+import io.gerard.models.Rollup;
+import io.gerard.services.MetricsRegistry;
+import io.gerard.services.OperationMetrics;
+import io.gerard.services.OperationRepository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+public class InstrumentedOperationRepository implements OperationRepository {
+    private final OperationRepository delegate;
+    private final OperationMetrics lastOperationReads;
+    private final OperationMetrics adds;
+    private final OperationMetrics compareAndAdds;
+    private final OperationMetrics compareAndAddAlls;
+    private final OperationMetrics compareAndAddPairs;
+    private final OperationMetrics historyReads;
+    private final OperationMetrics historyStreams;
+    private final OperationMetrics rangeReads;
+    private final OperationMetrics pageReads;
+    private final OperationMetrics accountIdStreams;
+    private final OperationMetrics rollupReads;
+
+    public InstrumentedOperationRepository(OperationRepository delegate, MetricsRegistry registry) {
+        this.delegate = delegate;
+        this.lastOperationReads = registry.metrics("repository.getLastOperation");
+        this.adds = registry.metrics("repository.add");
+        this.compareAndAdds = registry.metrics("repository.compareAndAdd");
+        this.compareAndAddAlls = registry.metrics("repository.compareAndAddAll");
+        this.compareAndAddPairs = registry.metrics("repository.compareAndAddPair");
+        this.historyReads = registry.metrics("repository.getAllOrderByDateDesc");
+        this.historyStreams = registry.metrics("repository.streamAllOrderByDateDesc");
+        this.rangeReads = registry.metrics("repository.getBetweenOrderByDateDesc");
+        this.pageReads = registry.metrics("repository.getPageOrderByDateDesc");
+        this.accountIdStreams = registry.metrics("repository.streamAccountIds");
+        this.rollupReads = registry.metrics("repository.getDailyRollups");
+    }
+
+    @Override
+    public Optional<Operation> getLastOperation(UUID accountId) {
+        final var start = System.nanoTime();
+        try {
+            final var lastOperation = delegate.getLastOperation(accountId);
+            lastOperationReads.record(start);
+            return lastOperation;
+        } catch (RuntimeException e) {
+            lastOperationReads.recordError(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Operation add(Operation operation) {
+        final var start = System.nanoTime();
+        try {
+            final var added = delegate.add(operation);
+            adds.record(start);
+            return added;
+        } catch (RuntimeException e) {
+            adds.recordError(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean compareAndAdd(Operation expectedLastOperation, Operation operation) {
+        final var start = System.nanoTime();
+        try {
+            final var added = delegate.compareAndAdd(expectedLastOperation, operation);
+            compareAndAdds.record(start);
+            return added;
+        } catch (RuntimeException e) {
+            compareAndAdds.recordError(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean compareAndAddAll(Operation expectedLastOperation, List<Operation> operations) {
+        final var start = System.nanoTime();
+        try {
+            final var added = delegate.compareAndAddAll(expectedLastOperation, operations);
+            compareAndAddAlls.record(start);
+            return added;
+        } catch (RuntimeException e) {
+            compareAndAddAlls.recordError(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean compareAndAddPair(Operation expectedFirstLastOperation, Operation first,
+                                     Operation expectedSecondLastOperation, Operation second) {
+        final var start = System.nanoTime();
+        try {
+            final var added = delegate.compareAndAddPair(expectedFirstLastOperation, first,
+                    expectedSecondLastOperation, second);
+            compareAndAddPairs.record(start);
+            return added;
+        } catch (RuntimeException e) {
+            compareAndAddPairs.recordError(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Operation> getAllOrderByDateDesc(UUID accountId) {
+        final var start = System.nanoTime();
+        try {
+            final var operations = delegate.getAllOrderByDateDesc(accountId);
+            historyReads.record(start);
+            return operations;
+        } catch (RuntimeException e) {
+            historyReads.recordError(start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * The latency recorded spans from opening the stream to closing it, so it includes the reads
+     * made while the caller consumes it.
+     */
+    @Override
+    public Stream<Operation> streamAllOrderByDateDesc(UUID accountId) {
+        final var start = System.nanoTime();
+        try {
+            return delegate.streamAllOrderByDateDesc(accountId).onClose(() -> historyStreams.record(start));
+        } catch (RuntimeException e) {
+            historyStreams.recordError(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Operation> getBetweenOrderByDateDesc(UUID accountId, Instant from, Instant to) {
+        final var start = System.nanoTime();
+        try {
+            final var operations = delegate.getBetweenOrderByDateDesc(accountId, from, to);
+            rangeReads.record(start);
+            return operations;
+        } catch (RuntimeException e) {
+            rangeReads.recordError(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Operation> getPageOrderByDateDesc(UUID accountId, OperationCursor before, int limit) {
+        final var start = System.nanoTime();
+        try {
+            final var operations = delegate.getPageOrderByDateDesc(accountId, before, limit);
+            pageReads.record(start);
+            return operations;
+        } catch (RuntimeException e) {
+            pageReads.recordError(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Stream<UUID> streamAccountIds() {
+        final var start = System.nanoTime();
+        try {
+            return delegate.streamAccountIds().onClose(() -> accountIdStreams.record(start));
+        } catch (RuntimeException e) {
+            accountIdStreams.recordError(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Rollup> getDailyRollups(UUID accountId, LocalDate from, LocalDate to, ZoneId zone) {
+        final var start = System.nanoTime();
+        try {
+            final var rollups = delegate.getDailyRollups(accountId, from, to, zone);
+            rollupReads.record(start);
+            return rollups;
+        } catch (RuntimeException e) {
+            rollupReads.recordError(start, e);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package io.gerard.connectors;
+
+import io.gerard.models.MetricSnapshot;
+import io.gerard.services.MetricsExporter;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Publishes each exported metric as an MXBean named {@code <domain>:type=Metric,name=<metric name>},
+ * whose attributes are the values of the latest export.
+ */
+public class JmxMetricsExporter implements MetricsExporter {
+    private final MBeanServer server;
+    private final String domain;
+    private final ConcurrentHashMap<String, Metric> metrics = new ConcurrentHashMap<>();
+
+    public JmxMetricsExporter(MBeanServer server, String domain) {
+        this.server = server;
+        this.domain = domain;
+    }
+
+    @Override
+    public void export(List<MetricSnapshot> snapshots) {
+        for (final var snapshot : snapshots) {
+            metrics.computeIfAbsent(snapshot.name(), name -> register(name, snapshot)).snapshot = snapshot;
+        }
+    }
+
+    private Metric register(String name, MetricSnapshot snapshot) {
+        final var metric = new Metric(snapshot);
+        try {
+            server.registerMBean(metric, new ObjectName(domain + ":type=Metric,name=" + name));
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register metric " + name, e);
+        }
+        return metric;
+    }
+
+    public interface MetricMXBean {
+        long getCalls();
+
+        Map<String, Long> getErrors();
+
+        long getP50Nanos();
+
+        long getP90Nanos();
+
+        long getP99Nanos();
+
+        long getP999Nanos();
+
+        long getMaxNanos();
+    }
+
+    private static final class Metric implements MetricMXBean {
+        private volatile MetricSnapshot snapshot;
+
+        private Metric(MetricSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public long getCalls() {
+            return snapshot.calls();
+        }
+
+        @Override
+        public Map<String, Long> getErrors() {
+            return snapshot.errors();
+        }
+
+        @Override
+        public long getP50Nanos() {
+            return snapshot.p50Nanos();
+        }
+
+        @Override
+        public long getP90Nanos() {
+            return snapshot.p90Nanos();
+        }
+
+        @Override
+        public long getP99Nanos() {
+            return snapshot.p99Nanos();
+        }
+
+        @Override
+        public long getP999Nanos() {
+            return snapshot.p999Nanos();
+        }
+
+        @Override
+        public long getMaxNanos() {
+            return snapshot.maxNanos();
+        }
+    }
+}
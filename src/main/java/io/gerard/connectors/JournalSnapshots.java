@@ -0,0 +1,105 @@
+package io.gerard.connectors;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary checkpoint of a journal: the sequence replay resumes from, then for every account the
+ * journal sequence of its last operation before it and the balance that operation left, and a CRC32
+ * of all of the above. Its size grows with the number of accounts, not with their history. Files are
+ * streamed beside the target and atomically moved over it, so a reader sees the previous snapshot
+ * or the new one, never a partial one.
+ */
+final class JournalSnapshots {
+    private static final int MAGIC = 0x424E4B53;
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+    private static final int ENTRY_SIZE = 8 + 8 + 8 + 8;
+    private static final int CHECKSUM_SIZE = 4;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private JournalSnapshots() {
+    }
+
+    record Entry(UUID accountId, long lastSequence, long balance) {
+    }
+
+    record Snapshot(long replayFrom, List<Entry> entries) {
+    }
+
+    static void write(Path file, long replayFrom, List<Entry> entries) throws IOException {
+        final var temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            final var checked = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE), new CRC32());
+            final var output = new DataOutputStream(checked);
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(replayFrom);
+            output.writeInt(entries.size());
+            for (final var entry : entries) {
+                output.writeLong(entry.accountId().getMostSignificantBits());
+                output.writeLong(entry.accountId().getLeastSignificantBits());
+                output.writeLong(entry.lastSequence());
+                output.writeLong(entry.balance());
+            }
+            output.writeInt((int) checked.getChecksum().getValue());
+            output.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Returns the snapshot stored in the file, or nothing when there is none, it was written by
+     * another version or it does not check out.
+     */
+    static Optional<Snapshot> read(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        final var size = Files.size(file);
+        if (size < HEADER_SIZE + CHECKSUM_SIZE) {
+            return Optional.empty();
+        }
+        try (var checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE), new CRC32())) {
+            final var input = new DataInputStream(checked);
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                return Optional.empty();
+            }
+            final var replayFrom = input.readLong();
+            final var count = input.readInt();
+            if (count < 0 || size != HEADER_SIZE + (long) count * ENTRY_SIZE + CHECKSUM_SIZE) {
+                return Optional.empty();
+            }
+            final var entries = new ArrayList<Entry>(count);
+            for (int i = 0; i < count; i++) {
+                entries.add(new Entry(new UUID(input.readLong(), input.readLong()), input.readLong(),
+                        input.readLong()));
+            }
+            final var checksum = (int) checked.getChecksum().getValue();
+            if (input.readInt() != checksum) {
+                return Optional.empty();
+            }
+            return Optional.of(new Snapshot(replayFrom, List.copyOf(entries)));
+        }
+    }
+}
@@ -0,0 +1,577 @@
+package io.gerard.connectors;
+
+import io.gerard.models.Operation;
+import io.gerard.models.OperationCursor;
+import io.gerard.services.OperationRepository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Durable repository writing every operation as a fixed-width record to segmented, memory-mapped
+ * append-only files. Segments are forced to disk every {@code syncBatchSize} records (group commit),
+ * on {@link #sync()} and on {@link #close()}. Opening a directory replays its segments up to the first
+ * torn record and rebuilds the per-account index from them.
+ * <p>
+ * {@link #snapshot()} checkpoints the last operation and balance of every account, so that reopening
+ * loads it and only replays the records written after it. The last record of every account covered
+ * by the checkpoint is checked when it is loaded; a corrupt one fails the opening. The history index
+ * of the records before the checkpoint is rebuilt on the first history read, a chunk at a time.
+ * <p>
+ * Writers serialize on a {@link ReentrantLock} rather than a monitor, so that a virtual thread
+ * blocked in a mapped write or a force does not pin its carrier.
+ */
+public class MappedJournalOperationRepository implements OperationRepository, Closeable {
+    public static final int DEFAULT_RECORDS_PER_SEGMENT = 1 << 20;
+    public static final int DEFAULT_SYNC_BATCH_SIZE = 64;
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String SNAPSHOT_FILE = "journal.snapshot";
+    private static final int INDEX_CHUNK_SIZE = 1 << 16;
+
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final int syncBatchSize;
+    private final ConcurrentHashMap<UUID, AccountIndex> accounts = new ConcurrentHashMap<>();
+    private final ByteBuffer record = ByteBuffer.allocate(OperationRecords.SIZE);
+    private final CRC32 checksum = new CRC32();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private final ReentrantLock indexLock = new ReentrantLock();
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private long nextSequence;
+    private long syncedSequence;
+    private long unindexedPrefix;
+    private volatile boolean prefixIndexed = true;
+
+    private MappedJournalOperationRepository(Path directory, int recordsPerSegment, int syncBatchSize) {
+        this.directory = directory;
+        this.recordsPerSegment = recordsPerSegment;
+        this.syncBatchSize = syncBatchSize;
+    }
+
+    public static MappedJournalOperationRepository open(Path directory) throws IOException {
+        return open(directory, DEFAULT_RECORDS_PER_SEGMENT, DEFAULT_SYNC_BATCH_SIZE);
+    }
+
+    public static MappedJournalOperationRepository open(Path directory, int recordsPerSegment, int syncBatchSize)
+            throws IOException {
+        if (recordsPerSegment <= 0 || syncBatchSize <= 0) {
+            throw new IllegalArgumentException("recordsPerSegment and syncBatchSize must be positive");
+        }
+        Files.createDirectories(directory);
+        final var journal = new MappedJournalOperationRepository(directory, recordsPerSegment, syncBatchSize);
+        journal.recover();
+        return journal;
+    }
+
+    @Override
+    public Optional<Operation> getLastOperation(UUID accountId) {
+        final var index = accounts.get(accountId);
+        return index == null ? Optional.empty() : Optional.ofNullable(index.last);
+    }
+
+    @Override
+    public Operation add(Operation operation) {
+        lock.lock();
+        try {
+            append(operation, false);
+            syncIfDue();
+            return operation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean compareAndAdd(Operation expectedLastOperation, Operation operation) {
+        lock.lock();
+        try {
+            if (!isLastOperation(operation.accountId(), expectedLastOperation)) {
+                return false;
+            }
+            append(operation, false);
+            syncIfDue();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean compareAndAddAll(Operation expectedLastOperation, List<Operation> operations) {
+        if (operations.isEmpty()) {
+            throw new IllegalArgumentException("operations must not be empty");
+        }
+        lock.lock();
+        try {
+            if (!isLastOperation(operations.get(0).accountId(), expectedLastOperation)) {
+                return false;
+            }
+            for (int i = 0; i < operations.size(); i++) {
+                append(operations.get(i), i < operations.size() - 1);
+            }
+            syncIfDue();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Both records are written as one group: if a crash tears the second one, recovery drops the
+     * first as well.
+     */
+    @Override
+    public boolean compareAndAddPair(Operation expectedFirstLastOperation, Operation first,
+                                     Operation expectedSecondLastOperation, Operation second) {
+        if (first.accountId().equals(second.accountId())) {
+            throw new IllegalArgumentException("operations must belong to two different accounts");
+        }
+        lock.lock();
+        try {
+            if (!isLastOperation(first.accountId(), expectedFirstLastOperation)
+                    || !isLastOperation(second.accountId(), expectedSecondLastOperation)) {
+                return false;
+            }
+            append(first, true);
+            append(second, false);
+            syncIfDue();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Operation> getAllOrderByDateDesc(UUID accountId) {
+        final var positions = positionsOf(accountId);
+        if (positions == null) {
+            return List.of();
+        }
+        return readReversed(positions, 0, positions.size());
+    }
+
+    @Override
+    public Stream<Operation> streamAllOrderByDateDesc(UUID accountId) {
+        final var positions = positionsOf(accountId);
+        if (positions == null) {
+            return Stream.empty();
+        }
+        return IntStream.iterate(positions.size() - 1, i -> i >= 0, i -> i - 1)
+                .mapToObj(i -> read(positions.sequences()[i]));
+    }
+
+    @Override
+    public List<Operation> getBetweenOrderByDateDesc(UUID accountId, Instant from, Instant to) {
+        final var positions = positionsOf(accountId);
+        if (positions == null) {
+            return List.of();
+        }
+        final var fromIndex = indexOf(positions, OperationCursor.startOf(from));
+        return readReversed(positions, fromIndex,
+                Math.max(fromIndex, indexOf(positions, OperationCursor.startOf(to))));
+    }
+
+    @Override
+    public List<Operation> getPageOrderByDateDesc(UUID accountId, OperationCursor before, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative");
+        }
+        final var positions = positionsOf(accountId);
+        if (positions == null) {
+            return List.of();
+        }
+        final var toIndex = before == null ? positions.size() : indexOf(positions, before);
+        return readReversed(positions, Math.max(0, toIndex - limit), toIndex);
+    }
+
+    @Override
+    public Stream<UUID> streamAccountIds() {
+        return accounts.keySet().stream();
+    }
+
+    public void sync() {
+        lock.lock();
+        try {
+            final var current = segments;
+            while (syncedSequence < nextSequence) {
+                final var segmentIndex = (int) (syncedSequence / recordsPerSegment);
+                final var from = slotOf(syncedSequence);
+                final var to = segmentIndex == (int) ((nextSequence - 1) / recordsPerSegment)
+                        ? slotOf(nextSequence - 1) + 1
+                        : recordsPerSegment;
+                current[segmentIndex].force(from * OperationRecords.SIZE, (to - from) * OperationRecords.SIZE);
+                syncedSequence += to - from;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes a checkpoint of the accounts without blocking writers: the journal lock is only held to
+     * read the current sequence. An account whose last operation was appended after it is left out
+     * of the checkpoint, as replaying that operation on reopening restores it.
+     */
+    public void snapshot() throws IOException {
+        snapshotLock.lock();
+        try {
+            final long replayFrom;
+            lock.lock();
+            try {
+                replayFrom = nextSequence;
+            } finally {
+                lock.unlock();
+            }
+            sync();
+            final var entries = new ArrayList<JournalSnapshots.Entry>(accounts.size());
+            accounts.forEach((accountId, index) -> {
+                final var lastSequence = index.lastSequence;
+                if (lastSequence >= 0 && lastSequence < replayFrom) {
+                    entries.add(new JournalSnapshots.Entry(accountId, lastSequence,
+                            OperationRecords.newBalance(segmentOf(lastSequence), offsetOf(lastSequence))));
+                }
+            });
+            JournalSnapshots.write(directory.resolve(SNAPSHOT_FILE), replayFrom, entries);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Takes a snapshot every {@code period}. A failed snapshot cancels the schedule and completes the
+     * returned future with the {@link UncheckedIOException}.
+     */
+    public ScheduledFuture<?> scheduleSnapshots(ScheduledExecutorService scheduler, Duration period) {
+        final var nanos = period.toNanos();
+        return scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, nanos, nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void close() {
+        sync();
+    }
+
+    private void recover() throws IOException {
+        final List<Path> files;
+        try (var paths = Files.list(directory)) {
+            files = paths.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+        for (final var file : files) {
+            if (!file.equals(segmentPath(segments.length))) {
+                throw new IOException("Unexpected journal segment " + file);
+            }
+            mapSegment(file);
+        }
+        final var capacity = (long) segments.length * recordsPerSegment;
+        final var snapshot = JournalSnapshots.read(directory.resolve(SNAPSHOT_FILE))
+                .filter(checkpoint -> checkpoint.replayFrom() <= capacity);
+        if (snapshot.isPresent()) {
+            restore(snapshot.get());
+        }
+        nextSequence = snapshot.map(JournalSnapshots.Snapshot::replayFrom).orElse(0L);
+
+        final var group = new ArrayList<Operation>();
+        var sequence = nextSequence;
+        while (sequence < capacity && OperationRecords.isValid(segmentOf(sequence), offsetOf(sequence), checksum)) {
+            group.add(read(sequence));
+            if (!OperationRecords.isContinued(segmentOf(sequence), offsetOf(sequence))) {
+                for (final var operation : group) {
+                    indexOf(operation.accountId()).insert(nextSequence++, operation);
+                }
+                group.clear();
+            }
+            sequence++;
+        }
+        if (sequence < capacity) {
+            truncate();
+        }
+        syncedSequence = nextSequence;
+    }
+
+    /**
+     * Drops every record from {@code nextSequence} on: the rest of its segment is zeroed and forced,
+     * so that valid records left after a torn one cannot be replayed once appends overwrite it, and
+     * the later segments are deleted.
+     */
+    private void truncate() throws IOException {
+        final var kept = (int) (nextSequence / recordsPerSegment) + 1;
+        final var segment = segments[kept - 1];
+        final var from = offsetOf(nextSequence);
+        final var length = recordsPerSegment * OperationRecords.SIZE - from;
+        final var zeros = new byte[Math.min(length, 1 << 16)];
+        for (int offset = from; offset < from + length; offset += zeros.length) {
+            segment.put(offset, zeros, 0, Math.min(zeros.length, from + length - offset));
+        }
+        segment.force(from, length);
+        for (int segmentIndex = kept; segmentIndex < segments.length; segmentIndex++) {
+            Files.delete(segmentPath(segmentIndex));
+        }
+        segments = Arrays.copyOf(segments, kept);
+    }
+
+    private void restore(JournalSnapshots.Snapshot snapshot) throws IOException {
+        for (final var entry : snapshot.entries()) {
+            final var lastSequence = entry.lastSequence();
+            if (lastSequence < 0
+                    || lastSequence >= snapshot.replayFrom()
+                    || !OperationRecords.isValid(segmentOf(lastSequence), offsetOf(lastSequence), checksum)
+                    || !OperationRecords.accountId(segmentOf(lastSequence), offsetOf(lastSequence))
+                    .equals(entry.accountId())
+                    || OperationRecords.newBalance(segmentOf(lastSequence), offsetOf(lastSequence))
+                    != entry.balance()) {
+                throw new IOException("Journal record " + lastSequence + " covered by the snapshot is corrupt");
+            }
+            final var index = indexOf(entry.accountId());
+            index.last = read(lastSequence);
+            index.lastSequence = lastSequence;
+        }
+        unindexedPrefix = snapshot.replayFrom();
+        prefixIndexed = snapshot.replayFrom() == 0;
+    }
+
+    private Positions positionsOf(UUID accountId) {
+        if (!prefixIndexed) {
+            indexPrefix();
+        }
+        final var index = accounts.get(accountId);
+        return index == null ? null : index.positions;
+    }
+
+    /**
+     * Indexes the records covered by the snapshot, which were checked when they were first replayed.
+     * Each chunk is read and sorted without the journal lock, which is only held to merge it, so
+     * writers are never blocked for the whole prefix.
+     */
+    private void indexPrefix() {
+        indexLock.lock();
+        try {
+            if (prefixIndexed) {
+                return;
+            }
+            final var chunk = new HashMap<UUID, Positions>();
+            for (long from = 0; from < unindexedPrefix; from += INDEX_CHUNK_SIZE) {
+                final var to = Math.min(unindexedPrefix, from + INDEX_CHUNK_SIZE);
+                for (long sequence = from; sequence < to; sequence++) {
+                    final var accountId = OperationRecords.accountId(segmentOf(sequence), offsetOf(sequence));
+                    chunk.put(accountId, insertByDate(chunk.get(accountId), sequence));
+                }
+                lock.lock();
+                try {
+                    chunk.forEach((accountId, positions) -> indexOf(accountId).merge(positions));
+                } finally {
+                    lock.unlock();
+                }
+                chunk.clear();
+            }
+            prefixIndexed = true;
+        } finally {
+            indexLock.unlock();
+        }
+    }
+
+    private Positions insertByDate(Positions current, long sequence) {
+        if (current == null) {
+            current = new Positions(new long[4], 0);
+        }
+        final var size = current.size();
+        var sequences = current.sequences();
+        var index = size;
+        while (index > 0 && compareByDate(sequences[index - 1], sequence) > 0) {
+            index--;
+        }
+        if (size == sequences.length) {
+            sequences = Arrays.copyOf(sequences, size * 2);
+        }
+        System.arraycopy(sequences, index, sequences, index + 1, size - index);
+        sequences[index] = sequence;
+        return new Positions(sequences, size + 1);
+    }
+
+    private void append(Operation operation, boolean continued) {
+        final var sequence = nextSequence;
+        final var segmentIndex = (int) (sequence / recordsPerSegment);
+        if (segmentIndex == segments.length) {
+            try {
+                mapSegment(segmentPath(segmentIndex));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        OperationRecords.encode(operation, continued, record, checksum);
+        segments[segmentIndex].put(slotOf(sequence) * OperationRecords.SIZE, record, 0, OperationRecords.SIZE);
+        nextSequence = sequence + 1;
+        indexOf(operation.accountId()).insert(sequence, operation);
+    }
+
+    private void syncIfDue() {
+        if (nextSequence - syncedSequence >= syncBatchSize) {
+            sync();
+        }
+    }
+
+    private boolean isLastOperation(UUID accountId, Operation expectedLastOperation) {
+        final var index = accounts.get(accountId);
+        final var last = index == null ? null : index.last;
+        if (last == null || expectedLastOperation == null) {
+            return last == expectedLastOperation;
+        }
+        return last.operationId().equals(expectedLastOperation.operationId());
+    }
+
+    private MappedByteBuffer mapSegment(Path file) throws IOException {
+        final var size = (long) recordsPerSegment * OperationRecords.SIZE;
+        try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            if (channel.size() != 0 && channel.size() != size) {
+                throw new IOException("Journal segment " + file + " does not hold " + recordsPerSegment + " records");
+            }
+            final var segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            final var current = segments;
+            final var extended = Arrays.copyOf(current, current.length + 1);
+            extended[current.length] = segment;
+            segments = extended;
+            return segment;
+        }
+    }
+
+    private Path segmentPath(int segmentIndex) {
+        return directory.resolve(String.format("%020d%s", (long) segmentIndex * recordsPerSegment, SEGMENT_SUFFIX));
+    }
+
+    private Operation read(long sequence) {
+        return OperationRecords.decode(segmentOf(sequence), offsetOf(sequence));
+    }
+
+    private MappedByteBuffer segmentOf(long sequence) {
+        return segments[(int) (sequence / recordsPerSegment)];
+    }
+
+    private int offsetOf(long sequence) {
+        return slotOf(sequence) * OperationRecords.SIZE;
+    }
+
+    private List<Operation> readReversed(Positions positions, int fromIndex, int toIndex) {
+        final var operations = new ArrayList<Operation>(toIndex - fromIndex);
+        for (int i = toIndex - 1; i >= fromIndex; i--) {
+            operations.add(read(positions.sequences()[i]));
+        }
+        return operations;
+    }
+
+    /**
+     * Binary search for the number of positions whose record sorts strictly before the cursor.
+     */
+    private int indexOf(Positions positions, OperationCursor cursor) {
+        final var current = segments;
+        var low = 0;
+        var high = positions.size();
+        while (low < high) {
+            final var middle = (low + high) >>> 1;
+            final var sequence = positions.sequences()[middle];
+            final var segment = current[(int) (sequence / recordsPerSegment)];
+            if (OperationRecords.compareTo(segment, slotOf(sequence) * OperationRecords.SIZE, cursor) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int compareByDate(long leftSequence, long rightSequence) {
+        final var current = segments;
+        return OperationRecords.compareByDate(
+                current[(int) (leftSequence / recordsPerSegment)], slotOf(leftSequence) * OperationRecords.SIZE,
+                current[(int) (rightSequence / recordsPerSegment)], slotOf(rightSequence) * OperationRecords.SIZE);
+    }
+
+    private int slotOf(long sequence) {
+        return (int) (sequence % recordsPerSegment);
+    }
+
+    private AccountIndex indexOf(UUID accountId) {
+        return accounts.computeIfAbsent(accountId, id -> new AccountIndex());
+    }
+
+    /**
+     * Journal sequences of one account sorted by date, mutated under the journal lock only and
+     * published as immutable {@link Positions} for lock-free readers.
+     */
+    private final class AccountIndex {
+        private volatile Positions positions = new Positions(new long[4], 0);
+        private volatile Operation last;
+        private volatile long lastSequence = -1;
+
+        void insert(long sequence, Operation operation) {
+            final var current = positions;
+            final var size = current.size();
+            var sequences = current.sequences();
+            var index = size;
+            while (index > 0 && compareByDate(sequences[index - 1], sequence) > 0) {
+                index--;
+            }
+            if (size == sequences.length || index < size) {
+                sequences = Arrays.copyOf(sequences, size == sequences.length ? size * 2 : sequences.length);
+                System.arraycopy(sequences, index, sequences, index + 1, size - index);
+            }
+            sequences[index] = sequence;
+            positions = new Positions(sequences, size + 1);
+            last = operation;
+            lastSequence = sequence;
+        }
+
+        /**
+         * Merges sequences sorted by date into the index. They all precede the last operation in the
+         * journal, so it is left as it is.
+         */
+        void merge(Positions older) {
+            final var current = positions;
+            final var merged = new long[current.size() + older.size()];
+            var left = 0;
+            var right = 0;
+            for (int i = 0; i < merged.length; i++) {
+                if (right == current.size() || left < older.size()
+                        && compareByDate(older.sequences()[left], current.sequences()[right]) <= 0) {
+                    merged[i] = older.sequences()[left++];
+                } else {
+                    merged[i] = current.sequences()[right++];
+                }
+            }
+            positions = new Positions(merged, merged.length);
+        }
+    }
+
+    private record Positions(long[] sequences, int size) {
+    }
+}
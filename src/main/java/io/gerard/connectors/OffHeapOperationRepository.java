@@ -0,0 +1,425 @@
+package io.gerard.connectors;
+
+import io.gerard.models.Cents;
+import io.gerard.models.Operation;
+import io.gerard.models.OperationCursor;
+import io.gerard.models.OperationTypes;
+import io.gerard.services.OperationRepository;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Repository keeping operations off-heap, one direct buffer per column and per chunk of rows:
+ * operation id, type, amount and new balance in cents, and epoch nanos. The heap only holds, per
+ * account, the numbers of the rows of its operations sorted by date, four bytes per operation;
+ * {@link Operation} records are materialized when read. Chunks are allocated as rows fill them, so
+ * memory follows the number of operations, and {@link #close()} drops them for the garbage collector
+ * to free their direct memory.
+ * <p>
+ * Writers of an account serialize on its lock, writes spanning two accounts lock them in account
+ * id order, and writers of different accounts fill their rows concurrently. Each write publishes
+ * the account's rows as a new immutable {@link Rows}, which readers search without locking.
+ */
+public class OffHeapOperationRepository implements OperationRepository, AutoCloseable {
+    public static final int DEFAULT_ROWS_PER_CHUNK = 1 << 16;
+
+    private static final OperationTypes[] TYPES = OperationTypes.values();
+
+    private final int rowsPerChunk;
+    private final ConcurrentHashMap<UUID, AccountRows> accounts = new ConcurrentHashMap<>();
+    private final AtomicInteger rowCount = new AtomicInteger();
+    private final ReentrantLock chunksLock = new ReentrantLock();
+    private volatile Chunk[] chunks = new Chunk[0];
+    private volatile boolean closed;
+
+    public OffHeapOperationRepository() {
+        this(DEFAULT_ROWS_PER_CHUNK);
+    }
+
+    public OffHeapOperationRepository(int rowsPerChunk) {
+        if (rowsPerChunk <= 0) {
+            throw new IllegalArgumentException("rowsPerChunk must be positive");
+        }
+        this.rowsPerChunk = rowsPerChunk;
+    }
+
+    @Override
+    public Optional<Operation> getLastOperation(UUID accountId) {
+        checkOpen();
+        final var account = accounts.get(accountId);
+        if (account == null) {
+            return Optional.empty();
+        }
+        final var rows = account.rows;
+        return rows.size() == 0 ? Optional.empty() : Optional.of(read(accountId, rows.last()));
+    }
+
+    @Override
+    public Operation add(Operation operation) {
+        checkOpen();
+        final var row = encode(operation);
+        final var account = accountOf(operation.accountId());
+        account.lock.lock();
+        try {
+            account.insert(row);
+            return operation;
+        } finally {
+            account.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean compareAndAdd(Operation expectedLastOperation, Operation operation) {
+        checkOpen();
+        final var account = accountOf(operation.accountId());
+        account.lock.lock();
+        try {
+            if (!isLastOperation(account, expectedLastOperation)) {
+                return false;
+            }
+            account.insert(encode(operation));
+            return true;
+        } finally {
+            account.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean compareAndAddAll(Operation expectedLastOperation, List<Operation> operations) {
+        if (operations.isEmpty()) {
+            throw new IllegalArgumentException("operations must not be empty");
+        }
+        checkOpen();
+        final var account = accountOf(operations.get(0).accountId());
+        account.lock.lock();
+        try {
+            if (!isLastOperation(account, expectedLastOperation)) {
+                return false;
+            }
+            final var rows = new int[operations.size()];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = encode(operations.get(i));
+            }
+            for (final var row : rows) {
+                account.insert(row);
+            }
+            return true;
+        } finally {
+            account.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean compareAndAddPair(Operation expectedFirstLastOperation, Operation first,
+                                     Operation expectedSecondLastOperation, Operation second) {
+        final var order = first.accountId().compareTo(second.accountId());
+        if (order == 0) {
+            throw new IllegalArgumentException("operations must belong to two different accounts");
+        }
+        checkOpen();
+        final var firstAccount = accountOf(first.accountId());
+        final var secondAccount = accountOf(second.accountId());
+        final var lower = order < 0 ? firstAccount : secondAccount;
+        final var upper = order < 0 ? secondAccount : firstAccount;
+        lower.lock.lock();
+        try {
+            upper.lock.lock();
+            try {
+                if (!isLastOperation(firstAccount, expectedFirstLastOperation)
+                        || !isLastOperation(secondAccount, expectedSecondLastOperation)) {
+                    return false;
+                }
+                final var firstRow = encode(first);
+                final var secondRow = encode(second);
+                firstAccount.insert(firstRow);
+                secondAccount.insert(secondRow);
+                return true;
+            } finally {
+                upper.lock.unlock();
+            }
+        } finally {
+            lower.lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Operation> getAllOrderByDateDesc(UUID accountId) {
+        final var rows = rowsOf(accountId);
+        return readReversed(accountId, rows, 0, rows.size());
+    }
+
+    @Override
+    public Stream<Operation> streamAllOrderByDateDesc(UUID accountId) {
+        final var rows = rowsOf(accountId);
+        return IntStream.iterate(rows.size() - 1, i -> i >= 0, i -> i - 1)
+                .mapToObj(i -> read(accountId, rows.sorted()[i]));
+    }
+
+    @Override
+    public List<Operation> getBetweenOrderByDateDesc(UUID accountId, Instant from, Instant to) {
+        final var rows = rowsOf(accountId);
+        final var fromIndex = indexOf(rows, OperationCursor.startOf(from));
+        final var toIndex = Math.max(fromIndex, indexOf(rows, OperationCursor.startOf(to)));
+        return readReversed(accountId, rows, fromIndex, toIndex);
+    }
+
+    @Override
+    public List<Operation> getPageOrderByDateDesc(UUID accountId, OperationCursor before, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative");
+        }
+        final var rows = rowsOf(accountId);
+        final var toIndex = before == null ? rows.size() : indexOf(rows, before);
+        return readReversed(accountId, rows, Math.max(0, toIndex - limit), toIndex);
+    }
+
+    @Override
+    public Stream<UUID> streamAccountIds() {
+        checkOpen();
+        return accounts.entrySet().stream()
+                .filter(entry -> entry.getValue().rows.size() > 0)
+                .map(Map.Entry::getKey);
+    }
+
+    /**
+     * Drops every chunk and account; the direct memory of the chunks is freed once the garbage
+     * collector reclaims them. Calls made after closing throw {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        chunksLock.lock();
+        try {
+            closed = true;
+            chunks = new Chunk[0];
+            accounts.clear();
+        } finally {
+            chunksLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the operation to a new row and returns it. The row only becomes visible once inserted
+     * in the rows of its account.
+     *
+     * @throws IllegalStateException if every row number is taken
+     */
+    private int encode(Operation operation) {
+        final var amount = Cents.ofExact(operation.amount());
+        final var newBalance = Cents.ofExact(operation.newBalance());
+        final var epochNanos = OperationRecords.toEpochNanos(operation.dateTime());
+        final var row = rowCount.getAndUpdate(count -> count == Integer.MAX_VALUE ? count : count + 1);
+        if (row == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Repository is full");
+        }
+        final var chunk = chunkFor(row);
+        final var slot = slotOf(row);
+        chunk.operationIds.putLong(slot * 16, operation.operationId().getMostSignificantBits());
+        chunk.operationIds.putLong(slot * 16 + 8, operation.operationId().getLeastSignificantBits());
+        chunk.types.put(slot, (byte) operation.operationType().ordinal());
+        chunk.amounts.putLong(slot * 8, amount);
+        chunk.balances.putLong(slot * 8, newBalance);
+        chunk.dateTimes.putLong(slot * 8, epochNanos);
+        return row;
+    }
+
+    private Chunk chunkFor(int row) {
+        final var chunkIndex = row / rowsPerChunk;
+        var current = chunks;
+        if (chunkIndex < current.length) {
+            return current[chunkIndex];
+        }
+        chunksLock.lock();
+        try {
+            checkOpen();
+            current = chunks;
+            while (chunkIndex >= current.length) {
+                current = Arrays.copyOf(current, current.length + 1);
+                current[current.length - 1] = new Chunk(rowsPerChunk);
+            }
+            chunks = current;
+            return current[chunkIndex];
+        } finally {
+            chunksLock.unlock();
+        }
+    }
+
+    private AccountRows accountOf(UUID accountId) {
+        return accounts.computeIfAbsent(accountId, id -> new AccountRows());
+    }
+
+    private Rows rowsOf(UUID accountId) {
+        checkOpen();
+        final var account = accounts.get(accountId);
+        return account == null ? Rows.EMPTY : account.rows;
+    }
+
+    private boolean isLastOperation(AccountRows account, Operation expectedLastOperation) {
+        final var rows = account.rows;
+        if (rows.size() == 0 || expectedLastOperation == null) {
+            return rows.size() == 0 && expectedLastOperation == null;
+        }
+        final var chunk = chunkOf(rows.last());
+        final var slot = slotOf(rows.last());
+        return chunk.operationIds.getLong(slot * 16) == expectedLastOperation.operationId().getMostSignificantBits()
+                && chunk.operationIds.getLong(slot * 16 + 8)
+                == expectedLastOperation.operationId().getLeastSignificantBits();
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Repository is closed");
+        }
+    }
+
+    private List<Operation> readReversed(UUID accountId, Rows rows, int fromIndex, int toIndex) {
+        final var operations = new ArrayList<Operation>(toIndex - fromIndex);
+        for (int i = toIndex - 1; i >= fromIndex; i--) {
+            operations.add(read(accountId, rows.sorted()[i]));
+        }
+        return operations;
+    }
+
+    /**
+     * Binary search for the number of rows whose operation sorts strictly before the cursor.
+     */
+    private int indexOf(Rows rows, OperationCursor cursor) {
+        var low = 0;
+        var high = rows.size();
+        while (low < high) {
+            final var middle = (low + high) >>> 1;
+            if (compareTo(rows.sorted()[middle], cursor) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private Operation read(UUID accountId, int row) {
+        final var chunk = chunkOf(row);
+        final var slot = slotOf(row);
+        return new Operation(
+                new UUID(chunk.operationIds.getLong(slot * 16), chunk.operationIds.getLong(slot * 16 + 8)),
+                accountId,
+                TYPES[chunk.types.get(slot)],
+                Cents.toBigDecimal(chunk.amounts.getLong(slot * 8)),
+                Cents.toBigDecimal(chunk.balances.getLong(slot * 8)),
+                Instant.ofEpochSecond(0, chunk.dateTimes.getLong(slot * 8))
+        );
+    }
+
+    private int compareByDate(int leftRow, int rightRow) {
+        final var left = chunkOf(leftRow);
+        final var leftSlot = slotOf(leftRow);
+        final var right = chunkOf(rightRow);
+        final var rightSlot = slotOf(rightRow);
+        var result = Long.compare(left.dateTimes.getLong(leftSlot * 8), right.dateTimes.getLong(rightSlot * 8));
+        if (result == 0) {
+            result = Long.compare(left.operationIds.getLong(leftSlot * 16), right.operationIds.getLong(rightSlot * 16));
+        }
+        if (result == 0) {
+            result = Long.compare(left.operationIds.getLong(leftSlot * 16 + 8),
+                    right.operationIds.getLong(rightSlot * 16 + 8));
+        }
+        return result;
+    }
+
+    private int compareTo(int row, OperationCursor cursor) {
+        final var chunk = chunkOf(row);
+        final var slot = slotOf(row);
+        return OperationRecords.compareTo(chunk.dateTimes.getLong(slot * 8), chunk.operationIds.getLong(slot * 16),
+                chunk.operationIds.getLong(slot * 16 + 8), cursor);
+    }
+
+    /**
+     * Chunk holding the row; the chunks are only missing once the repository is closed.
+     */
+    private Chunk chunkOf(int row) {
+        final var current = chunks;
+        final var chunkIndex = row / rowsPerChunk;
+        if (chunkIndex >= current.length) {
+            checkOpen();
+        }
+        return current[chunkIndex];
+    }
+
+    private int slotOf(int row) {
+        return row % rowsPerChunk;
+    }
+
+    /**
+     * Rows of one account, mutated under its lock only and published as immutable {@link Rows}.
+     */
+    private final class AccountRows {
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile Rows rows = Rows.EMPTY;
+
+        /**
+         * Inserts the row at its place by date, found by binary search; operations mostly arrive in
+         * date order, so the row is usually appended in place.
+         */
+        void insert(int row) {
+            final var current = rows;
+            final var size = current.size();
+            var sorted = current.sorted();
+            var low = 0;
+            var high = size;
+            while (low < high) {
+                final var middle = (low + high) >>> 1;
+                if (compareByDate(sorted[middle], row) <= 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            if (size == sorted.length || low < size) {
+                sorted = Arrays.copyOf(sorted, size == sorted.length ? Math.max(4, size * 2) : sorted.length);
+                System.arraycopy(sorted, low, sorted, low + 1, size - low);
+            }
+            sorted[low] = row;
+            rows = new Rows(sorted, size + 1, row);
+        }
+    }
+
+    /**
+     * Rows of an account sorted by date, and the last one added, which is what compare-and-add
+     * checks against.
+     */
+    private record Rows(int[] sorted, int size, int last) {
+        static final Rows EMPTY = new Rows(new int[0], 0, -1);
+    }
+
+    private static final class Chunk {
+        private final ByteBuffer operationIds;
+        private final ByteBuffer types;
+        private final ByteBuffer amounts;
+        private final ByteBuffer balances;
+        private final ByteBuffer dateTimes;
+
+        Chunk(int rows) {
+            this.operationIds = column(rows, 16);
+            this.types = column(rows, 1);
+            this.amounts = column(rows, 8);
+            this.balances = column(rows, 8);
+            this.dateTimes = column(rows, 8);
+        }
+
+        private static ByteBuffer column(int rows, int width) {
+            return ByteBuffer.allocateDirect(Math.multiplyExact(rows, width)).order(ByteOrder.nativeOrder());
+        }
+    }
+}
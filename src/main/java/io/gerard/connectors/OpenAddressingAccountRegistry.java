@@ -0,0 +1,251 @@
+package io.gerard.connectors;
+
+import io.gerard.models.AccountStatus;
+import io.gerard.services.AccountRegistry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Registry keeping every account in one linear-probing hash table of fixed size slots: the two
+ * longs of the account id then a status byte, zero marking a free slot. The table is a heap
+ * buffer, or a file mapped in memory that a later registry reopens.
+ * <p>
+ * Lookups read the table under an optimistic stamp and only take the read lock when a write got in
+ * meanwhile, so they neither block nor allocate. The table doubles when it gets half full; a mapped
+ * one is rebuilt beside its file and moved over it.
+ */
+public class OpenAddressingAccountRegistry implements AccountRegistry, Closeable {
+    public static final int DEFAULT_INITIAL_CAPACITY = 1 << 10;
+
+    private static final int MAGIC = 0x424E4B41;
+    private static final int VERSION = 1;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int SIZE_OFFSET = 12;
+    private static final int HEADER_SIZE = 16;
+    private static final int SLOT_SIZE = 8 + 8 + 1;
+    private static final int MAX_CAPACITY = 1 << 26;
+    private static final byte FREE = 0;
+    private static final AccountStatus[] STATUSES = AccountStatus.values();
+
+    private final Path file;
+    private final StampedLock lock = new StampedLock();
+    private Table table;
+    private int size;
+
+    public OpenAddressingAccountRegistry(int initialCapacity) {
+        this.file = null;
+        this.table = allocate(null, capacityFor(initialCapacity));
+    }
+
+    public OpenAddressingAccountRegistry() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    private OpenAddressingAccountRegistry(Path file, Table table) {
+        this.file = file;
+        this.table = table;
+        this.size = table.buffer().getInt(SIZE_OFFSET);
+    }
+
+    /**
+     * Opens the registry stored in the file, creating it when missing. Changes reach the file through
+     * the page cache, so they survive the process but only survive the machine once {@link #force()}
+     * or {@link #close()} returned.
+     */
+    public static OpenAddressingAccountRegistry mapped(Path file) throws IOException {
+        if (Files.notExists(file)) {
+            return new OpenAddressingAccountRegistry(file, allocate(file, DEFAULT_INITIAL_CAPACITY));
+        }
+        final MappedByteBuffer buffer;
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_SIZE
+                || buffer.getInt(0) != MAGIC
+                || buffer.getInt(4) != VERSION
+                || Integer.bitCount(buffer.getInt(CAPACITY_OFFSET)) != 1
+                || buffer.capacity() != HEADER_SIZE + (long) buffer.getInt(CAPACITY_OFFSET) * SLOT_SIZE) {
+            throw new IOException("Not an account registry: " + file);
+        }
+        return new OpenAddressingAccountRegistry(file, new Table(buffer, buffer.getInt(CAPACITY_OFFSET) - 1));
+    }
+
+    @Override
+    public boolean open(UUID accountId) {
+        final var msb = accountId.getMostSignificantBits();
+        final var lsb = accountId.getLeastSignificantBits();
+        final var stamp = lock.writeLock();
+        try {
+            if ((size + 1) * 2L > table.mask() + 1L) {
+                grow();
+            }
+            final var offset = slotOffset(table, msb, lsb);
+            final var buffer = table.buffer();
+            if (buffer.get(offset + 16) != FREE) {
+                return false;
+            }
+            buffer.putLong(offset, msb).putLong(offset + 8, lsb).put(offset + 16, code(AccountStatus.OPEN));
+            size++;
+            buffer.putInt(SIZE_OFFSET, size);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public AccountStatus statusOf(UUID accountId) {
+        final var msb = accountId.getMostSignificantBits();
+        final var lsb = accountId.getLeastSignificantBits();
+        var stamp = lock.tryOptimisticRead();
+        var code = statusCode(table, msb, lsb);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                code = statusCode(table, msb, lsb);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return code == FREE ? null : STATUSES[code - 1];
+    }
+
+    @Override
+    public boolean compareAndSetStatus(UUID accountId, AccountStatus expected, AccountStatus status) {
+        final var stamp = lock.writeLock();
+        try {
+            final var offset = slotOffset(table, accountId.getMostSignificantBits(),
+                    accountId.getLeastSignificantBits());
+            if (table.buffer().get(offset + 16) != code(expected)) {
+                return false;
+            }
+            table.buffer().put(offset + 16, code(status));
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Writes the changes of a mapped registry to its file; does nothing for a heap one.
+     */
+    public void force() {
+        final var stamp = lock.readLock();
+        try {
+            if (table.buffer() instanceof MappedByteBuffer mapped) {
+                mapped.force();
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void close() {
+        force();
+    }
+
+    private void grow() {
+        final var capacity = table.mask() + 1;
+        if (capacity >= MAX_CAPACITY) {
+            throw new IllegalStateException("Account registry is full");
+        }
+        final var temporary = file == null ? null : file.resolveSibling(file.getFileName() + ".tmp");
+        final var grown = allocate(temporary, capacity * 2);
+        final var buffer = table.buffer();
+        for (int slot = 0; slot < capacity; slot++) {
+            final var offset = HEADER_SIZE + slot * SLOT_SIZE;
+            final var code = buffer.get(offset + 16);
+            if (code != FREE) {
+                final var msb = buffer.getLong(offset);
+                final var lsb = buffer.getLong(offset + 8);
+                final var target = slotOffset(grown, msb, lsb);
+                grown.buffer().putLong(target, msb).putLong(target + 8, lsb).put(target + 16, code);
+            }
+        }
+        grown.buffer().putInt(SIZE_OFFSET, size);
+        if (file != null) {
+            try {
+                ((MappedByteBuffer) grown.buffer()).force();
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        table = grown;
+    }
+
+    private static Table allocate(Path file, int capacity) {
+        final var length = HEADER_SIZE + capacity * SLOT_SIZE;
+        final ByteBuffer buffer;
+        if (file == null) {
+            buffer = ByteBuffer.allocate(length);
+        } else {
+            try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        buffer.putInt(0, MAGIC).putInt(4, VERSION).putInt(CAPACITY_OFFSET, capacity).putInt(SIZE_OFFSET, 0);
+        return new Table(buffer, capacity - 1);
+    }
+
+    private static byte statusCode(Table table, long msb, long lsb) {
+        return table.buffer().get(slotOffset(table, msb, lsb) + 16);
+    }
+
+    /**
+     * Offset of the slot holding the id, or of the free slot it would go to. The probe is bounded by
+     * the capacity so that an optimistic read racing a write always ends.
+     */
+    private static int slotOffset(Table table, long msb, long lsb) {
+        final var buffer = table.buffer();
+        final var mask = table.mask();
+        var slot = (int) hash(msb, lsb) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            final var offset = HEADER_SIZE + slot * SLOT_SIZE;
+            if (buffer.get(offset + 16) == FREE
+                    || buffer.getLong(offset) == msb && buffer.getLong(offset + 8) == lsb) {
+                return offset;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private static long hash(long msb, long lsb) {
+        var hash = msb * 31 + lsb;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    private static int capacityFor(int initialCapacity) {
+        if (initialCapacity <= 0 || initialCapacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("initialCapacity must be between 1 and " + MAX_CAPACITY);
+        }
+        return Math.max(2, Integer.highestOneBit(initialCapacity - 1) << 1);
+    }
+
+    private static byte code(AccountStatus status) {
+        return (byte) (status.ordinal() + 1);
+    }
+
+    private record Table(ByteBuffer buffer, int mask) {
+    }
+}
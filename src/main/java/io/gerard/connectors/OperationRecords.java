@@ -0,0 +1,124 @@
+package io.gerard.connectors;
+
+import io.gerard.models.Cents;
+import io.gerard.models.Operation;
+import io.gerard.models.OperationCursor;
+import io.gerard.models.OperationTypes;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Fixed-width binary layout of an {@link Operation}: operation id and account id as two longs each,
+ * amount and new balance in cents, timestamp in epoch nanos, type ordinal and a CRC32 of the
+ * preceding 60 bytes, so that a torn or never-written record is detected on recovery. The high half
+ * of the type field holds flags: {@code CONTINUED} marks a record whose group goes on in the next
+ * record, so that a group cut by a crash can be dropped as a whole.
+ */
+final class OperationRecords {
+    static final int SIZE = 64;
+
+    private static final int OPERATION_ID = 0;
+    private static final int ACCOUNT_ID = 16;
+    private static final int AMOUNT = 32;
+    private static final int NEW_BALANCE = 40;
+    private static final int DATE_TIME = 48;
+    private static final int TYPE = 56;
+    private static final int CHECKSUM = 60;
+    private static final int TYPE_MASK = 0xFFFF;
+    private static final int CONTINUED = 1 << 16;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final OperationTypes[] TYPES = OperationTypes.values();
+
+    private OperationRecords() {
+    }
+
+    static void encode(Operation operation, boolean continued, ByteBuffer record, CRC32 checksum) {
+        record.putLong(OPERATION_ID, operation.operationId().getMostSignificantBits());
+        record.putLong(OPERATION_ID + 8, operation.operationId().getLeastSignificantBits());
+        record.putLong(ACCOUNT_ID, operation.accountId().getMostSignificantBits());
+        record.putLong(ACCOUNT_ID + 8, operation.accountId().getLeastSignificantBits());
+        record.putLong(AMOUNT, Cents.ofExact(operation.amount()));
+        record.putLong(NEW_BALANCE, Cents.ofExact(operation.newBalance()));
+        record.putLong(DATE_TIME, toEpochNanos(operation.dateTime()));
+        record.putInt(TYPE, operation.operationType().ordinal() | (continued ? CONTINUED : 0));
+        checksum.reset();
+        checksum.update(record.array(), record.arrayOffset(), CHECKSUM);
+        record.putInt(CHECKSUM, (int) checksum.getValue());
+    }
+
+    static Operation decode(ByteBuffer buffer, int offset) {
+        return new Operation(
+                new UUID(buffer.getLong(offset + OPERATION_ID), buffer.getLong(offset + OPERATION_ID + 8)),
+                accountId(buffer, offset),
+                TYPES[buffer.getInt(offset + TYPE) & TYPE_MASK],
+                Cents.toBigDecimal(buffer.getLong(offset + AMOUNT)),
+                Cents.toBigDecimal(buffer.getLong(offset + NEW_BALANCE)),
+                Instant.ofEpochSecond(0, epochNanos(buffer, offset))
+        );
+    }
+
+    static boolean isValid(ByteBuffer buffer, int offset, CRC32 checksum) {
+        final var view = buffer.duplicate().limit(offset + CHECKSUM).position(offset);
+        checksum.reset();
+        checksum.update(view);
+        return buffer.getInt(offset + CHECKSUM) == (int) checksum.getValue();
+    }
+
+    static boolean isContinued(ByteBuffer buffer, int offset) {
+        return (buffer.getInt(offset + TYPE) & CONTINUED) != 0;
+    }
+
+    static UUID accountId(ByteBuffer buffer, int offset) {
+        return new UUID(buffer.getLong(offset + ACCOUNT_ID), buffer.getLong(offset + ACCOUNT_ID + 8));
+    }
+
+    static long newBalance(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset + NEW_BALANCE);
+    }
+
+    static long epochNanos(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset + DATE_TIME);
+    }
+
+    static int compareByDate(ByteBuffer left, int leftOffset, ByteBuffer right, int rightOffset) {
+        var result = Long.compare(epochNanos(left, leftOffset), epochNanos(right, rightOffset));
+        if (result == 0) {
+            result = Long.compare(left.getLong(leftOffset + OPERATION_ID), right.getLong(rightOffset + OPERATION_ID));
+        }
+        if (result == 0) {
+            result = Long.compare(left.getLong(leftOffset + OPERATION_ID + 8),
+                    right.getLong(rightOffset + OPERATION_ID + 8));
+        }
+        return result;
+    }
+
+    static int compareTo(ByteBuffer buffer, int offset, OperationCursor cursor) {
+        return compareTo(epochNanos(buffer, offset), buffer.getLong(offset + OPERATION_ID),
+                buffer.getLong(offset + OPERATION_ID + 8), cursor);
+    }
+
+    /**
+     * Compares an operation given by its epoch nanos and id bits to a cursor, whose instant may lie
+     * outside the range of epoch nanos.
+     */
+    static int compareTo(long epochNanos, long operationIdMsb, long operationIdLsb, OperationCursor cursor) {
+        var result = Long.compare(Math.floorDiv(epochNanos, NANOS_PER_SECOND), cursor.dateTime().getEpochSecond());
+        if (result == 0) {
+            result = Long.compare(Math.floorMod(epochNanos, NANOS_PER_SECOND), cursor.dateTime().getNano());
+        }
+        if (result == 0) {
+            result = Long.compare(operationIdMsb, cursor.operationId().getMostSignificantBits());
+        }
+        if (result == 0) {
+            result = Long.compare(operationIdLsb, cursor.operationId().getLeastSignificantBits());
+        }
+        return result;
+    }
+
+    static long toEpochNanos(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), NANOS_PER_SECOND), instant.getNano());
+    }
+}
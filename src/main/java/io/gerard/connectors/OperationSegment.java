@@ -0,0 +1,403 @@
+package io.gerard.connectors;
+
+import io.gerard.models.Operation;
+import io.gerard.models.OperationCursor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Immutable file of operations sorted by account, date and id, stored as {@link OperationRecords} in
+ * deflated blocks of at most {@link #BLOCK_RECORDS}. The footer is the sparse index: for every block
+ * its position, the CRC32 of its compressed bytes and its first operation, then for every account its
+ * first and last block. It ends with its own CRC32, its offset and the magic number.
+ * <p>
+ * A read inflates only the blocks of the account that may hold operations of the requested range,
+ * and fails on a block whose checksum does not match.
+ * <p>
+ * Readers that may race with {@link #close()} {@link #acquire()} the segment first: its channel is
+ * only closed once the last of them released it.
+ */
+final class OperationSegment implements Closeable {
+    static final int BLOCK_RECORDS = 256;
+
+    private static final int MAGIC = 0x424E4B54;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4;
+    private static final int BLOCK_ENTRY_SIZE = 8 + 4 + 4 + 4 + 16 + 16 + 8;
+    private static final int ACCOUNT_ENTRY_SIZE = 16 + 4 + 4;
+    private static final int TRAILER_SIZE = 8 + 4 + 4;
+    private static final Comparator<Operation> BY_DATE = Comparator.comparing(Operation::dateTime)
+            .thenComparing(Operation::operationId);
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long[] offsets;
+    private final int[] lengths;
+    private final int[] counts;
+    private final int[] checksums;
+    private final long[] firstAccountMsbs;
+    private final long[] firstAccountLsbs;
+    private final long[] firstOperationMsbs;
+    private final long[] firstOperationLsbs;
+    private final long[] firstEpochNanos;
+    private final Map<UUID, Blocks> accounts;
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private OperationSegment(Path file, FileChannel channel, ByteBuffer footer) {
+        this.file = file;
+        this.channel = channel;
+        final var blockCount = footer.getInt();
+        this.offsets = new long[blockCount];
+        this.lengths = new int[blockCount];
+        this.counts = new int[blockCount];
+        this.checksums = new int[blockCount];
+        this.firstAccountMsbs = new long[blockCount];
+        this.firstAccountLsbs = new long[blockCount];
+        this.firstOperationMsbs = new long[blockCount];
+        this.firstOperationLsbs = new long[blockCount];
+        this.firstEpochNanos = new long[blockCount];
+        for (int block = 0; block < blockCount; block++) {
+            offsets[block] = footer.getLong();
+            lengths[block] = footer.getInt();
+            counts[block] = footer.getInt();
+            checksums[block] = footer.getInt();
+            firstAccountMsbs[block] = footer.getLong();
+            firstAccountLsbs[block] = footer.getLong();
+            firstOperationMsbs[block] = footer.getLong();
+            firstOperationLsbs[block] = footer.getLong();
+            firstEpochNanos[block] = footer.getLong();
+        }
+        final var accountCount = footer.getInt();
+        this.accounts = HashMap.newHashMap(accountCount);
+        for (int i = 0; i < accountCount; i++) {
+            accounts.put(new UUID(footer.getLong(), footer.getLong()), new Blocks(footer.getInt(), footer.getInt()));
+        }
+    }
+
+    static OperationSegment write(Path file, List<Operation> operations) throws IOException {
+        return write(file, operations.iterator());
+    }
+
+    /**
+     * Writes the operations of the segments, which must not share any, into one file, without holding
+     * more than the operations of one account in memory.
+     */
+    static OperationSegment merge(Path file, List<OperationSegment> segments) throws IOException {
+        final var accountIds = new TreeSet<UUID>();
+        segments.forEach(segment -> accountIds.addAll(segment.accountIds()));
+        return write(file, accountIds.stream().flatMap(accountId -> {
+            final var operations = new ArrayList<Operation>();
+            segments.forEach(segment -> operations.addAll(segment.read(accountId, null, null)));
+            operations.sort(BY_DATE);
+            return operations.stream();
+        }).iterator());
+    }
+
+    /**
+     * Writes the operations, sorted by account then date, beside the file and moves the result over it.
+     */
+    static OperationSegment write(Path file, Iterator<Operation> operations) throws IOException {
+        final var temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        var blockEntries = ByteBuffer.allocate(16 * BLOCK_ENTRY_SIZE);
+        final var accountBlocks = new ArrayList<Map.Entry<UUID, Blocks>>();
+        final var raw = ByteBuffer.allocate(BLOCK_RECORDS * OperationRecords.SIZE);
+        final var checksum = new CRC32();
+        final var deflater = new Deflater();
+        try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip());
+            var position = (long) HEADER_SIZE;
+            for (int block = 0; operations.hasNext(); block++) {
+                Operation first = null;
+                var count = 0;
+                for (; count < BLOCK_RECORDS && operations.hasNext(); count++) {
+                    final var operation = operations.next();
+                    if (first == null) {
+                        first = operation;
+                    }
+                    OperationRecords.encode(operation, false,
+                            raw.slice(count * OperationRecords.SIZE, OperationRecords.SIZE), checksum);
+                    final var last = accountBlocks.isEmpty() ? null : accountBlocks.get(accountBlocks.size() - 1);
+                    if (last == null || !last.getKey().equals(operation.accountId())) {
+                        accountBlocks.add(Map.entry(operation.accountId(), new Blocks(block, block)));
+                    } else if (last.getValue().last() != block) {
+                        accountBlocks.set(accountBlocks.size() - 1,
+                                Map.entry(last.getKey(), new Blocks(last.getValue().first(), block)));
+                    }
+                }
+                final var compressed = deflate(deflater, raw.array(), count * OperationRecords.SIZE);
+                checksum.reset();
+                checksum.update(compressed);
+                if (blockEntries.remaining() < BLOCK_ENTRY_SIZE) {
+                    blockEntries = ByteBuffer.allocate(blockEntries.capacity() * 2).put(blockEntries.flip());
+                }
+                blockEntries.putLong(position).putInt(compressed.length).putInt(count)
+                        .putInt((int) checksum.getValue())
+                        .putLong(first.accountId().getMostSignificantBits())
+                        .putLong(first.accountId().getLeastSignificantBits())
+                        .putLong(first.operationId().getMostSignificantBits())
+                        .putLong(first.operationId().getLeastSignificantBits())
+                        .putLong(OperationRecords.toEpochNanos(first.dateTime()));
+                writeFully(channel, ByteBuffer.wrap(compressed));
+                position += compressed.length;
+            }
+            final var footer = ByteBuffer.allocate(
+                    4 + blockEntries.position() + 4 + accountBlocks.size() * ACCOUNT_ENTRY_SIZE + TRAILER_SIZE);
+            footer.putInt(blockEntries.position() / BLOCK_ENTRY_SIZE).put(blockEntries.flip())
+                    .putInt(accountBlocks.size());
+            for (final var account : accountBlocks) {
+                footer.putLong(account.getKey().getMostSignificantBits())
+                        .putLong(account.getKey().getLeastSignificantBits())
+                        .putInt(account.getValue().first())
+                        .putInt(account.getValue().last());
+            }
+            checksum.reset();
+            checksum.update(footer.array(), 0, footer.position());
+            footer.putLong(position).putInt((int) checksum.getValue()).putInt(MAGIC);
+            writeFully(channel, footer.flip());
+            channel.force(true);
+        } finally {
+            deflater.end();
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return open(file);
+    }
+
+    static OperationSegment open(Path file) throws IOException {
+        final var channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            final var size = channel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE) {
+                throw new IOException("Corrupt segment: " + file);
+            }
+            final var trailer = readFully(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+            final var footerOffset = trailer.getLong();
+            final var footerChecksum = trailer.getInt();
+            if (trailer.getInt() != MAGIC || footerOffset < HEADER_SIZE || footerOffset > size - TRAILER_SIZE) {
+                throw new IOException("Corrupt segment: " + file);
+            }
+            final var footer = readFully(channel, footerOffset, (int) (size - TRAILER_SIZE - footerOffset));
+            final var checksum = new CRC32();
+            checksum.update(footer.array());
+            if ((int) checksum.getValue() != footerChecksum) {
+                throw new IOException("Corrupt segment: " + file);
+            }
+            return new OperationSegment(file, channel, footer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    Path file() {
+        return file;
+    }
+
+    Set<UUID> accountIds() {
+        return accounts.keySet();
+    }
+
+    long operationCount() {
+        return Arrays.stream(counts).asLongStream().sum();
+    }
+
+    /**
+     * Takes a reference on the segment, or returns {@code false} when it is already closed.
+     */
+    boolean acquire() {
+        for (var count = references.get(); count > 0; count = references.get()) {
+            if (references.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void release() {
+        try {
+            dereference();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Operations of the account from {@code from} inclusive to {@code to} exclusive, oldest first;
+     * a {@code null} bound does not limit.
+     */
+    List<Operation> read(UUID accountId, OperationCursor from, OperationCursor to) {
+        final var blocks = accounts.get(accountId);
+        if (blocks == null) {
+            return List.of();
+        }
+        final var operations = new ArrayList<Operation>();
+        for (int block = blocks.first(); block <= blocks.last(); block++) {
+            if (from != null && block < blocks.last() && startsBefore(block + 1, accountId, from)) {
+                continue;
+            }
+            if (to != null && block > blocks.first() && !startsBefore(block, accountId, to)) {
+                break;
+            }
+            final var records = inflate(block);
+            for (int offset = 0; offset < records.capacity(); offset += OperationRecords.SIZE) {
+                if (OperationRecords.accountId(records, offset).equals(accountId)
+                        && (from == null || OperationRecords.compareTo(records, offset, from) >= 0)
+                        && (to == null || OperationRecords.compareTo(records, offset, to) < 0)) {
+                    operations.add(OperationRecords.decode(records, offset));
+                }
+            }
+        }
+        return operations;
+    }
+
+    /**
+     * At most {@code limit} operations of the account sorting before {@code before}, newest first;
+     * blocks are inflated from the newest one and only until the page is full.
+     */
+    List<Operation> readBefore(UUID accountId, OperationCursor before, int limit) {
+        final var blocks = accounts.get(accountId);
+        if (blocks == null || limit == 0) {
+            return List.of();
+        }
+        final var operations = new ArrayList<Operation>(Math.min(limit, BLOCK_RECORDS));
+        for (int block = blocks.last(); block >= blocks.first() && operations.size() < limit; block--) {
+            if (before != null && block > blocks.first() && !startsBefore(block, accountId, before)) {
+                continue;
+            }
+            final var records = inflate(block);
+            for (int offset = records.capacity() - OperationRecords.SIZE;
+                 offset >= 0 && operations.size() < limit; offset -= OperationRecords.SIZE) {
+                if (OperationRecords.accountId(records, offset).equals(accountId)
+                        && (before == null || OperationRecords.compareTo(records, offset, before) < 0)) {
+                    operations.add(OperationRecords.decode(records, offset));
+                }
+            }
+        }
+        return operations;
+    }
+
+    /**
+     * The most recent operation of the account, or {@code null} when the segment has none.
+     */
+    Operation last(UUID accountId) {
+        final var blocks = accounts.get(accountId);
+        if (blocks == null) {
+            return null;
+        }
+        final var records = inflate(blocks.last());
+        for (int offset = records.capacity() - OperationRecords.SIZE; offset >= 0; offset -= OperationRecords.SIZE) {
+            if (OperationRecords.accountId(records, offset).equals(accountId)) {
+                return OperationRecords.decode(records, offset);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Drops the reference taken when the segment was opened; the channel is closed at once unless
+     * readers still hold the segment.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed.compareAndSet(false, true)) {
+            dereference();
+        }
+    }
+
+    private void dereference() throws IOException {
+        if (references.decrementAndGet() == 0) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Whether the first operation of the block belongs to the account and sorts before the cursor.
+     */
+    private boolean startsBefore(int block, UUID accountId, OperationCursor cursor) {
+        return firstAccountMsbs[block] == accountId.getMostSignificantBits()
+                && firstAccountLsbs[block] == accountId.getLeastSignificantBits()
+                && OperationRecords.compareTo(firstEpochNanos[block], firstOperationMsbs[block],
+                firstOperationLsbs[block], cursor) < 0;
+    }
+
+    private ByteBuffer inflate(int block) {
+        final var inflater = new Inflater();
+        try {
+            final var compressed = readFully(channel, offsets[block], lengths[block]);
+            final var checksum = new CRC32();
+            checksum.update(compressed.array());
+            if ((int) checksum.getValue() != checksums[block]) {
+                throw new IOException("Corrupt block " + block + " in segment " + file);
+            }
+            final var records = new byte[counts[block] * OperationRecords.SIZE];
+            inflater.setInput(compressed.array());
+            if (inflater.inflate(records) != records.length || !inflater.finished()) {
+                throw new IOException("Corrupt block " + block + " in segment " + file);
+            }
+            return ByteBuffer.wrap(records);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new IOException("Corrupt block " + block + " in segment " + file, e));
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] deflate(Deflater deflater, byte[] input, int length) {
+        deflater.reset();
+        deflater.setInput(input, 0, length);
+        deflater.finish();
+        final var output = new ByteArrayOutputStream(length / 2);
+        final var chunk = new byte[8192];
+        while (!deflater.finished()) {
+            output.write(chunk, 0, deflater.deflate(chunk));
+        }
+        return output.toByteArray();
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        final var buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of segment");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private record Blocks(int first, int last) {
+    }
+}
@@ -0,0 +1,28 @@
+package io.gerard.connectors;
+
+import io.gerard.models.Operation;
+import io.gerard.services.AccountStatementExporter;
+import io.gerard.services.AccountStatementFormatter;
+import io.gerard.services.StringPrinter;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.UUID;
+
+/**
+ * Exports statements by formatting them to a {@link StringPrinter}, as they are printed one by one.
+ */
+public class PrintingStatementExporter implements AccountStatementExporter {
+    private final AccountStatementFormatter formatter;
+    private final StringPrinter printer;
+
+    public PrintingStatementExporter(AccountStatementFormatter formatter, StringPrinter printer) {
+        this.formatter = formatter;
+        this.printer = printer;
+    }
+
+    @Override
+    public void export(UUID accountId, BigDecimal balance, Iterator<Operation> operations) {
+        printer.print(output -> formatter.format(accountId, balance, operations, output));
+    }
+}
@@ -0,0 +1,178 @@
+package io.gerard.connectors;
+
+import io.gerard.models.Operation;
+import io.gerard.models.OperationCursor;
+import io.gerard.models.Rollup;
+import io.gerard.services.OperationFeed;
+import io.gerard.services.OperationRepository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Repository publishing every operation it records to a feed. Accounts are spread over lock stripes
+ * held across the write and its publication, so the operations of an account reach the feed in the
+ * order they were recorded; writes spanning two accounts lock their stripes in index order.
+ * <p>
+ * An operation is published only once the delegate recorded it, so publishing never fails the write:
+ * operations the feed refuses, because it is closed for instance, are dropped and counted in
+ * {@link #unpublishedOperations()}.
+ */
+public class PublishingOperationRepository implements OperationRepository {
+    public static final int DEFAULT_STRIPES = 64;
+
+    private final OperationRepository delegate;
+    private final OperationFeed feed;
+    private final ReentrantLock[] stripes;
+    private final LongAdder unpublished = new LongAdder();
+
+    public PublishingOperationRepository(OperationRepository delegate, OperationFeed feed, int stripes) {
+        if (stripes <= 0 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("stripes must be a positive power of two");
+        }
+        this.delegate = delegate;
+        this.feed = feed;
+        this.stripes = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public PublishingOperationRepository(OperationRepository delegate, OperationFeed feed) {
+        this(delegate, feed, DEFAULT_STRIPES);
+    }
+
+    @Override
+    public Optional<Operation> getLastOperation(UUID accountId) {
+        return delegate.getLastOperation(accountId);
+    }
+
+    @Override
+    public Operation add(Operation operation) {
+        final var stripe = stripeFor(operation.accountId());
+        stripe.lock();
+        try {
+            final var added = delegate.add(operation);
+            publish(List.of(added));
+            return added;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public boolean compareAndAdd(Operation expectedLastOperation, Operation operation) {
+        final var stripe = stripeFor(operation.accountId());
+        stripe.lock();
+        try {
+            if (!delegate.compareAndAdd(expectedLastOperation, operation)) {
+                return false;
+            }
+            publish(List.of(operation));
+            return true;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public boolean compareAndAddAll(Operation expectedLastOperation, List<Operation> operations) {
+        final var stripe = stripeFor(operations.get(0).accountId());
+        stripe.lock();
+        try {
+            if (!delegate.compareAndAddAll(expectedLastOperation, operations)) {
+                return false;
+            }
+            publish(operations);
+            return true;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public boolean compareAndAddPair(Operation expectedFirstLastOperation, Operation first,
+                                     Operation expectedSecondLastOperation, Operation second) {
+        final var firstIndex = stripeIndexOf(first.accountId());
+        final var secondIndex = stripeIndexOf(second.accountId());
+        final var lower = stripes[Math.min(firstIndex, secondIndex)];
+        lower.lock();
+        try {
+            final var upper = stripes[Math.max(firstIndex, secondIndex)];
+            upper.lock();
+            try {
+                if (!delegate.compareAndAddPair(expectedFirstLastOperation, first,
+                        expectedSecondLastOperation, second)) {
+                    return false;
+                }
+                publish(List.of(first, second));
+                return true;
+            } finally {
+                upper.unlock();
+            }
+        } finally {
+            lower.unlock();
+        }
+    }
+
+    @Override
+    public List<Operation> getAllOrderByDateDesc(UUID accountId) {
+        return delegate.getAllOrderByDateDesc(accountId);
+    }
+
+    @Override
+    public Stream<Operation> streamAllOrderByDateDesc(UUID accountId) {
+        return delegate.streamAllOrderByDateDesc(accountId);
+    }
+
+    @Override
+    public List<Operation> getBetweenOrderByDateDesc(UUID accountId, Instant from, Instant to) {
+        return delegate.getBetweenOrderByDateDesc(accountId, from, to);
+    }
+
+    @Override
+    public List<Operation> getPageOrderByDateDesc(UUID accountId, OperationCursor before, int limit) {
+        return delegate.getPageOrderByDateDesc(accountId, before, limit);
+    }
+
+    @Override
+    public Stream<UUID> streamAccountIds() {
+        return delegate.streamAccountIds();
+    }
+
+    @Override
+    public List<Rollup> getDailyRollups(UUID accountId, LocalDate from, LocalDate to, ZoneId zone) {
+        return delegate.getDailyRollups(accountId, from, to, zone);
+    }
+
+    /**
+     * Operations recorded by the delegate but dropped by the feed.
+     */
+    public long unpublishedOperations() {
+        return unpublished.sum();
+    }
+
+    private void publish(List<Operation> operations) {
+        try {
+            feed.publish(operations);
+        } catch (RuntimeException e) {
+            unpublished.add(operations.size());
+        }
+    }
+
+    private ReentrantLock stripeFor(UUID accountId) {
+        return stripes[stripeIndexOf(accountId)];
+    }
+
+    private int stripeIndexOf(UUID accountId) {
+        final var hash = accountId.hashCode();
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+}
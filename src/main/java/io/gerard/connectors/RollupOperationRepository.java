@@ -0,0 +1,223 @@
+package io.gerard.connectors;
+
+import io.gerard.models.Operation;
+import io.gerard.models.OperationCursor;
+import io.gerard.models.Rollup;
+import io.gerard.services.OperationRepository;
+import io.gerard.services.RollupAccumulator;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Repository keeping daily rollups of its accounts up to date as operations are recorded, so that
+ * {@link #getDailyRollups} costs one entry per day instead of one per operation. The rollups of an
+ * account are built from its history the first time it is written or queried, then kept for good;
+ * the history is read before taking the stripe, so that other accounts of the stripe do not wait for it.
+ * <p>
+ * Accounts are spread over lock stripes held across a write and its rollup update; writes spanning
+ * two accounts lock their stripes in index order. Rollups are kept for the days of one zone; queries
+ * for another zone are answered from the history.
+ */
+public class RollupOperationRepository implements OperationRepository {
+    public static final int DEFAULT_STRIPES = 64;
+
+    private final OperationRepository delegate;
+    private final ZoneId zone;
+    private final ReentrantLock[] stripes;
+    private final Map<UUID, TreeMap<LocalDate, RollupAccumulator>> rollups = new ConcurrentHashMap<>();
+
+    public RollupOperationRepository(OperationRepository delegate, ZoneId zone, int stripes) {
+        if (stripes <= 0 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("stripes must be a positive power of two");
+        }
+        this.delegate = delegate;
+        this.zone = zone;
+        this.stripes = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public RollupOperationRepository(OperationRepository delegate, ZoneId zone) {
+        this(delegate, zone, DEFAULT_STRIPES);
+    }
+
+    @Override
+    public Optional<Operation> getLastOperation(UUID accountId) {
+        return delegate.getLastOperation(accountId);
+    }
+
+    @Override
+    public Operation add(Operation operation) {
+        final var history = historyIfUnseen(operation.accountId());
+        final var stripe = stripeFor(operation.accountId());
+        stripe.lock();
+        try {
+            final var days = daysOf(operation.accountId(), history);
+            final var added = delegate.add(operation);
+            record(days, added);
+            return added;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public boolean compareAndAdd(Operation expectedLastOperation, Operation operation) {
+        final var history = historyIfUnseen(operation.accountId());
+        final var stripe = stripeFor(operation.accountId());
+        stripe.lock();
+        try {
+            final var days = daysOf(operation.accountId(), history);
+            if (!delegate.compareAndAdd(expectedLastOperation, operation)) {
+                return false;
+            }
+            record(days, operation);
+            return true;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public boolean compareAndAddAll(Operation expectedLastOperation, List<Operation> operations) {
+        final var accountId = operations.get(0).accountId();
+        final var history = historyIfUnseen(accountId);
+        final var stripe = stripeFor(accountId);
+        stripe.lock();
+        try {
+            final var days = daysOf(accountId, history);
+            if (!delegate.compareAndAddAll(expectedLastOperation, operations)) {
+                return false;
+            }
+            operations.forEach(operation -> record(days, operation));
+            return true;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public boolean compareAndAddPair(Operation expectedFirstLastOperation, Operation first,
+                                     Operation expectedSecondLastOperation, Operation second) {
+        final var firstHistory = historyIfUnseen(first.accountId());
+        final var secondHistory = historyIfUnseen(second.accountId());
+        final var firstIndex = stripeIndexOf(first.accountId());
+        final var secondIndex = stripeIndexOf(second.accountId());
+        final var lower = stripes[Math.min(firstIndex, secondIndex)];
+        lower.lock();
+        try {
+            final var upper = stripes[Math.max(firstIndex, secondIndex)];
+            upper.lock();
+            try {
+                final var firstDays = daysOf(first.accountId(), firstHistory);
+                final var secondDays = daysOf(second.accountId(), secondHistory);
+                if (!delegate.compareAndAddPair(expectedFirstLastOperation, first,
+                        expectedSecondLastOperation, second)) {
+                    return false;
+                }
+                record(firstDays, first);
+                record(secondDays, second);
+                return true;
+            } finally {
+                upper.unlock();
+            }
+        } finally {
+            lower.unlock();
+        }
+    }
+
+    @Override
+    public List<Operation> getAllOrderByDateDesc(UUID accountId) {
+        return delegate.getAllOrderByDateDesc(accountId);
+    }
+
+    @Override
+    public Stream<Operation> streamAllOrderByDateDesc(UUID accountId) {
+        return delegate.streamAllOrderByDateDesc(accountId);
+    }
+
+    @Override
+    public List<Operation> getBetweenOrderByDateDesc(UUID accountId, Instant from, Instant to) {
+        return delegate.getBetweenOrderByDateDesc(accountId, from, to);
+    }
+
+    @Override
+    public List<Operation> getPageOrderByDateDesc(UUID accountId, OperationCursor before, int limit) {
+        return delegate.getPageOrderByDateDesc(accountId, before, limit);
+    }
+
+    @Override
+    public Stream<UUID> streamAccountIds() {
+        return delegate.streamAccountIds();
+    }
+
+    @Override
+    public List<Rollup> getDailyRollups(UUID accountId, LocalDate from, LocalDate to, ZoneId zone) {
+        if (!this.zone.equals(zone)) {
+            return delegate.getDailyRollups(accountId, from, to, zone);
+        }
+        final var history = historyIfUnseen(accountId);
+        if (history != null && history.isEmpty()) {
+            return List.of();
+        }
+        final var stripe = stripeFor(accountId);
+        stripe.lock();
+        try {
+            return daysOf(accountId, history).subMap(from, to).values().stream()
+                    .map(RollupAccumulator::toRollup)
+                    .toList();
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Returns the history of the account if it has no rollups yet, {@code null} otherwise. Called
+     * without holding the stripe of the account.
+     */
+    private List<Operation> historyIfUnseen(UUID accountId) {
+        return rollups.containsKey(accountId) ? null : delegate.getAllOrderByDateDesc(accountId);
+    }
+
+    /**
+     * Returns the rollups of the account, building them from the history read by
+     * {@link #historyIfUnseen} when it has none yet. Must be called holding the stripe of the account.
+     * That history is complete: a write recorded after it was read would have built the rollups first.
+     */
+    private TreeMap<LocalDate, RollupAccumulator> daysOf(UUID accountId, List<Operation> history) {
+        var days = rollups.get(accountId);
+        if (days == null) {
+            days = new TreeMap<>();
+            for (int i = history.size() - 1; i >= 0; i--) {
+                record(days, history.get(i));
+            }
+            rollups.put(accountId, days);
+        }
+        return days;
+    }
+
+    private void record(TreeMap<LocalDate, RollupAccumulator> days, Operation operation) {
+        days.computeIfAbsent(LocalDate.ofInstant(operation.dateTime(), zone), RollupAccumulator::new)
+                .add(operation);
+    }
+
+    private ReentrantLock stripeFor(UUID accountId) {
+        return stripes[stripeIndexOf(accountId)];
+    }
+
+    private int stripeIndexOf(UUID accountId) {
+        final var hash = accountId.hashCode();
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+}
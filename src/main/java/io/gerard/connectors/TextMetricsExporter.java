@@ -0,0 +1,35 @@
+package io.gerard.connectors;
+
+import io.gerard.models.MetricSnapshot;
+import io.gerard.services.MetricsExporter;
+import io.gerard.services.StringPrinter;
+
+import java.util.List;
+
+public class TextMetricsExporter implements MetricsExporter {
+    private final StringPrinter stringPrinter;
+
+    public TextMetricsExporter(StringPrinter stringPrinter) {
+        this.stringPrinter = stringPrinter;
+    }
+
+    @Override
+    public void export(List<MetricSnapshot> snapshots) {
+        stringPrinter.print(output -> {
+            for (int i = 0; i < snapshots.size(); i++) {
+                final var snapshot = snapshots.get(i);
+                if (i > 0) {
+                    output.append('\n');
+                }
+                output.append(snapshot.name())
+                        .append(" calls=").append(Long.toString(snapshot.calls()))
+                        .append(" p50=").append(Long.toString(snapshot.p50Nanos())).append("ns")
+                        .append(" p90=").append(Long.toString(snapshot.p90Nanos())).append("ns")
+                        .append(" p99=").append(Long.toString(snapshot.p99Nanos())).append("ns")
+                        .append(" p99.9=").append(Long.toString(snapshot.p999Nanos())).append("ns")
+                        .append(" max=").append(Long.toString(snapshot.maxNanos())).append("ns")
+                        .append(" errors=").append(snapshot.errors().toString());
+            }
+        });
+    }
+}
@@ -0,0 +1,630 @@
+package io.gerard.connectors;
+
+import io.gerard.models.Operation;
+import io.gerard.models.OperationCursor;
+import io.gerard.services.OperationRepository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Repository keeping recent operations in memory and archiving older ones into immutable
+ * {@link OperationSegment} files of the directory, so that memory stays proportional to the recent
+ * traffic. {@link #compact(Instant)} moves, for every account, the operations older than a date out of
+ * the hot tier into one new segment, always leaving the last operation of the account in memory. It
+ * then merges the newest segment into the one before as long as that one holds no more operations, so
+ * that a directory holds a number of segments logarithmic in its history. A merged segment is written
+ * under the range of segment numbers it replaces, and reopening deletes the segments a merge
+ * interrupted by a crash left behind.
+ * <p>
+ * An account's tiers are published as one immutable state: a reader sees an operation either in a
+ * segment or in the hot tier, never both nor neither. Reads go through the segments of the account,
+ * oldest first, then its hot operations, which assumes operations are recorded before their date
+ * gets archived.
+ * <p>
+ * The hot tier is only written to disk by {@link #close()}, as one more segment loaded back on
+ * reopening. An open repository marks its directory, so that reopening one that was not closed, whose
+ * last operations are lost, fails instead of serving stale balances. Once closed, writes and
+ * compactions are refused and the scheduled compactions are cancelled.
+ */
+public class TieredOperationRepository implements OperationRepository, Closeable {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String HOT_TIER_FILE = "hot.seg";
+    private static final String OPEN_MARKER_FILE = "open";
+    private static final System.Logger LOGGER = System.getLogger(TieredOperationRepository.class.getName());
+    private static final Comparator<Operation> BY_DATE = Comparator.comparing(Operation::dateTime)
+            .thenComparing(Operation::operationId);
+
+    private final Path directory;
+    private final ConcurrentHashMap<UUID, AccountTiers> accounts = new ConcurrentHashMap<>();
+    private final List<OperationSegment> segments = new CopyOnWriteArrayList<>();
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    private final List<ScheduledFuture<?>> schedules = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
+    private long nextSegment;
+
+    /**
+     * @throws IOException if the repository last opened on the directory was not closed
+     */
+    public TieredOperationRepository(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        try {
+            Files.createFile(directory.resolve(OPEN_MARKER_FILE));
+        } catch (FileAlreadyExistsException e) {
+            throw new IOException("Repository in " + directory + " was not closed, its hot operations are lost", e);
+        }
+        try {
+            for (final var file : segmentFiles()) {
+                final var segment = OperationSegment.open(file);
+                segments.add(segment);
+                for (final var accountId : segment.accountIds()) {
+                    final var tiers = tiersOf(accountId);
+                    final var state = tiers.state;
+                    tiers.state = state.withSegment(segment, null);
+                }
+                nextSegment = 1 + numbersOf(file)[1];
+            }
+            final var hotTier = directory.resolve(HOT_TIER_FILE);
+            if (Files.exists(hotTier)) {
+                try (var segment = OperationSegment.open(hotTier)) {
+                    for (final var accountId : segment.accountIds()) {
+                        final var tiers = tiersOf(accountId);
+                        segment.read(accountId, null, null).forEach(tiers::append);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<Operation> getLastOperation(UUID accountId) {
+        final var tiers = accounts.get(accountId);
+        return tiers == null ? Optional.empty() : Optional.ofNullable(tiers.last());
+    }
+
+    @Override
+    public Operation add(Operation operation) {
+        tiersOf(operation.accountId()).append(operation);
+        return operation;
+    }
+
+    @Override
+    public boolean compareAndAdd(Operation expectedLastOperation, Operation operation) {
+        final var tiers = expectedLastOperation == null
+                ? tiersOf(operation.accountId())
+                : accounts.get(operation.accountId());
+        return tiers != null && tiers.appendAllIfLastIs(expectedLastOperation, List.of(operation));
+    }
+
+    @Override
+    public boolean compareAndAddAll(Operation expectedLastOperation, List<Operation> operations) {
+        if (operations.isEmpty()) {
+            throw new IllegalArgumentException("operations must not be empty");
+        }
+        final var accountId = operations.get(0).accountId();
+        final var tiers = expectedLastOperation == null ? tiersOf(accountId) : accounts.get(accountId);
+        return tiers != null && tiers.appendAllIfLastIs(expectedLastOperation, operations);
+    }
+
+    @Override
+    public boolean compareAndAddPair(Operation expectedFirstLastOperation, Operation first,
+                                     Operation expectedSecondLastOperation, Operation second) {
+        final var order = first.accountId().compareTo(second.accountId());
+        if (order == 0) {
+            throw new IllegalArgumentException("operations must belong to two different accounts");
+        }
+        final var firstTiers = expectedFirstLastOperation == null
+                ? tiersOf(first.accountId())
+                : accounts.get(first.accountId());
+        final var secondTiers = expectedSecondLastOperation == null
+                ? tiersOf(second.accountId())
+                : accounts.get(second.accountId());
+        if (firstTiers == null || secondTiers == null) {
+            return false;
+        }
+        final var lower = (order < 0 ? firstTiers : secondTiers).lock;
+        lower.lock();
+        try {
+            final var upper = (order < 0 ? secondTiers : firstTiers).lock;
+            upper.lock();
+            try {
+                checkOpen();
+                if (!AccountTiers.sameOperation(firstTiers.last(), expectedFirstLastOperation)
+                        || !AccountTiers.sameOperation(secondTiers.last(), expectedSecondLastOperation)) {
+                    return false;
+                }
+                firstTiers.append(first);
+                secondTiers.append(second);
+                return true;
+            } finally {
+                upper.unlock();
+            }
+        } finally {
+            lower.unlock();
+        }
+    }
+
+    @Override
+    public List<Operation> getAllOrderByDateDesc(UUID accountId) {
+        return readOrderByDateDesc(accountId, null, null);
+    }
+
+    /**
+     * Reads the hot tier first, then inflates the segments of the account one at a time, newest first.
+     * Closing the stream releases the segments it did not reach.
+     */
+    @Override
+    public Stream<Operation> streamAllOrderByDateDesc(UUID accountId) {
+        final var tiers = accounts.get(accountId);
+        if (tiers == null) {
+            return Stream.empty();
+        }
+        final var state = acquire(tiers);
+        final var held = new AtomicReferenceArray<>(state.segments().toArray(OperationSegment[]::new));
+        final var hot = IntStream.iterate(state.hotSize() - 1, i -> i >= 0, i -> i - 1)
+                .mapToObj(i -> state.hot()[i]);
+        final var cold = IntStream.iterate(held.length() - 1, s -> s >= 0, s -> s - 1)
+                .mapToObj(s -> {
+                    try {
+                        return held.get(s).read(accountId, null, null);
+                    } finally {
+                        release(held, s);
+                    }
+                })
+                .flatMap(operations -> IntStream.iterate(operations.size() - 1, i -> i >= 0, i -> i - 1)
+                        .mapToObj(operations::get));
+        return Stream.concat(hot, cold).onClose(() -> IntStream.range(0, held.length()).forEach(s -> release(held, s)));
+    }
+
+    @Override
+    public List<Operation> getBetweenOrderByDateDesc(UUID accountId, Instant from, Instant to) {
+        return readOrderByDateDesc(accountId, OperationCursor.startOf(from), OperationCursor.startOf(to));
+    }
+
+    @Override
+    public List<Operation> getPageOrderByDateDesc(UUID accountId, OperationCursor before, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative");
+        }
+        final var tiers = accounts.get(accountId);
+        if (tiers == null) {
+            return List.of();
+        }
+        final var state = acquire(tiers);
+        try {
+            final var page = new ArrayList<Operation>(limit);
+            final var hotEnd = before == null ? state.hotSize() : state.indexOf(before);
+            for (int i = hotEnd - 1; i >= 0 && page.size() < limit; i--) {
+                page.add(state.hot()[i]);
+            }
+            for (int s = state.segments().size() - 1; s >= 0 && page.size() < limit; s--) {
+                page.addAll(state.segments().get(s).readBefore(accountId, before, limit - page.size()));
+            }
+            return page;
+        } finally {
+            state.segments().forEach(OperationSegment::release);
+        }
+    }
+
+    @Override
+    public Stream<UUID> streamAccountIds() {
+        return accounts.keySet().stream();
+    }
+
+    /**
+     * Archives the operations dated before {@code olderThan} into a new segment, unless there are
+     * none. Compactions run one at a time.
+     *
+     * @throws IllegalStateException if the repository is closed
+     */
+    public void compact(Instant olderThan) throws IOException {
+        if (!compactIfOpen(olderThan)) {
+            throw new IllegalStateException("Repository in " + directory + " is closed");
+        }
+    }
+
+    private boolean compactIfOpen(Instant olderThan) throws IOException {
+        compactionLock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            archiveBefore(olderThan);
+            return true;
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    private void archiveBefore(Instant olderThan) throws IOException {
+        final var archived = new TreeMap<UUID, List<Operation>>();
+        accounts.forEach((accountId, tiers) -> {
+            final var state = tiers.state;
+            final var count = Math.min(state.indexOf(OperationCursor.startOf(olderThan)), state.hotSize() - 1);
+            if (count > 0) {
+                archived.put(accountId, List.of(Arrays.copyOf(state.hot(), count)));
+            }
+        });
+        if (archived.isEmpty()) {
+            return;
+        }
+        final var file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextSegment, SEGMENT_SUFFIX));
+        final var segment = OperationSegment.write(file, archived.values().stream().flatMap(List::stream).toList());
+        nextSegment++;
+        segments.add(segment);
+        archived.forEach((accountId, operations) -> accounts.get(accountId).archive(segment, operations));
+        while (segments.size() >= 2 && segments.get(segments.size() - 2).operationCount()
+                <= segments.get(segments.size() - 1).operationCount()) {
+            mergeNewest();
+        }
+    }
+
+    /**
+     * Replaces the two newest segments with their merge. Readers holding either one keep reading it;
+     * it is closed once they released it.
+     */
+    private void mergeNewest() throws IOException {
+        final var merged = List.copyOf(segments.subList(segments.size() - 2, segments.size()));
+        final var file = directory.resolve(String.format("%s%020d-%020d%s", SEGMENT_PREFIX,
+                numbersOf(merged.get(0).file())[0], numbersOf(merged.get(1).file())[1], SEGMENT_SUFFIX));
+        final var segment = OperationSegment.merge(file, merged);
+        segments.add(segment);
+        segments.removeAll(merged);
+        final var accountIds = new HashSet<UUID>();
+        merged.forEach(old -> accountIds.addAll(old.accountIds()));
+        accountIds.forEach(accountId -> accounts.get(accountId).replace(merged, segment));
+        for (final var old : merged) {
+            old.close();
+            Files.delete(old.file());
+        }
+    }
+
+    /**
+     * Compacts every {@code period} the operations older than {@code hotRetention}. A failed compaction
+     * is logged and the next one still runs. Closing the repository cancels the schedule.
+     */
+    public ScheduledFuture<?> scheduleCompaction(ScheduledExecutorService scheduler, Clock clock,
+                                                 Duration hotRetention, Duration period) {
+        checkOpen();
+        final var nanos = period.toNanos();
+        final var schedule = scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                compactIfOpen(Instant.now(clock).minus(hotRetention));
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(System.Logger.Level.ERROR, "Compaction of " + directory + " failed", e);
+            }
+        }, nanos, nanos, TimeUnit.NANOSECONDS);
+        schedules.add(schedule);
+        if (closed) {
+            schedule.cancel(false);
+        }
+        return schedule;
+    }
+
+    public Stats stats() {
+        final var hotOperations = accounts.values().stream().mapToLong(tiers -> tiers.state.hotSize()).sum();
+        return new Stats(hotOperations, segments.size());
+    }
+
+    /**
+     * Refuses further writes and compactions, writes the hot tier out, then releases the segments
+     * and the directory. Each account is read under its lock, so that a write that was already
+     * accepted is written out as well.
+     */
+    @Override
+    public void close() throws IOException {
+        compactionLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            schedules.forEach(schedule -> schedule.cancel(false));
+            final var hot = new ArrayList<Operation>();
+            new TreeMap<>(accounts).values().forEach(tiers -> {
+                tiers.lock.lock();
+                try {
+                    final var state = tiers.state;
+                    hot.addAll(Arrays.asList(state.hot()).subList(0, state.hotSize()));
+                } finally {
+                    tiers.lock.unlock();
+                }
+            });
+            OperationSegment.write(directory.resolve(HOT_TIER_FILE), hot).close();
+            release();
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    private void release() throws IOException {
+        for (final var segment : segments) {
+            segment.close();
+        }
+        Files.deleteIfExists(directory.resolve(OPEN_MARKER_FILE));
+    }
+
+    /**
+     * The segment files to load, ordered by the last segment number they hold. A file whose numbers
+     * are all held by a later merged one is deleted.
+     */
+    private List<Path> segmentFiles() throws IOException {
+        final List<Path> files;
+        try (var paths = Files.list(directory)) {
+            files = paths.filter(path -> {
+                final var name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted(Comparator.comparingLong((Path path) -> numbersOf(path)[1])
+                    .thenComparingLong(path -> -numbersOf(path)[0])).toList();
+        }
+        final var kept = new ArrayList<Path>();
+        var covered = Long.MAX_VALUE;
+        for (final var file : files.reversed()) {
+            if (numbersOf(file)[1] >= covered) {
+                Files.delete(file);
+            } else {
+                kept.add(file);
+                covered = numbersOf(file)[0];
+            }
+        }
+        return kept.reversed();
+    }
+
+    /**
+     * The first and last segment numbers a file holds: {@code segment-<n>.seg} holds only {@code n},
+     * {@code segment-<first>-<last>.seg} is the merge of the segments in between.
+     */
+    private static long[] numbersOf(Path file) {
+        final var name = file.getFileName().toString();
+        final var numbers = name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())
+                .split("-");
+        final var first = Long.parseLong(numbers[0]);
+        return new long[]{first, numbers.length == 1 ? first : Long.parseLong(numbers[1])};
+    }
+
+    /**
+     * The state of the account with every one of its segments acquired. A segment closed by a merge
+     * has already been replaced in the account's state, so reading the state again is enough.
+     */
+    private State acquire(AccountTiers tiers) {
+        while (true) {
+            final var state = tiers.state;
+            var acquired = 0;
+            while (acquired < state.segments().size() && state.segments().get(acquired).acquire()) {
+                acquired++;
+            }
+            if (acquired == state.segments().size()) {
+                return state;
+            }
+            state.segments().subList(0, acquired).forEach(OperationSegment::release);
+            checkOpen();
+        }
+    }
+
+    private static void release(AtomicReferenceArray<OperationSegment> held, int index) {
+        final var segment = held.getAndSet(index, null);
+        if (segment != null) {
+            segment.release();
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Repository in " + directory + " is closed");
+        }
+    }
+
+    private List<Operation> readOrderByDateDesc(UUID accountId, OperationCursor from, OperationCursor to) {
+        final var tiers = accounts.get(accountId);
+        if (tiers == null) {
+            return List.of();
+        }
+        final var state = acquire(tiers);
+        final var operations = new ArrayList<Operation>();
+        try {
+            for (final var segment : state.segments()) {
+                operations.addAll(segment.read(accountId, from, to));
+            }
+        } finally {
+            state.segments().forEach(OperationSegment::release);
+        }
+        final var hotStart = from == null ? 0 : state.indexOf(from);
+        final var hotEnd = to == null ? state.hotSize() : state.indexOf(to);
+        operations.addAll(Arrays.asList(state.hot()).subList(hotStart, Math.max(hotStart, hotEnd)));
+        Collections.reverse(operations);
+        return operations;
+    }
+
+    private AccountTiers tiersOf(UUID accountId) {
+        return accounts.computeIfAbsent(accountId, id -> new AccountTiers(id));
+    }
+
+    public record Stats(long hotOperations, int segments) {
+    }
+
+    /**
+     * Writers of one account serialize on its lock, under which they check the repository is still
+     * open; readers work on the published {@link State}.
+     */
+    private final class AccountTiers {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final UUID accountId;
+        private volatile State state = new State(new Operation[8], 0, List.of(), null);
+
+        AccountTiers(UUID accountId) {
+            this.accountId = accountId;
+        }
+
+        /**
+         * The last operation recorded, read from the newest segment after a reopening.
+         */
+        Operation last() {
+            final var current = state;
+            if (current.last() != null || current.segments().isEmpty()) {
+                return current.last();
+            }
+            lock.lock();
+            try {
+                final var latest = state;
+                if (latest.last() != null) {
+                    return latest.last();
+                }
+                final var last = latest.segments().get(latest.segments().size() - 1).last(accountId);
+                state = new State(latest.hot(), latest.hotSize(), latest.segments(), last);
+                return last;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean appendAllIfLastIs(Operation expectedLastOperation, List<Operation> operations) {
+            lock.lock();
+            try {
+                checkOpen();
+                if (!sameOperation(last(), expectedLastOperation)) {
+                    return false;
+                }
+                operations.forEach(this::append);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void append(Operation operation) {
+            lock.lock();
+            try {
+                checkOpen();
+                insert(operation);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void insert(Operation operation) {
+            final var current = state;
+            final var size = current.hotSize();
+            var operations = current.hot();
+            var index = size;
+            while (index > 0 && BY_DATE.compare(operations[index - 1], operation) > 0) {
+                index--;
+            }
+            if (size == operations.length || index < size) {
+                operations = Arrays.copyOf(operations, size == operations.length ? size * 2 : operations.length);
+                System.arraycopy(operations, index, operations, index + 1, size - index);
+            }
+            operations[index] = operation;
+            state = new State(operations, size + 1, current.segments(), operation);
+        }
+
+        /**
+         * Drops the archived operations from the hot tier and adds their segment, in one state change.
+         */
+        void archive(OperationSegment segment, List<Operation> archived) {
+            lock.lock();
+            try {
+                drop(segment, archived);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void drop(OperationSegment segment, List<Operation> archived) {
+            final var current = state;
+            final var remaining = new Operation[Math.max(8, Integer.highestOneBit(current.hotSize()) << 1)];
+            var size = 0;
+            var next = 0;
+            for (int i = 0; i < current.hotSize(); i++) {
+                final var operation = current.hot()[i];
+                if (next < archived.size() && operation == archived.get(next)) {
+                    next++;
+                } else {
+                    remaining[size++] = operation;
+                }
+            }
+            state = new State(remaining, size, current.segments(), current.last()).withSegment(segment, current.last());
+        }
+
+        /**
+         * Replaces the merged segments, the newest of the account, with their merge.
+         */
+        void replace(List<OperationSegment> merged, OperationSegment segment) {
+            lock.lock();
+            try {
+                final var current = state;
+                final var segments = new ArrayList<>(current.segments());
+                segments.removeAll(merged);
+                segments.add(segment);
+                state = new State(current.hot(), current.hotSize(), List.copyOf(segments), current.last());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private static boolean sameOperation(Operation actual, Operation expected) {
+            if (actual == null || expected == null) {
+                return actual == expected;
+            }
+            return actual.operationId().equals(expected.operationId());
+        }
+    }
+
+    private record State(Operation[] hot, int hotSize, List<OperationSegment> segments, Operation last) {
+
+        State withSegment(OperationSegment segment, Operation last) {
+            final var withSegment = new ArrayList<>(segments);
+            withSegment.add(segment);
+            return new State(hot, hotSize, List.copyOf(withSegment), last);
+        }
+
+        /**
+         * Binary search for the number of hot operations sorting strictly before the cursor.
+         */
+        int indexOf(OperationCursor cursor) {
+            var low = 0;
+            var high = hotSize;
+            while (low < high) {
+                final var middle = (low + high) >>> 1;
+                if (compare(hot[middle], cursor) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private static int compare(Operation operation, OperationCursor cursor) {
+            final var result = operation.dateTime().compareTo(cursor.dateTime());
+            return result != 0 ? result : operation.operationId().compareTo(cursor.operationId());
+        }
+    }
+}
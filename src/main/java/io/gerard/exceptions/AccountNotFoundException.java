@@ -1,4 +1,15 @@
 package io.gerard.exceptions;
 
 public class AccountNotFoundException extends Exception {
+    /**
+     * Shared instance without stack trace, thrown by the service on its hot paths.
+     */
+    public static final AccountNotFoundException INSTANCE = new AccountNotFoundException(false);
+
+    public AccountNotFoundException() {
+    }
+
+    protected AccountNotFoundException(boolean writableStackTrace) {
+        super(null, null, false, writableStackTrace);
+    }
 }
@@ -0,0 +1,20 @@
+package io.gerard.exceptions;
+
+/**
+ * Thrown for an operation the status of the account does not allow, such as a withdrawal from a frozen
+ * account. It extends {@link AccountNotFoundException} so that callers written before accounts had a
+ * status handle it like a missing account.
+ */
+public class AccountNotOpenException extends AccountNotFoundException {
+    /**
+     * Shared instance without stack trace, thrown by the service on its hot paths.
+     */
+    public static final AccountNotOpenException INSTANCE = new AccountNotOpenException(false);
+
+    public AccountNotOpenException() {
+    }
+
+    private AccountNotOpenException(boolean writableStackTrace) {
+        super(writableStackTrace);
+    }
+}
@@ -0,0 +1,7 @@
+package io.gerard.exceptions;
+
+/**
+ * Thrown when closing an account whose balance is not zero yet.
+ */
+public class NonZeroBalanceException extends Exception {
+}
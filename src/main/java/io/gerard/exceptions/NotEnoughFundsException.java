@@ -1,4 +1,15 @@
 package io.gerard.exceptions;
 
 public class NotEnoughFundsException extends Exception {
+    /**
+     * Shared instance without stack trace, thrown by the service on its hot paths.
+     */
+    public static final NotEnoughFundsException INSTANCE = new NotEnoughFundsException(false);
+
+    public NotEnoughFundsException() {
+    }
+
+    private NotEnoughFundsException(boolean writableStackTrace) {
+        super(null, null, false, writableStackTrace);
+    }
 }
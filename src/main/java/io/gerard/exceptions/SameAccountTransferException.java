@@ -0,0 +1,4 @@
+package io.gerard.exceptions;
+
+public class SameAccountTransferException extends Exception {
+}
@@ -1,4 +1,15 @@
 package io.gerard.exceptions;
 
 public class ZeroOrNegativeAmountException extends Exception {
+    /**
+     * Shared instance without stack trace, thrown by the service on its hot paths.
+     */
+    public static final ZeroOrNegativeAmountException INSTANCE = new ZeroOrNegativeAmountException(false);
+
+    public ZeroOrNegativeAmountException() {
+    }
+
+    private ZeroOrNegativeAmountException(boolean writableStackTrace) {
+        super(null, null, false, writableStackTrace);
+    }
 }
@@ -0,0 +1,21 @@
+package io.gerard.models;
+
+public enum AccountStatus {
+    OPEN,
+    /**
+     * Accepts deposits and incoming transfers only.
+     */
+    FROZEN,
+    /**
+     * Accepts no operation any more; its statements can still be printed.
+     */
+    CLOSED;
+
+    public boolean acceptsCredits() {
+        return this != CLOSED;
+    }
+
+    public boolean acceptsDebits() {
+        return this == OPEN;
+    }
+}
@@ -0,0 +1,15 @@
+package io.gerard.models;
+
+import java.time.Duration;
+
+/**
+ * State of a bulk statement run: statements exported by this run out of those it had to export,
+ * and the accounts already exported by an interrupted run it resumed.
+ */
+public record BulkStatementProgress(long exported, long total, long resumed, Duration elapsed) {
+
+    public double accountsPerSecond() {
+        final var nanos = elapsed.toNanos();
+        return nanos == 0 ? 0 : exported * 1e9 / nanos;
+    }
+}
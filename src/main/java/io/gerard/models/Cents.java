@@ -0,0 +1,53 @@
+package io.gerard.models;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money as a primitive {@code long} number of cents, for arithmetic that should not allocate.
+ * {@link BigDecimal} stays the representation at the edges ({@link Operation}, service API);
+ * every conversion and operation fails with {@link ArithmeticException} rather than overflowing.
+ */
+public final class Cents {
+    public static final int SCALE = 2;
+
+    private Cents() {
+    }
+
+    /**
+     * Rounds an amount to cents the way deposits and withdrawals always have, half down.
+     */
+    public static long of(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.HALF_DOWN).movePointRight(SCALE).longValueExact();
+    }
+
+    /**
+     * Converts a value that already has at most two decimals, such as a stored balance.
+     */
+    public static long ofExact(BigDecimal value) {
+        return value.movePointRight(SCALE).longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    public static long add(long augend, long addend) {
+        return Math.addExact(augend, addend);
+    }
+
+    public static long subtract(long minuend, long subtrahend) {
+        return Math.subtractExact(minuend, subtrahend);
+    }
+
+    /**
+     * Whether a balance is below an amount, as {@code balance.compareTo(amount) < 0} would say on the
+     * unrounded amount: a balance equal to an amount that was rounded down is still not enough.
+     */
+    public static boolean isLessThan(long balanceCents, long amountCents, BigDecimal amount) {
+        if (balanceCents != amountCents) {
+            return balanceCents < amountCents;
+        }
+        return amount.scale() > SCALE && amount.compareTo(toBigDecimal(amountCents)) > 0;
+    }
+}
@@ -0,0 +1,14 @@
+package io.gerard.models;
+
+import java.util.Map;
+
+public record MetricSnapshot(
+        String name,
+        long calls,
+        Map<String, Long> errors,
+        long p50Nanos,
+        long p90Nanos,
+        long p99Nanos,
+        long p999Nanos,
+        long maxNanos) {
+}
@@ -0,0 +1,7 @@
+package io.gerard.models;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public record Movement(UUID accountId, OperationTypes operationType, BigDecimal amount) {
+}
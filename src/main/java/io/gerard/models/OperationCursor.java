@@ -0,0 +1,23 @@
+package io.gerard.models;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Position in an account history ordered by date then operation id, used to resume a page of
+ * operations right after the last one already read.
+ */
+public record OperationCursor(Instant dateTime, UUID operationId) {
+    private static final UUID SMALLEST_OPERATION_ID = new UUID(Long.MIN_VALUE, Long.MIN_VALUE);
+
+    public static OperationCursor of(Operation operation) {
+        return new OperationCursor(operation.dateTime(), operation.operationId());
+    }
+
+    /**
+     * Cursor sorting before every operation made at {@code dateTime} and after every earlier one.
+     */
+    public static OperationCursor startOf(Instant dateTime) {
+        return new OperationCursor(dateTime, SMALLEST_OPERATION_ID);
+    }
+}
@@ -0,0 +1,7 @@
+package io.gerard.models;
+
+/**
+ * An operation as published on the change feed, numbered in publication order from zero.
+ */
+public record OperationEvent(long sequence, Operation operation) {
+}
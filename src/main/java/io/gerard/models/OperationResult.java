@@ -0,0 +1,21 @@
+package io.gerard.models;
+
+import java.util.Arrays;
+
+public sealed interface OperationResult {
+    record Accepted(Operation operation) implements OperationResult {
+    }
+
+    record Rejected(RejectionReason reason) implements OperationResult {
+        private static final Rejected[] SHARED = Arrays.stream(RejectionReason.values())
+                .map(Rejected::new)
+                .toArray(Rejected[]::new);
+
+        /**
+         * Returns the shared rejection for the reason, so that rejecting allocates nothing.
+         */
+        public static Rejected of(RejectionReason reason) {
+            return SHARED[reason.ordinal()];
+        }
+    }
+}
@@ -2,5 +2,7 @@ package io.gerard.models;
 
 public enum OperationTypes {
     DEPOSIT,
-    WITHDRAWAL
+    WITHDRAWAL,
+    TRANSFER_IN,
+    TRANSFER_OUT
 }
@@ -0,0 +1,10 @@
+package io.gerard.models;
+
+public enum RejectionReason {
+    ZERO_OR_NEGATIVE_AMOUNT,
+    ACCOUNT_NOT_FOUND,
+    ACCOUNT_NOT_OPEN,
+    NOT_ENOUGH_FUNDS,
+    UNSUPPORTED_OPERATION_TYPE,
+    AMOUNT_OUT_OF_RANGE
+}
@@ -0,0 +1,40 @@
+package io.gerard.models;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Totals of the operations of an account from {@code from} inclusive to {@code to} exclusive.
+ * Credits are deposits and incoming transfers, debits withdrawals and outgoing transfers. The
+ * balance range covers the balance at the start of the period and the ones its operations left, the
+ * closing one being left by the latest.
+ */
+public record Rollup(LocalDate from, LocalDate to, long credits, BigDecimal creditTotal, long debits,
+                     BigDecimal debitTotal, BigDecimal minBalance, BigDecimal maxBalance,
+                     BigDecimal closingBalance) {
+
+    /**
+     * Rollup of a period without operations, over which the balance stayed the same.
+     */
+    public static Rollup empty(LocalDate from, LocalDate to, BigDecimal balance) {
+        final var zero = Cents.toBigDecimal(0);
+        return new Rollup(from, to, 0, zero, 0, zero, balance, balance, balance);
+    }
+
+    /**
+     * Rollup of this period followed by a later one.
+     */
+    public Rollup followedBy(Rollup next) {
+        return new Rollup(
+                from,
+                next.to(),
+                credits + next.credits(),
+                creditTotal.add(next.creditTotal()),
+                debits + next.debits(),
+                debitTotal.add(next.debitTotal()),
+                minBalance.min(next.minBalance()),
+                maxBalance.max(next.maxBalance()),
+                next.closingBalance()
+        );
+    }
+}
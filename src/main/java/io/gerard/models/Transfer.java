@@ -0,0 +1,4 @@
+package io.gerard.models;
+
+public record Transfer(Operation debit, Operation credit) {
+}
@@ -0,0 +1,26 @@
+package io.gerard.services;
+
+import io.gerard.models.AccountStatus;
+
+import java.util.UUID;
+
+/**
+ * Accounts opened explicitly and their status. Lookups are meant to be cheap enough to run before
+ * every operation.
+ */
+public interface AccountRegistry {
+    /**
+     * Registers the account as open, unless the id is already registered whatever its status.
+     */
+    boolean open(UUID accountId);
+
+    /**
+     * Returns the status of the account, or {@code null} when it is not registered.
+     */
+    AccountStatus statusOf(UUID accountId);
+
+    /**
+     * Changes the status of the account only if it is still {@code expected}.
+     */
+    boolean compareAndSetStatus(UUID accountId, AccountStatus expected, AccountStatus status);
+}
@@ -0,0 +1,16 @@
+package io.gerard.services;
+
+import io.gerard.models.Operation;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.UUID;
+
+/**
+ * Machine-readable counterpart of {@link AccountStatementFormatter}: writes statements one after the
+ * other to the exporter's own output.
+ */
+public interface AccountStatementExporter {
+    void export(UUID accountId, BigDecimal balance, Iterator<Operation> operations) throws IOException;
+}
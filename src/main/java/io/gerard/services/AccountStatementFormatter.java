@@ -1,7 +1,25 @@
 package io.gerard.services;
 
 import io.gerard.models.Account;
+import io.gerard.models.Operation;
+import io.gerard.models.Rollup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.UUID;
 
 public interface AccountStatementFormatter {
     String format(Account account);
+
+    void format(UUID accountId, BigDecimal balance, Iterator<Operation> operations, Appendable output)
+            throws IOException;
+
+    /**
+     * Formats the statement of a period with its summary; ignores the summary unless overridden.
+     */
+    default void format(UUID accountId, BigDecimal balance, Rollup summary, Iterator<Operation> operations,
+                        Appendable output) throws IOException {
+        format(accountId, balance, operations, output);
+    }
 }
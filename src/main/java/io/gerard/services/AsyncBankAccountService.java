@@ -0,0 +1,23 @@
+package io.gerard.services;
+
+import io.gerard.models.Operation;
+import io.gerard.models.Transfer;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Non-blocking counterpart of {@link BankAccountService}. Stages complete exceptionally with the same
+ * exceptions the synchronous service throws, and with a {@link java.util.concurrent.RejectedExecutionException}
+ * when the implementation refuses more work.
+ */
+public interface AsyncBankAccountService {
+    CompletionStage<Operation> deposit(UUID accountId, BigDecimal amount);
+
+    CompletionStage<Operation> withdraw(UUID accountId, BigDecimal amount);
+
+    CompletionStage<Transfer> transfer(UUID fromAccountId, UUID toAccountId, BigDecimal amount);
+
+    CompletionStage<Void> printAccountStatement(UUID accountId);
+}
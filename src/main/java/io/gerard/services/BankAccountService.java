@@ -1,11 +1,24 @@
 package io.gerard.services;
 
 import io.gerard.exceptions.AccountNotFoundException;
+import io.gerard.exceptions.NonZeroBalanceException;
 import io.gerard.exceptions.NotEnoughFundsException;
+import io.gerard.exceptions.SameAccountTransferException;
 import io.gerard.exceptions.ZeroOrNegativeAmountException;
+import io.gerard.models.Movement;
 import io.gerard.models.Operation;
+import io.gerard.models.OperationResult;
+import io.gerard.models.RejectionReason;
+import io.gerard.models.Rollup;
+import io.gerard.models.Transfer;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface BankAccountService {
@@ -15,5 +28,87 @@ public interface BankAccountService {
     Operation withdraw(UUID accountId, BigDecimal amount)
             throws ZeroOrNegativeAmountException, AccountNotFoundException, NotEnoughFundsException;
 
+    /**
+     * Deposits like {@link #deposit(UUID, BigDecimal)} but returns a rejection instead of throwing, so
+     * that rejected calls cost no exception. An amount or a new balance beyond the cent range of a
+     * {@code long} is rejected with {@link RejectionReason#AMOUNT_OUT_OF_RANGE}.
+     */
+    OperationResult tryDeposit(UUID accountId, BigDecimal amount);
+
+    /**
+     * Withdraws like {@link #withdraw(UUID, BigDecimal)} but returns a rejection instead of throwing.
+     */
+    OperationResult tryWithdraw(UUID accountId, BigDecimal amount);
+
+    /**
+     * Deposits once per idempotency key of the account: a retry with the same key returns the
+     * operation made by the first call instead of depositing again. A call that failed can be retried.
+     * Reusing the key for another type or amount of operation throws an {@link IllegalArgumentException}.
+     */
+    Operation deposit(UUID accountId, BigDecimal amount, String idempotencyKey)
+            throws ZeroOrNegativeAmountException, AccountNotFoundException;
+
+    /**
+     * Withdraws once per idempotency key of the account, like {@link #deposit(UUID, BigDecimal, String)}.
+     */
+    Operation withdraw(UUID accountId, BigDecimal amount, String idempotencyKey)
+            throws ZeroOrNegativeAmountException, AccountNotFoundException, NotEnoughFundsException;
+
+    /**
+     * Moves the amount from one account to another as a {@code TRANSFER_OUT} operation on the first and
+     * a {@code TRANSFER_IN} operation on the second, both recorded or neither.
+     */
+    Transfer transfer(UUID fromAccountId, UUID toAccountId, BigDecimal amount)
+            throws ZeroOrNegativeAmountException, AccountNotFoundException, NotEnoughFundsException,
+            SameAccountTransferException;
+
+    /**
+     * Applies deposits and withdrawals of many accounts, in list order per account, and returns one
+     * result per movement in the same order instead of throwing on rejected ones. Movements of any
+     * other type are rejected.
+     */
+    List<OperationResult> applyBatch(List<Movement> movements);
+
+    /**
+     * Opens the account with a zero balance, unless the id is already taken.
+     */
+    boolean openAccount(UUID accountId);
+
+    /**
+     * Stops withdrawals and outgoing transfers of the account, which can still be credited.
+     * Operations already past their status check still go through.
+     */
+    void freezeAccount(UUID accountId) throws AccountNotFoundException;
+
+    /**
+     * Stops all operations on the account for good, once its balance is back to zero.
+     */
+    void closeAccount(UUID accountId) throws AccountNotFoundException, NonZeroBalanceException;
+
     void printAccountStatement(UUID accountId);
+
+    void printAccountStatement(UUID accountId, int lastOperations);
+
+    /**
+     * Prints the operations made from {@code from} inclusive to {@code to} exclusive, with the balance
+     * the account had at {@code to}.
+     */
+    void printAccountStatement(UUID accountId, Instant from, Instant to);
+
+    /**
+     * Prints the operations of the month with a summary of it, days being those of the service's clock.
+     */
+    void printAccountStatement(UUID accountId, YearMonth month);
+
+    /**
+     * Totals of the operations made from {@code from} inclusive to {@code to} exclusive, or nothing when
+     * there were none.
+     */
+    Optional<Rollup> summarize(UUID accountId, LocalDate from, LocalDate to);
+
+    /**
+     * Writes the whole statement of the account to the exporter, like {@link #printAccountStatement(UUID)}
+     * prints it.
+     */
+    void exportAccountStatement(UUID accountId, AccountStatementExporter exporter) throws IOException;
 }
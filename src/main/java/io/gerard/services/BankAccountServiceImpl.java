@@ -1,116 +1,682 @@
 package io.gerard.services;
 
 import io.gerard.exceptions.AccountNotFoundException;
+import io.gerard.exceptions.AccountNotOpenException;
+import io.gerard.exceptions.NonZeroBalanceException;
 import io.gerard.exceptions.NotEnoughFundsException;
+import io.gerard.exceptions.SameAccountTransferException;
 import io.gerard.exceptions.ZeroOrNegativeAmountException;
-import io.gerard.models.Account;
+import io.gerard.models.AccountStatus;
+import io.gerard.models.Cents;
+import io.gerard.models.Movement;
 import io.gerard.models.Operation;
+import io.gerard.models.OperationCursor;
+import io.gerard.models.OperationResult;
 import io.gerard.models.OperationTypes;
+import io.gerard.models.RejectionReason;
+import io.gerard.models.Rollup;
+import io.gerard.models.Transfer;
 
+import java.io.IOException;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.Clock;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Supplier;
 
+/**
+ * Writes hold the read side of the status lock stripes of their accounts and status changes the
+ * write side, so that an account is never frozen or closed while a write that passed its status
+ * check is still in flight.
+ */
 public class BankAccountServiceImpl implements BankAccountService {
+    private static final int STATUS_LOCK_STRIPES = 64;
+
     private final OperationRepository operationRepository;
     private final AccountStatementFormatter accountStatementFormatter;
     private final StringPrinter stringPrinter;
     private final Clock clock;
     private final Supplier<UUID> uuidGenerator;
+    private final IdempotencyIndex idempotencyIndex;
+    private final AccountRegistry accountRegistry;
+    private final boolean historyDefinesAccounts;
+    private final ReentrantReadWriteLock[] statusLocks = new ReentrantReadWriteLock[STATUS_LOCK_STRIPES];
 
     BankAccountServiceImpl(OperationRepository operationRepository, AccountStatementFormatter accountStatementFormatter,
-                           StringPrinter stringPrinter, Clock clock, Supplier<UUID> uuidGenerator) {
+                           StringPrinter stringPrinter, Clock clock, Supplier<UUID> uuidGenerator,
+                           IdempotencyIndex idempotencyIndex, AccountRegistry accountRegistry,
+                           boolean historyDefinesAccounts) {
         this.operationRepository = operationRepository;
         this.accountStatementFormatter = accountStatementFormatter;
         this.stringPrinter = stringPrinter;
         this.clock = clock;
         this.uuidGenerator = uuidGenerator;
+        this.idempotencyIndex = idempotencyIndex;
+        this.accountRegistry = accountRegistry;
+        this.historyDefinesAccounts = historyDefinesAccounts;
+        Arrays.setAll(statusLocks, i -> new ReentrantReadWriteLock());
+    }
+
+    /**
+     * Service whose accounts are the ones opened in the registry, which is checked before the
+     * repository on every operation. An opened account starts with a zero balance.
+     */
+    public BankAccountServiceImpl(OperationRepository operationRepository,
+                                  AccountStatementFormatter accountStatementFormatter, StringPrinter stringPrinter,
+                                  Clock clock, Supplier<UUID> uuidGenerator, AccountRegistry accountRegistry) {
+        this(operationRepository, accountStatementFormatter, stringPrinter, clock, uuidGenerator,
+                new IdempotencyIndex(clock), accountRegistry, false);
+    }
+
+    /**
+     * Service where an account exists once it has an operation. Accounts opened, frozen or closed
+     * through the service are also kept in an in-memory registry, which is lost on restart.
+     */
+    public BankAccountServiceImpl(OperationRepository operationRepository,
+                                  AccountStatementFormatter accountStatementFormatter, StringPrinter stringPrinter,
+                                  Clock clock, Supplier<UUID> uuidGenerator) {
+        this(operationRepository, accountStatementFormatter, stringPrinter, clock, uuidGenerator,
+                new IdempotencyIndex(clock), new InMemoryAccountRegistry(), true);
     }
 
     public BankAccountServiceImpl(OperationRepository operationRepository,
                                   AccountStatementFormatter accountStatementFormatter, StringPrinter stringPrinter) {
-        this(operationRepository, accountStatementFormatter, stringPrinter, Clock.systemDefaultZone(), UUID::randomUUID);
+        this(operationRepository, accountStatementFormatter, stringPrinter, Clock.systemDefaultZone(),
+                new TimeOrderedUuidGenerator());
     }
 
     @Override
     public Operation deposit(UUID accountId, BigDecimal amount)
             throws ZeroOrNegativeAmountException, AccountNotFoundException {
+        return switch (tryDeposit(accountId, amount)) {
+            case OperationResult.Accepted accepted -> accepted.operation();
+            case OperationResult.Rejected rejected when rejected.reason() == RejectionReason.ACCOUNT_NOT_FOUND ->
+                    throw AccountNotFoundException.INSTANCE;
+            case OperationResult.Rejected rejected when rejected.reason() == RejectionReason.ACCOUNT_NOT_OPEN ->
+                    throw AccountNotOpenException.INSTANCE;
+            case OperationResult.Rejected rejected when rejected.reason() == RejectionReason.AMOUNT_OUT_OF_RANGE ->
+                    throw new ArithmeticException("Amount or balance out of the cent range");
+            case OperationResult.Rejected rejected -> throw ZeroOrNegativeAmountException.INSTANCE;
+        };
+    }
 
+    @Override
+    public Operation withdraw(UUID accountId, BigDecimal amount)
+            throws ZeroOrNegativeAmountException, AccountNotFoundException, NotEnoughFundsException {
+        return switch (tryWithdraw(accountId, amount)) {
+            case OperationResult.Accepted accepted -> accepted.operation();
+            case OperationResult.Rejected rejected when rejected.reason() == RejectionReason.NOT_ENOUGH_FUNDS ->
+                    throw NotEnoughFundsException.INSTANCE;
+            case OperationResult.Rejected rejected when rejected.reason() == RejectionReason.ACCOUNT_NOT_FOUND ->
+                    throw AccountNotFoundException.INSTANCE;
+            case OperationResult.Rejected rejected when rejected.reason() == RejectionReason.ACCOUNT_NOT_OPEN ->
+                    throw AccountNotOpenException.INSTANCE;
+            case OperationResult.Rejected rejected when rejected.reason() == RejectionReason.AMOUNT_OUT_OF_RANGE ->
+                    throw new ArithmeticException("Amount or balance out of the cent range");
+            case OperationResult.Rejected rejected -> throw ZeroOrNegativeAmountException.INSTANCE;
+        };
+    }
+
+    @Override
+    public OperationResult tryDeposit(UUID accountId, BigDecimal amount) {
         if (amount.signum() <= 0) {
-            throw new ZeroOrNegativeAmountException();
+            return OperationResult.Rejected.of(RejectionReason.ZERO_OR_NEGATIVE_AMOUNT);
         }
-        final var scaledAmount = amount.setScale(2, RoundingMode.HALF_DOWN);
-        final var date = Instant.now(clock);
+        final var statusLock = statusLockOf(accountId).readLock();
+        statusLock.lock();
+        try {
+            return tryDepositWhileStatusHeld(accountId, amount);
+        } finally {
+            statusLock.unlock();
+        }
+    }
 
-        final var lastBalance = getCurrentBalance(accountId);
+    private OperationResult tryDepositWhileStatusHeld(UUID accountId, BigDecimal amount) {
+        final var statusRejection = checkStatus(accountId, false);
+        if (statusRejection != null) {
+            return OperationResult.Rejected.of(statusRejection);
+        }
+        final long amountCents;
+        try {
+            amountCents = Cents.of(amount);
+        } catch (ArithmeticException e) {
+            return OperationResult.Rejected.of(RejectionReason.AMOUNT_OUT_OF_RANGE);
+        }
+        final var scaledAmount = Cents.toBigDecimal(amountCents);
 
-        final var newBalance = lastBalance.add(scaledAmount);
-        final var operationId = uuidGenerator.get();
+        while (true) {
+            final var lastOperation = operationRepository.getLastOperation(accountId).orElse(null);
+            if (isUnknown(accountId, lastOperation)) {
+                return OperationResult.Rejected.of(RejectionReason.ACCOUNT_NOT_FOUND);
+            }
+            final var date = dateAfter(lastOperation);
+            final var lastBalance = balanceOf(lastOperation);
+            if (lastBalance > Long.MAX_VALUE - amountCents) {
+                return OperationResult.Rejected.of(RejectionReason.AMOUNT_OUT_OF_RANGE);
+            }
 
-        return operationRepository.add(
-                new Operation(
-                        operationId,
-                        accountId,
-                        OperationTypes.DEPOSIT,
-                        scaledAmount,
-                        newBalance,
-                        date
-                )
-        );
+            final var newBalance = Cents.add(lastBalance, amountCents);
+            final var operation = new Operation(
+                    uuidGenerator.get(),
+                    accountId,
+                    OperationTypes.DEPOSIT,
+                    scaledAmount,
+                    Cents.toBigDecimal(newBalance),
+                    date
+            );
+
+            if (operationRepository.compareAndAdd(lastOperation, operation)) {
+                return new OperationResult.Accepted(operation);
+            }
+        }
     }
 
     @Override
-    public Operation withdraw(UUID accountId, BigDecimal amount)
+    public OperationResult tryWithdraw(UUID accountId, BigDecimal amount) {
+        if (amount.signum() <= 0) {
+            return OperationResult.Rejected.of(RejectionReason.ZERO_OR_NEGATIVE_AMOUNT);
+        }
+        final var statusLock = statusLockOf(accountId).readLock();
+        statusLock.lock();
+        try {
+            return tryWithdrawWhileStatusHeld(accountId, amount);
+        } finally {
+            statusLock.unlock();
+        }
+    }
+
+    private OperationResult tryWithdrawWhileStatusHeld(UUID accountId, BigDecimal amount) {
+        final var statusRejection = checkStatus(accountId, true);
+        if (statusRejection != null) {
+            return OperationResult.Rejected.of(statusRejection);
+        }
+        final long amountCents;
+        try {
+            amountCents = Cents.of(amount);
+        } catch (ArithmeticException e) {
+            return OperationResult.Rejected.of(RejectionReason.AMOUNT_OUT_OF_RANGE);
+        }
+        final var scaledAmount = Cents.toBigDecimal(amountCents);
+
+        while (true) {
+            final var lastOperation = operationRepository.getLastOperation(accountId).orElse(null);
+            if (isUnknown(accountId, lastOperation)) {
+                return OperationResult.Rejected.of(RejectionReason.ACCOUNT_NOT_FOUND);
+            }
+            final var date = dateAfter(lastOperation);
+            final var lastBalance = balanceOf(lastOperation);
+            if (Cents.isLessThan(lastBalance, amountCents, amount)) {
+                return OperationResult.Rejected.of(RejectionReason.NOT_ENOUGH_FUNDS);
+            }
+            final var newBalance = Cents.subtract(lastBalance, amountCents);
+            final var operation = new Operation(
+                    uuidGenerator.get(),
+                    accountId,
+                    OperationTypes.WITHDRAWAL,
+                    scaledAmount,
+                    Cents.toBigDecimal(newBalance),
+                    date
+            );
+
+            if (operationRepository.compareAndAdd(lastOperation, operation)) {
+                return new OperationResult.Accepted(operation);
+            }
+        }
+    }
+
+    @Override
+    public Operation deposit(UUID accountId, BigDecimal amount, String idempotencyKey)
+            throws ZeroOrNegativeAmountException, AccountNotFoundException {
+        return once(accountId, idempotencyKey, OperationTypes.DEPOSIT, amount, () -> deposit(accountId, amount));
+    }
+
+    @Override
+    public Operation withdraw(UUID accountId, BigDecimal amount, String idempotencyKey)
             throws ZeroOrNegativeAmountException, AccountNotFoundException, NotEnoughFundsException {
+        return once(accountId, idempotencyKey, OperationTypes.WITHDRAWAL, amount,
+                () -> withdraw(accountId, amount));
+    }
+
+    @Override
+    public Transfer transfer(UUID fromAccountId, UUID toAccountId, BigDecimal amount)
+            throws ZeroOrNegativeAmountException, AccountNotFoundException, NotEnoughFundsException,
+            SameAccountTransferException {
 
         if (amount.signum() <= 0) {
-            throw new ZeroOrNegativeAmountException();
+            throw ZeroOrNegativeAmountException.INSTANCE;
         }
-        final var scaledAmount = amount.setScale(2, RoundingMode.HALF_DOWN);
-        final var date = Instant.now(clock);
+        if (fromAccountId.equals(toAccountId)) {
+            throw new SameAccountTransferException();
+        }
+        final var ordered = fromAccountId.compareTo(toAccountId) < 0;
+        final var lower = statusLockOf(ordered ? fromAccountId : toAccountId).readLock();
+        final var upper = statusLockOf(ordered ? toAccountId : fromAccountId).readLock();
+        lower.lock();
+        upper.lock();
+        try {
+            return transferWhileStatusHeld(fromAccountId, toAccountId, amount);
+        } finally {
+            upper.unlock();
+            lower.unlock();
+        }
+    }
+
+    private Transfer transferWhileStatusHeld(UUID fromAccountId, UUID toAccountId, BigDecimal amount)
+            throws AccountNotFoundException, NotEnoughFundsException {
+        throwIfRejected(checkStatus(fromAccountId, true));
+        throwIfRejected(checkStatus(toAccountId, false));
+        final var amountCents = Cents.of(amount);
+        final var scaledAmount = Cents.toBigDecimal(amountCents);
 
-        final var lastBalance = getCurrentBalance(accountId);
-        if (lastBalance.compareTo(amount) < 0) {
-            throw new NotEnoughFundsException();
+        while (true) {
+            final var lastDebitedOperation = getLastOperation(fromAccountId);
+            final var lastCreditedOperation = getLastOperation(toAccountId);
+            final var date = dateAfter(lastDebitedOperation, lastCreditedOperation);
+            final var debitedBalance = balanceOf(lastDebitedOperation);
+            if (Cents.isLessThan(debitedBalance, amountCents, amount)) {
+                throw NotEnoughFundsException.INSTANCE;
+            }
+            final var debit = new Operation(
+                    uuidGenerator.get(),
+                    fromAccountId,
+                    OperationTypes.TRANSFER_OUT,
+                    scaledAmount,
+                    Cents.toBigDecimal(Cents.subtract(debitedBalance, amountCents)),
+                    date
+            );
+            final var credit = new Operation(
+                    uuidGenerator.get(),
+                    toAccountId,
+                    OperationTypes.TRANSFER_IN,
+                    scaledAmount,
+                    Cents.toBigDecimal(Cents.add(balanceOf(lastCreditedOperation), amountCents)),
+                    date
+            );
+
+            if (operationRepository.compareAndAddPair(lastDebitedOperation, debit, lastCreditedOperation, credit)) {
+                return new Transfer(debit, credit);
+            }
+        }
+    }
+
+    /**
+     * Every movement is validated before any account is written, so that a batch is never cut
+     * short by one of its movements once others were recorded.
+     */
+    @Override
+    public List<OperationResult> applyBatch(List<Movement> movements) {
+        final var results = new OperationResult[movements.size()];
+        final var amountsCents = new long[movements.size()];
+        final var indexesByAccount = new LinkedHashMap<UUID, List<Integer>>();
+        for (int i = 0; i < movements.size(); i++) {
+            final var movement = movements.get(i);
+            final var rejection = validate(movement);
+            if (rejection != null) {
+                results[i] = OperationResult.Rejected.of(rejection);
+                continue;
+            }
+            amountsCents[i] = Cents.of(movement.amount());
+            indexesByAccount.computeIfAbsent(movement.accountId(), accountId -> new ArrayList<>()).add(i);
         }
-        final var newBalance = lastBalance.subtract(scaledAmount);
-        final var operationId = uuidGenerator.get();
+        indexesByAccount.forEach((accountId, indexes) -> {
+            final var statusLock = statusLockOf(accountId).readLock();
+            statusLock.lock();
+            try {
+                applyBatch(accountId, indexes, movements, amountsCents, results);
+            } finally {
+                statusLock.unlock();
+            }
+        });
+
+        return Arrays.asList(results);
+    }
 
-        return operationRepository.add(
-                new Operation(
-                        operationId,
+    private static RejectionReason validate(Movement movement) {
+        final var type = movement.operationType();
+        if (type != OperationTypes.DEPOSIT && type != OperationTypes.WITHDRAWAL) {
+            return RejectionReason.UNSUPPORTED_OPERATION_TYPE;
+        }
+        if (movement.amount().signum() <= 0) {
+            return RejectionReason.ZERO_OR_NEGATIVE_AMOUNT;
+        }
+        try {
+            Cents.of(movement.amount());
+            return null;
+        } catch (ArithmeticException e) {
+            return RejectionReason.AMOUNT_OUT_OF_RANGE;
+        }
+    }
+
+    private void applyBatch(UUID accountId, List<Integer> indexes, List<Movement> movements, long[] amountsCents,
+                            OperationResult[] results) {
+        final var creditRejection = checkStatus(accountId, false);
+        if (creditRejection != null) {
+            final var rejected = OperationResult.Rejected.of(creditRejection);
+            indexes.forEach(index -> results[index] = rejected);
+            return;
+        }
+        final var debitRejection = checkStatus(accountId, true);
+        while (true) {
+            final var lastOperation = operationRepository.getLastOperation(accountId).orElse(null);
+            if (isUnknown(accountId, lastOperation)) {
+                final var rejected = OperationResult.Rejected.of(RejectionReason.ACCOUNT_NOT_FOUND);
+                indexes.forEach(index -> results[index] = rejected);
+                return;
+            }
+
+            final var date = dateAfter(lastOperation);
+            var balance = balanceOf(lastOperation);
+            final var operations = new ArrayList<Operation>(indexes.size());
+            for (final var index : indexes) {
+                final var movement = movements.get(index);
+                final var amountCents = amountsCents[index];
+                if (movement.operationType() == OperationTypes.WITHDRAWAL) {
+                    if (debitRejection != null) {
+                        results[index] = OperationResult.Rejected.of(debitRejection);
+                        continue;
+                    }
+                    if (Cents.isLessThan(balance, amountCents, movement.amount())) {
+                        results[index] = OperationResult.Rejected.of(RejectionReason.NOT_ENOUGH_FUNDS);
+                        continue;
+                    }
+                    balance = Cents.subtract(balance, amountCents);
+                } else if (balance > Long.MAX_VALUE - amountCents) {
+                    results[index] = OperationResult.Rejected.of(RejectionReason.AMOUNT_OUT_OF_RANGE);
+                    continue;
+                } else {
+                    balance = Cents.add(balance, amountCents);
+                }
+                final var operation = new Operation(
+                        uuidGenerator.get(),
                         accountId,
-                        OperationTypes.WITHDRAWAL,
-                        scaledAmount,
-                        newBalance,
+                        movement.operationType(),
+                        Cents.toBigDecimal(amountCents),
+                        Cents.toBigDecimal(balance),
                         date
-                )
-        );
+                );
+                operations.add(operation);
+                results[index] = new OperationResult.Accepted(operation);
+            }
+
+            if (operations.isEmpty() || operationRepository.compareAndAddAll(lastOperation, operations)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean openAccount(UUID accountId) {
+        return statusOf(accountId) == null && accountRegistry.open(accountId);
+    }
+
+    @Override
+    public void freezeAccount(UUID accountId) throws AccountNotFoundException {
+        final var statusLock = statusLockOf(accountId).writeLock();
+        statusLock.lock();
+        try {
+            while (true) {
+                final var status = statusOf(accountId);
+                if (status == null) {
+                    throw AccountNotFoundException.INSTANCE;
+                }
+                if (status == AccountStatus.CLOSED) {
+                    throw AccountNotOpenException.INSTANCE;
+                }
+                if (status == AccountStatus.FROZEN
+                        || accountRegistry.compareAndSetStatus(accountId, status, AccountStatus.FROZEN)) {
+                    return;
+                }
+            }
+        } finally {
+            statusLock.unlock();
+        }
+    }
+
+    @Override
+    public void closeAccount(UUID accountId) throws AccountNotFoundException, NonZeroBalanceException {
+        final var statusLock = statusLockOf(accountId).writeLock();
+        statusLock.lock();
+        try {
+            while (true) {
+                final var status = statusOf(accountId);
+                if (status == null) {
+                    throw AccountNotFoundException.INSTANCE;
+                }
+                if (status == AccountStatus.CLOSED) {
+                    return;
+                }
+                if (balanceOf(operationRepository.getLastOperation(accountId).orElse(null)) != 0) {
+                    throw new NonZeroBalanceException();
+                }
+                if (accountRegistry.compareAndSetStatus(accountId, status, AccountStatus.CLOSED)) {
+                    return;
+                }
+            }
+        } finally {
+            statusLock.unlock();
+        }
     }
 
     @Override
     public void printAccountStatement(UUID accountId) {
-        final var operations = operationRepository.getAllOrderByDateDesc(accountId);
+        stringPrinter.print(output -> {
+            try (var operations = operationRepository.streamAllOrderByDateDesc(accountId)) {
+                writeStatement(accountId, operations.iterator(), output);
+            }
+        });
+    }
+
+    @Override
+    public void printAccountStatement(UUID accountId, int lastOperations) {
+        final var operations = operationRepository.getPageOrderByDateDesc(accountId, null, lastOperations);
+        stringPrinter.print(output -> writeStatement(accountId, operations.iterator(), output));
+    }
+
+    @Override
+    public void printAccountStatement(UUID accountId, Instant from, Instant to) {
+        final var operations = operationRepository.getBetweenOrderByDateDesc(accountId, from, to);
+        final var closingBalance = operations.isEmpty()
+                ? getBalanceBefore(accountId, to)
+                : operations.get(0).newBalance();
+        stringPrinter.print(output ->
+                accountStatementFormatter.format(accountId, closingBalance, operations.iterator(), output));
+    }
+
+    @Override
+    public void printAccountStatement(UUID accountId, YearMonth month) {
+        final var from = month.atDay(1);
+        final var to = month.plusMonths(1).atDay(1);
+        final var end = to.atStartOfDay(clock.getZone()).toInstant();
+        final var operations = operationRepository.getBetweenOrderByDateDesc(
+                accountId, from.atStartOfDay(clock.getZone()).toInstant(), end);
+        final var closingBalance = operations.isEmpty()
+                ? getBalanceBefore(accountId, end)
+                : operations.get(0).newBalance();
+        final var summary = summarize(accountId, from, to).orElseGet(() -> Rollup.empty(from, to, closingBalance));
+        stringPrinter.print(output ->
+                accountStatementFormatter.format(accountId, closingBalance, summary, operations.iterator(), output));
+    }
+
+    @Override
+    public Optional<Rollup> summarize(UUID accountId, LocalDate from, LocalDate to) {
+        return operationRepository.getDailyRollups(accountId, from, to, clock.getZone()).stream()
+                .reduce(Rollup::followedBy);
+    }
+
+    @Override
+    public void exportAccountStatement(UUID accountId, AccountStatementExporter exporter) throws IOException {
+        try (var operations = operationRepository.streamAllOrderByDateDesc(accountId)) {
+            withBalance(operations.iterator(), (balance, statement) -> exporter.export(accountId, balance, statement));
+        }
+    }
+
+    /**
+     * Runs the call unless one with the same key was made, waiting for it if it is still running.
+     * A failed call is forgotten, so that its retry runs.
+     */
+    private <E extends Exception> Operation once(UUID accountId, String idempotencyKey, OperationTypes type,
+                                                 BigDecimal amount, IdempotentCall<E> call)
+            throws ZeroOrNegativeAmountException, AccountNotFoundException, E {
+        while (true) {
+            final var pending = new CompletableFuture<Operation>();
+            final var existing = idempotencyIndex.putIfAbsent(accountId, idempotencyKey, type, amount, pending);
+            if (existing == null) {
+                try {
+                    final var operation = call.apply();
+                    pending.complete(operation);
+                    return operation;
+                } catch (Throwable e) {
+                    idempotencyIndex.remove(accountId, idempotencyKey, pending);
+                    pending.completeExceptionally(e);
+                    throw e;
+                }
+            }
+            try {
+                return existing.join();
+            } catch (CompletionException | CancellationException e) {
+                // the first call failed and was forgotten: try again
+            }
+        }
+    }
+
+    private BigDecimal getBalanceBefore(UUID accountId, Instant dateTime) {
+        final var previousOperations = operationRepository.getPageOrderByDateDesc(
+                accountId, OperationCursor.startOf(dateTime), 1);
+        return previousOperations.isEmpty() ? Cents.toBigDecimal(0) : previousOperations.get(0).newBalance();
+    }
+
+    private void writeStatement(UUID accountId, Iterator<Operation> operations, Appendable output)
+            throws IOException {
+        withBalance(operations, (balance, statement) ->
+                accountStatementFormatter.format(accountId, balance, statement, output));
+    }
+
+    /**
+     * Hands the statement its balance, the one left by the most recent operation, along with all
+     * the operations.
+     */
+    private static void withBalance(Iterator<Operation> operations, StatementBody body) throws IOException {
+        if (!operations.hasNext()) {
+            body.write(BigDecimal.ZERO, operations);
+            return;
+        }
+        final var mostRecentOperation = operations.next();
+
+        final var actualBalance = mostRecentOperation.newBalance();
 
-        final var mostRecentOperation = operations.stream().findFirst();
+        body.write(actualBalance, new Iterator<>() {
+            private boolean mostRecentOperationPending = true;
 
-        final var actualBalance = mostRecentOperation
-                .map(Operation::newBalance)
-                .orElse(BigDecimal.ZERO);
+            @Override
+            public boolean hasNext() {
+                return mostRecentOperationPending || operations.hasNext();
+            }
 
-        final var statement = accountStatementFormatter.format(new Account(accountId, actualBalance, operations));
+            @Override
+            public Operation next() {
+                if (mostRecentOperationPending) {
+                    mostRecentOperationPending = false;
+                    return mostRecentOperation;
+                }
+                return operations.next();
+            }
+        });
+    }
 
-        stringPrinter.print(statement);
+    /**
+     * Returns the last operation of the account, or {@code null} for a registered account having none.
+     */
+    private Operation getLastOperation(UUID accountId) throws AccountNotFoundException {
+        final var lastOperation = operationRepository.getLastOperation(accountId).orElse(null);
+        if (isUnknown(accountId, lastOperation)) {
+            throw AccountNotFoundException.INSTANCE;
+        }
+        return lastOperation;
     }
 
-    private BigDecimal getCurrentBalance(UUID accountId) throws AccountNotFoundException {
-        final var optionalLastOperation = operationRepository.getLastOperation(accountId);
-        if (optionalLastOperation.isEmpty()) {
-            throw new AccountNotFoundException();
+    /**
+     * Returns why the account cannot be credited or debited, or {@code null} when it can. When the
+     * history defines accounts, the existence of an unregistered one is checked on its history instead.
+     */
+    private RejectionReason checkStatus(UUID accountId, boolean debit) {
+        final var status = accountRegistry.statusOf(accountId);
+        if (status == null) {
+            return historyDefinesAccounts ? null : RejectionReason.ACCOUNT_NOT_FOUND;
         }
-        return optionalLastOperation.get().newBalance();
+        return (debit ? status.acceptsDebits() : status.acceptsCredits()) ? null : RejectionReason.ACCOUNT_NOT_OPEN;
+    }
+
+    /**
+     * Returns the current date, or the date of the last operation if the clock is behind it, so that
+     * an operation never sorts before the one it follows in the balance chain.
+     */
+    private Instant dateAfter(Operation lastOperation) {
+        final var now = Instant.now(clock);
+        return lastOperation == null || !now.isBefore(lastOperation.dateTime()) ? now : lastOperation.dateTime();
+    }
+
+    private Instant dateAfter(Operation firstLastOperation, Operation secondLastOperation) {
+        final var date = dateAfter(firstLastOperation);
+        return secondLastOperation == null || !date.isBefore(secondLastOperation.dateTime())
+                ? date
+                : secondLastOperation.dateTime();
+    }
+
+    /**
+     * Returns whether the account without operations was never opened either.
+     */
+    private boolean isUnknown(UUID accountId, Operation lastOperation) {
+        return lastOperation == null && historyDefinesAccounts && accountRegistry.statusOf(accountId) == null;
+    }
+
+    /**
+     * Returns the status of the account, registering it as open first when only its history defines it.
+     */
+    private AccountStatus statusOf(UUID accountId) {
+        final var status = accountRegistry.statusOf(accountId);
+        if (status != null || !historyDefinesAccounts || operationRepository.getLastOperation(accountId).isEmpty()) {
+            return status;
+        }
+        accountRegistry.open(accountId);
+        return accountRegistry.statusOf(accountId);
+    }
+
+    private ReentrantReadWriteLock statusLockOf(UUID accountId) {
+        return statusLocks[accountId.hashCode() & (STATUS_LOCK_STRIPES - 1)];
+    }
+
+    private static void throwIfRejected(RejectionReason reason) throws AccountNotFoundException {
+        if (reason == RejectionReason.ACCOUNT_NOT_OPEN) {
+            throw AccountNotOpenException.INSTANCE;
+        }
+        if (reason != null) {
+            throw AccountNotFoundException.INSTANCE;
+        }
+    }
+
+    private static long balanceOf(Operation lastOperation) {
+        return lastOperation == null ? 0 : Cents.ofExact(lastOperation.newBalance());
+    }
+
+    @FunctionalInterface
+    private interface StatementBody {
+        void write(BigDecimal balance, Iterator<Operation> operations) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface IdempotentCall<E extends Exception> {
+        Operation apply() throws ZeroOrNegativeAmountException, AccountNotFoundException, E;
     }
 }
@@ -0,0 +1,132 @@
+package io.gerard.services;
+
+import io.gerard.models.BulkStatementProgress;
+
+import java.io.IOException;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Exports the statement of every account, in account id order and in batches: the accounts of a
+ * batch are spread over {@code parallelism} virtual threads, and once the whole batch is exported
+ * its last account id is written to the checkpoint file. A run finding a checkpoint resumes after
+ * it; a run that completes deletes it.
+ * <p>
+ * The exporter is called concurrently when {@code parallelism} is above one, so it must be safe to
+ * share between threads.
+ */
+public class BulkStatementJob {
+    private final OperationRepository operationRepository;
+    private final BankAccountService bankAccountService;
+    private final AccountStatementExporter exporter;
+    private final Path checkpoint;
+    private final int parallelism;
+    private final int batchSize;
+
+    public BulkStatementJob(OperationRepository operationRepository, BankAccountService bankAccountService,
+                            AccountStatementExporter exporter, Path checkpoint, int parallelism, int batchSize) {
+        if (parallelism <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("parallelism and batchSize must be positive");
+        }
+        this.operationRepository = operationRepository;
+        this.bankAccountService = bankAccountService;
+        this.exporter = exporter;
+        this.checkpoint = checkpoint;
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Runs the job to completion, reporting progress after each batch. The first failure stops the
+     * job once its batch is over, leaving the checkpoint at the previous batch.
+     */
+    public BulkStatementProgress run(Consumer<BulkStatementProgress> progressListener)
+            throws IOException, InterruptedException {
+        final var start = System.nanoTime();
+        final var resumeAfter = readCheckpoint();
+        final UUID[] accountIds;
+        final long resumed;
+        try (var ids = operationRepository.streamAccountIds()) {
+            final var all = ids.sorted().toArray(UUID[]::new);
+            final var from = resumeAfter == null ? 0 : firstAfter(all, resumeAfter);
+            accountIds = from == 0 ? all : Arrays.copyOfRange(all, from, all.length);
+            resumed = from;
+        }
+        var progress = new BulkStatementProgress(0, accountIds.length, resumed, Duration.ZERO);
+        for (int from = 0; from < accountIds.length; from += batchSize) {
+            final var to = Math.min(from + batchSize, accountIds.length);
+            exportBatch(accountIds, from, to);
+            writeCheckpoint(accountIds[to - 1]);
+            progress = new BulkStatementProgress(to, accountIds.length, resumed,
+                    Duration.ofNanos(System.nanoTime() - start));
+            progressListener.accept(progress);
+        }
+        Files.deleteIfExists(checkpoint);
+        return progress;
+    }
+
+    /**
+     * Exports the accounts of the batch, then rethrows the first failure of any worker, errors
+     * included, so that the checkpoint never moves past an account that was not exported.
+     */
+    private void exportBatch(UUID[] accountIds, int from, int to) throws IOException, InterruptedException {
+        final var next = new AtomicInteger(from);
+        final var failure = new AtomicReference<Throwable>();
+        final var workers = new ArrayList<Thread>(parallelism);
+        for (int i = 0; i < Math.min(parallelism, to - from); i++) {
+            workers.add(Thread.ofVirtual().name("bulk-statement-", i).start(() -> {
+                for (var index = next.getAndIncrement(); index < to && failure.get() == null;
+                     index = next.getAndIncrement()) {
+                    try {
+                        bankAccountService.exportAccountStatement(accountIds[index], exporter);
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            }));
+        }
+        for (final var worker : workers) {
+            worker.join();
+        }
+        switch (failure.get()) {
+            case null -> {
+            }
+            case IOException e -> throw e;
+            case RuntimeException e -> throw e;
+            case Error e -> throw e;
+            case Throwable e -> throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    private UUID readCheckpoint() throws IOException {
+        if (!Files.exists(checkpoint)) {
+            return null;
+        }
+        try {
+            return UUID.fromString(Files.readString(checkpoint, StandardCharsets.US_ASCII).trim());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unreadable checkpoint " + checkpoint, e);
+        }
+    }
+
+    private void writeCheckpoint(UUID lastExported) throws IOException {
+        final var temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        Files.writeString(temporary, lastExported.toString(), StandardCharsets.US_ASCII);
+        Files.move(temporary, checkpoint, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static int firstAfter(UUID[] sortedAccountIds, UUID accountId) {
+        final var index = Arrays.binarySearch(sortedAccountIds, accountId);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+}
@@ -0,0 +1,191 @@
+package io.gerard.services;
+
+import io.gerard.models.Operation;
+import io.gerard.models.OperationTypes;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Remembers the operation made for each (account, idempotency key) pair, for between one and two
+ * {@code window}s. Keys live in two generations: a new one is started when the current one is a
+ * window old or holds {@code capacity} keys, and the oldest is dropped, so memory stays bounded
+ * by two generations whatever the traffic.
+ * <p>
+ * Each generation has a Bloom filter in front of its map, filled before a key is inserted: a new
+ * key, the vast majority, is checked against the previous generation with a few bit reads and only
+ * costs one insertion in the current one.
+ * <p>
+ * Lookups and insertions share a read lock that rotation takes exclusively, so a key inserted in a
+ * generation about to become the previous one is always seen by the lookups that follow the rotation.
+ */
+public class IdempotencyIndex {
+    public static final Duration DEFAULT_WINDOW = Duration.ofHours(24);
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    private static final int BITS_PER_KEY = 10;
+    private static final int HASHES = 7;
+
+    private final Clock clock;
+    private final Duration window;
+    private final int capacity;
+    private final StampedLock rotationLock = new StampedLock();
+    private volatile Generations generations;
+
+    public IdempotencyIndex(Clock clock, Duration window, int capacity) {
+        if (window.isNegative() || window.isZero() || capacity <= 0) {
+            throw new IllegalArgumentException("window and capacity must be positive");
+        }
+        this.clock = clock;
+        this.window = window;
+        this.capacity = capacity;
+        this.generations = new Generations(new Generation(Instant.now(clock), capacity), Generation.EMPTY);
+    }
+
+    public IdempotencyIndex(Clock clock) {
+        this(clock, DEFAULT_WINDOW, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Registers {@code pending} as the result of the operation for the key unless one is already
+     * registered, in which case that one is returned and {@code pending} is ignored.
+     *
+     * @throws IllegalArgumentException if the key was registered for an operation of another type or amount
+     */
+    public CompletableFuture<Operation> putIfAbsent(UUID accountId, String idempotencyKey, OperationTypes type,
+                                                    BigDecimal amount, CompletableFuture<Operation> pending) {
+        final var key = new Key(accountId, idempotencyKey);
+        final var hash = hash(key);
+        final var entry = new Entry(type, amount, pending);
+        rotateIfDue();
+        final var stamp = rotationLock.readLock();
+        try {
+            final var current = generations;
+            var existing = current.previous().get(key, hash);
+            if (existing == null) {
+                existing = current.current().putIfAbsent(key, hash, entry);
+            }
+            if (existing == null) {
+                return null;
+            }
+            if (existing.type() != type || existing.amount().compareTo(amount) != 0) {
+                throw new IllegalArgumentException(
+                        "Idempotency key " + idempotencyKey + " was used for another " + existing.type());
+            }
+            return existing.result();
+        } finally {
+            rotationLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Forgets the key if it is still registered with {@code pending}, so that it can be tried again.
+     */
+    public void remove(UUID accountId, String idempotencyKey, CompletableFuture<Operation> pending) {
+        final var key = new Key(accountId, idempotencyKey);
+        final var current = generations;
+        current.current().remove(key, pending);
+        current.previous().remove(key, pending);
+    }
+
+    private void rotateIfDue() {
+        if (!generations.current().isDue(Instant.now(clock), window, capacity)) {
+            return;
+        }
+        final var stamp = rotationLock.writeLock();
+        try {
+            final var current = generations;
+            if (current.current().isDue(Instant.now(clock), window, capacity)) {
+                generations = new Generations(new Generation(Instant.now(clock), capacity), current.current());
+            }
+        } finally {
+            rotationLock.unlockWrite(stamp);
+        }
+    }
+
+    private static long hash(Key key) {
+        var hash = key.accountId().getMostSignificantBits() * 31 + key.accountId().getLeastSignificantBits();
+        hash = hash * 31 + key.idempotencyKey().hashCode();
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    private record Key(UUID accountId, String idempotencyKey) {
+    }
+
+    private record Entry(OperationTypes type, BigDecimal amount, CompletableFuture<Operation> result) {
+    }
+
+    private record Generations(Generation current, Generation previous) {
+    }
+
+    private static final class Generation {
+        private static final Generation EMPTY = new Generation(Instant.MIN, 1);
+
+        private final Instant start;
+        private final AtomicLongArray bloom;
+        private final int bloomBits;
+        private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        Generation(Instant start, int capacity) {
+            this.start = start;
+            this.bloomBits = Math.max(64, (int) Math.min(Integer.MAX_VALUE - 63L, (long) capacity * BITS_PER_KEY));
+            this.bloom = new AtomicLongArray((bloomBits + 63) / 64);
+        }
+
+        boolean isDue(Instant now, Duration window, int capacity) {
+            return size.get() >= capacity || !now.isBefore(start.plus(window));
+        }
+
+        Entry get(Key key, long hash) {
+            return mightContain(hash) ? entries.get(key) : null;
+        }
+
+        Entry putIfAbsent(Key key, long hash, Entry entry) {
+            addToBloom(hash);
+            final var existing = entries.putIfAbsent(key, entry);
+            if (existing == null) {
+                size.incrementAndGet();
+            }
+            return existing;
+        }
+
+        void remove(Key key, CompletableFuture<Operation> pending) {
+            entries.computeIfPresent(key, (ignored, entry) -> entry.result() == pending ? null : entry);
+        }
+
+        private boolean mightContain(long hash) {
+            final var first = (int) hash;
+            final var second = (int) (hash >>> 32);
+            for (int i = 0; i < HASHES; i++) {
+                final var bit = Math.floorMod(first + i * second, bloomBits);
+                if ((bloom.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void addToBloom(long hash) {
+            final var first = (int) hash;
+            final var second = (int) (hash >>> 32);
+            for (int i = 0; i < HASHES; i++) {
+                final var bit = Math.floorMod(first + i * second, bloomBits);
+                final var mask = 1L << bit;
+                bloom.getAndUpdate(bit >>> 6, word -> word | mask);
+            }
+        }
+    }
+}
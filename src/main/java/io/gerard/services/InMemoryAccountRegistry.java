@@ -0,0 +1,29 @@
+package io.gerard.services;
+
+import io.gerard.models.AccountStatus;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry kept on the heap, for services whose accounts are only registered once opened, frozen or
+ * closed through the service.
+ */
+class InMemoryAccountRegistry implements AccountRegistry {
+    private final ConcurrentHashMap<UUID, AccountStatus> statuses = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean open(UUID accountId) {
+        return statuses.putIfAbsent(accountId, AccountStatus.OPEN) == null;
+    }
+
+    @Override
+    public AccountStatus statusOf(UUID accountId) {
+        return statuses.get(accountId);
+    }
+
+    @Override
+    public boolean compareAndSetStatus(UUID accountId, AccountStatus expected, AccountStatus status) {
+        return statuses.replace(accountId, expected, status);
+    }
+}
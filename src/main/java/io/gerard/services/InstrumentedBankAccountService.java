@@ -0,0 +1,221 @@
+package io.gerard.services;
+
+import io.gerard.exceptions.AccountNotFoundException;
+import io.gerard.exceptions.NonZeroBalanceException;
+import io.gerard.exceptions.NotEnoughFundsException;
+import io.gerard.exceptions.SameAccountTransferException;
+import io.gerard.exceptions.ZeroOrNegativeAmountException;
+import io.gerard.models.Movement;
+import io.gerard.models.Operation;
+import io.gerard.models.OperationResult;
+import io.gerard.models.Rollup;
+import io.gerard.models.Transfer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public class InstrumentedBankAccountService implements BankAccountService {
+    private final BankAccountService delegate;
+    private final OperationMetrics deposits;
+    private final OperationMetrics withdrawals;
+    private final OperationMetrics transfers;
+    private final OperationMetrics batches;
+    private final OperationMetrics statements;
+    private final OperationMetrics exports;
+
+    public InstrumentedBankAccountService(BankAccountService delegate, MetricsRegistry registry) {
+        this.delegate = delegate;
+        this.deposits = registry.metrics("service.deposit");
+        this.withdrawals = registry.metrics("service.withdraw");
+        this.transfers = registry.metrics("service.transfer");
+        this.batches = registry.metrics("service.applyBatch");
+        this.statements = registry.metrics("service.printAccountStatement");
+        this.exports = registry.metrics("service.exportAccountStatement");
+    }
+
+    @Override
+    public Operation deposit(UUID accountId, BigDecimal amount)
+            throws ZeroOrNegativeAmountException, AccountNotFoundException {
+        final var start = System.nanoTime();
+        try {
+            final var operation = delegate.deposit(accountId, amount);
+            deposits.record(start);
+            return operation;
+        } catch (Exception e) {
+            deposits.recordError(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Operation withdraw(UUID accountId, BigDecimal amount)
+            throws ZeroOrNegativeAmountException, AccountNotFoundException, NotEnoughFundsException {
+        final var start = System.nanoTime();
+        try {
+            final var operation = delegate.withdraw(accountId, amount);
+            withdrawals.record(start);
+            return operation;
+        } catch (Exception e) {
+            withdrawals.recordError(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public OperationResult tryDeposit(UUID accountId, BigDecimal amount) {
+        final var start = System.nanoTime();
+        final var result = delegate.tryDeposit(accountId, amount);
+        deposits.record(start, result);
+        return result;
+    }
+
+    @Override
+    public OperationResult tryWithdraw(UUID accountId, BigDecimal amount) {
+        final var start = System.nanoTime();
+        final var result = delegate.tryWithdraw(accountId, amount);
+        withdrawals.record(start, result);
+        return result;
+    }
+
+    @Override
+    public Operation deposit(UUID accountId, BigDecimal amount, String idempotencyKey)
+            throws ZeroOrNegativeAmountException, AccountNotFoundException {
+        final var start = System.nanoTime();
+        try {
+            final var operation = delegate.deposit(accountId, amount, idempotencyKey);
+            deposits.record(start);
+            return operation;
+        } catch (Exception e) {
+            deposits.recordError(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Operation withdraw(UUID accountId, BigDecimal amount, String idempotencyKey)
+            throws ZeroOrNegativeAmountException, AccountNotFoundException, NotEnoughFundsException {
+        final var start = System.nanoTime();
+        try {
+            final var operation = delegate.withdraw(accountId, amount, idempotencyKey);
+            withdrawals.record(start);
+            return operation;
+        } catch (Exception e) {
+            withdrawals.recordError(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Transfer transfer(UUID fromAccountId, UUID toAccountId, BigDecimal amount)
+            throws ZeroOrNegativeAmountException, AccountNotFoundException, NotEnoughFundsException,
+            SameAccountTransferException {
+        final var start = System.nanoTime();
+        try {
+            final var transfer = delegate.transfer(fromAccountId, toAccountId, amount);
+            transfers.record(start);
+            return transfer;
+        } catch (Exception e) {
+            transfers.recordError(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<OperationResult> applyBatch(List<Movement> movements) {
+        final var start = System.nanoTime();
+        try {
+            final var results = delegate.applyBatch(movements);
+            batches.record(start);
+            return results;
+        } catch (RuntimeException e) {
+            batches.recordError(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean openAccount(UUID accountId) {
+        return delegate.openAccount(accountId);
+    }
+
+    @Override
+    public void freezeAccount(UUID accountId) throws AccountNotFoundException {
+        delegate.freezeAccount(accountId);
+    }
+
+    @Override
+    public void closeAccount(UUID accountId) throws AccountNotFoundException, NonZeroBalanceException {
+        delegate.closeAccount(accountId);
+    }
+
+    @Override
+    public void printAccountStatement(UUID accountId) {
+        final var start = System.nanoTime();
+        try {
+            delegate.printAccountStatement(accountId);
+            statements.record(start);
+        } catch (RuntimeException e) {
+            statements.recordError(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void printAccountStatement(UUID accountId, int lastOperations) {
+        final var start = System.nanoTime();
+        try {
+            delegate.printAccountStatement(accountId, lastOperations);
+            statements.record(start);
+        } catch (RuntimeException e) {
+            statements.recordError(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void printAccountStatement(UUID accountId, Instant from, Instant to) {
+        final var start = System.nanoTime();
+        try {
+            delegate.printAccountStatement(accountId, from, to);
+            statements.record(start);
+        } catch (RuntimeException e) {
+            statements.recordError(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void printAccountStatement(UUID accountId, YearMonth month) {
+        final var start = System.nanoTime();
+        try {
+            delegate.printAccountStatement(accountId, month);
+            statements.record(start);
+        } catch (RuntimeException e) {
+            statements.recordError(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<Rollup> summarize(UUID accountId, LocalDate from, LocalDate to) {
+        return delegate.summarize(accountId, from, to);
+    }
+
+    @Override
+    public void exportAccountStatement(UUID accountId, AccountStatementExporter exporter) throws IOException {
+        final var start = System.nanoTime();
+        try {
+            delegate.exportAccountStatement(accountId, exporter);
+            exports.record(start);
+        } catch (Exception e) {
+            exports.recordError(start, e);
+            throw e;
+        }
+    }
+}
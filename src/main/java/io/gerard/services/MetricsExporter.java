@@ -0,0 +1,9 @@
+package io.gerard.services;
+
+import io.gerard.models.MetricSnapshot;
+
+import java.util.List;
+
+public interface MetricsExporter {
+    void export(List<MetricSnapshot> snapshots);
+}
@@ -0,0 +1,30 @@
+package io.gerard.services;
+
+import io.gerard.models.MetricSnapshot;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class MetricsRegistry {
+    private final ConcurrentHashMap<String, OperationMetrics> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the metrics of the given name, created on first use. Instrumented components look their
+     * metrics up once at construction so that recording never goes through the registry.
+     */
+    public OperationMetrics metrics(String name) {
+        return metrics.computeIfAbsent(name, OperationMetrics::new);
+    }
+
+    public List<MetricSnapshot> snapshot() {
+        return metrics.values().stream()
+                .map(OperationMetrics::snapshot)
+                .sorted(Comparator.comparing(MetricSnapshot::name))
+                .toList();
+    }
+
+    public void exportTo(MetricsExporter exporter) {
+        exporter.export(snapshot());
+    }
+}
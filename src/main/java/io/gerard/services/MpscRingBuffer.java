@@ -0,0 +1,69 @@
+package io.gerard.services;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer. Producers claim a slot by
+ * advancing the tail and then publish their element into it; the consumer reads slots in claim
+ * order and stops at the first one not published yet.
+ */
+public final class MpscRingBuffer<T> {
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    public MpscRingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a positive power of two");
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Returns {@code false} without enqueuing when the buffer is full.
+     */
+    public boolean offer(T element) {
+        if (element == null) {
+            throw new NullPointerException("element");
+        }
+        while (true) {
+            final var claimed = tail.get();
+            if (claimed - head.get() > mask) {
+                return false;
+            }
+            if (tail.compareAndSet(claimed, claimed + 1)) {
+                slots.set((int) claimed & mask, element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Hands at most {@code limit} published elements to the consumer, in claim order. Must only be
+     * called from the consumer thread.
+     */
+    public int drain(Consumer<? super T> consumer, int limit) {
+        var current = head.get();
+        var drained = 0;
+        while (drained < limit) {
+            final var index = (int) current & mask;
+            final var element = slots.get(index);
+            if (element == null) {
+                break;
+            }
+            slots.lazySet(index, null);
+            head.lazySet(++current);
+            drained++;
+            consumer.accept(element);
+        }
+        return drained;
+    }
+
+    public boolean isEmpty() {
+        return slots.get((int) head.get() & mask) == null;
+    }
+}
@@ -0,0 +1,233 @@
+package io.gerard.services;
+
+import io.gerard.models.Operation;
+import io.gerard.models.OperationEvent;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Change feed of the operations published to it. The last {@code retention} events are kept in a
+ * ring shared by all subscribers, each of which reads it at its own pace from its own sequence, so
+ * that the ring is the bounded buffer of every subscriber and publishing never waits for one.
+ * <p>
+ * Each subscription delivers on the executor, as many events per run as were requested and
+ * published, and is only scheduled again once it ran out. A subscriber falling more than
+ * {@code retention} events behind the feed is failed with {@link LaggingSubscriberException} and can
+ * subscribe again from the sequence of the last event it handled. A subscriber whose delivery the
+ * executor rejects is failed with the rejection. Sequences restart from zero with every feed.
+ */
+public class OperationFeed implements Flow.Publisher<OperationEvent>, AutoCloseable {
+    public static final int DEFAULT_RETENTION = 1 << 16;
+
+    private final AtomicReferenceArray<OperationEvent> ring;
+    private final int mask;
+    private final Executor executor;
+    private final List<FeedSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile long nextSequence;
+    private volatile boolean closed;
+
+    public OperationFeed(int retention, Executor executor) {
+        if (retention <= 0 || Integer.bitCount(retention) != 1) {
+            throw new IllegalArgumentException("retention must be a positive power of two");
+        }
+        this.ring = new AtomicReferenceArray<>(retention);
+        this.mask = retention - 1;
+        this.executor = executor;
+    }
+
+    /**
+     * Feed delivering on virtual threads.
+     */
+    public OperationFeed(int retention) {
+        this(retention, Thread::startVirtualThread);
+    }
+
+    /**
+     * Appends the operations to the feed in order, and returns the sequence of the first one. Callers
+     * publishing operations of the same account must do so in the order they were recorded.
+     */
+    public long publish(List<Operation> operations) {
+        final long first;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Feed is closed");
+            }
+            first = nextSequence;
+            var sequence = first;
+            for (final var operation : operations) {
+                ring.set((int) sequence & mask, new OperationEvent(sequence, operation));
+                sequence++;
+            }
+            nextSequence = sequence;
+        }
+        subscriptions.forEach(FeedSubscription::signal);
+        return first;
+    }
+
+    /**
+     * Sequence the next published operation will get.
+     */
+    public long nextSequence() {
+        return nextSequence;
+    }
+
+    /**
+     * Subscribes from the next published operation.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super OperationEvent> subscriber) {
+        subscribe(subscriber, nextSequence);
+    }
+
+    /**
+     * Subscribes from the event of the given sequence, which must still be retained. The subscription
+     * only gets signalled by publications once {@code onSubscribe} returned.
+     */
+    public void subscribe(Flow.Subscriber<? super OperationEvent> subscriber, long fromSequence) {
+        final var subscription = new FeedSubscription(subscriber, fromSequence);
+        subscription.signals.incrementAndGet();
+        subscriber.onSubscribe(subscription);
+        if (!subscription.cancelled) {
+            subscriptions.add(subscription);
+        }
+        subscription.schedule();
+    }
+
+    /**
+     * Stops accepting operations; subscribers complete once they received every event published.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        subscriptions.forEach(FeedSubscription::signal);
+    }
+
+    /**
+     * Failure of a subscriber whose next event was dropped from the retention ring.
+     */
+    public static class LaggingSubscriberException extends IllegalStateException {
+        private final long sequence;
+
+        LaggingSubscriberException(long sequence) {
+            super("Event " + sequence + " is no longer retained");
+            this.sequence = sequence;
+        }
+
+        public long sequence() {
+            return sequence;
+        }
+    }
+
+    private final class FeedSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super OperationEvent> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger signals = new AtomicInteger();
+        private long next;
+        private volatile Throwable invalidRequest;
+        private volatile boolean cancelled;
+
+        FeedSubscription(Flow.Subscriber<? super OperationEvent> subscriber, long fromSequence) {
+            this.subscriber = subscriber;
+            this.next = fromSequence;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Requested " + n + " events");
+            } else {
+                demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        void signal() {
+            if (signals.getAndIncrement() == 0) {
+                schedule();
+            }
+        }
+
+        /**
+         * Runs the subscription on the executor, which only the caller that took the first signal may do.
+         */
+        void schedule() {
+            try {
+                executor.execute(this);
+            } catch (RuntimeException e) {
+                cancel();
+                subscriber.onError(e);
+            }
+        }
+
+        /**
+         * Delivers until it runs out of demand or events, then goes again if it was signalled meanwhile.
+         */
+        @Override
+        public void run() {
+            var missed = 1;
+            while (!cancelled) {
+                if (!deliver()) {
+                    cancel();
+                    return;
+                }
+                missed = signals.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Returns {@code false} once the subscriber got its terminal signal.
+         */
+        private boolean deliver() {
+            if (invalidRequest != null) {
+                subscriber.onError(invalidRequest);
+                return false;
+            }
+            final var published = nextSequence;
+            if (next > published) {
+                subscriber.onError(new IllegalArgumentException("Event " + next + " was not published yet"));
+                return false;
+            }
+            if (next < published - ring.length()) {
+                subscriber.onError(new LaggingSubscriberException(next));
+                return false;
+            }
+            var delivered = 0L;
+            final var requested = demand.get();
+            while (delivered < requested && next < nextSequence && !cancelled) {
+                final var event = ring.get((int) next & mask);
+                if (event.sequence() != next) {
+                    subscriber.onError(new LaggingSubscriberException(next));
+                    return false;
+                }
+                subscriber.onNext(event);
+                next++;
+                delivered++;
+            }
+            if (delivered > 0 && requested != Long.MAX_VALUE) {
+                demand.addAndGet(-delivered);
+            }
+            if (closed && next == nextSequence && !cancelled) {
+                subscriber.onComplete();
+                return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package io.gerard.services;
+
+import io.gerard.exceptions.AccountNotFoundException;
+import io.gerard.exceptions.AccountNotOpenException;
+import io.gerard.exceptions.NotEnoughFundsException;
+import io.gerard.exceptions.ZeroOrNegativeAmountException;
+import io.gerard.models.MetricSnapshot;
+import io.gerard.models.OperationResult;
+
+import java.util.Collections;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call count, latency histogram and error counts by exception type of one instrumented operation.
+ * Callers take {@link System#nanoTime()} before the call and hand it to {@link #record} or
+ * {@link #recordError} afterwards, or to {@link #record(long, OperationResult)} for calls returning
+ * their rejections.
+ */
+public final class OperationMetrics {
+    private final String name;
+    private final LongAdder calls = new LongAdder();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final ConcurrentHashMap<Class<?>, LongAdder> errors = new ConcurrentHashMap<>();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public void record(long startNanos) {
+        calls.increment();
+        latencies.record(System.nanoTime() - startNanos);
+    }
+
+    public void recordError(long startNanos, Exception error) {
+        record(startNanos);
+        errors.computeIfAbsent(error.getClass(), type -> new LongAdder()).increment();
+    }
+
+    /**
+     * Counts a rejection as an error of the exception the throwing variant of the call would have thrown.
+     */
+    public void record(long startNanos, OperationResult result) {
+        record(startNanos);
+        if (!(result instanceof OperationResult.Rejected rejected)) {
+            return;
+        }
+        final var type = switch (rejected.reason()) {
+            case ZERO_OR_NEGATIVE_AMOUNT -> ZeroOrNegativeAmountException.class;
+            case ACCOUNT_NOT_FOUND -> AccountNotFoundException.class;
+            case ACCOUNT_NOT_OPEN -> AccountNotOpenException.class;
+            case NOT_ENOUGH_FUNDS -> NotEnoughFundsException.class;
+            case UNSUPPORTED_OPERATION_TYPE -> IllegalArgumentException.class;
+            case AMOUNT_OUT_OF_RANGE -> ArithmeticException.class;
+        };
+        errors.computeIfAbsent(type, key -> new LongAdder()).increment();
+    }
+
+    public MetricSnapshot snapshot() {
+        final var latency = latencies.snapshot();
+        final var errorCounts = new TreeMap<String, Long>();
+        errors.forEach((type, count) -> errorCounts.put(type.getSimpleName(), count.sum()));
+        return new MetricSnapshot(
+                name,
+                calls.sum(),
+                Collections.unmodifiableSortedMap(errorCounts),
+                latency.percentile(50),
+                latency.percentile(90),
+                latency.percentile(99),
+                latency.percentile(99.9),
+                latency.max()
+        );
+    }
+}
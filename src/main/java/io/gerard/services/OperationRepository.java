@@ -1,13 +1,73 @@
 package io.gerard.services;
 
 import io.gerard.models.Operation;
+import io.gerard.models.OperationCursor;
+import io.gerard.models.Rollup;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface OperationRepository {
     Optional<Operation> getLastOperation(UUID accountId);
     Operation add(Operation operation);
+
+    /**
+     * Appends the operation only if the account's last operation is still {@code expectedLastOperation}
+     * (compared by operation id, {@code null} meaning the account has no operation yet).
+     * Returns {@code false} without appending when another operation got in first.
+     */
+    boolean compareAndAdd(Operation expectedLastOperation, Operation operation);
+
+    /**
+     * Same as {@link #compareAndAdd} for several operations of one account, appended in order behind a
+     * single comparison.
+     */
+    boolean compareAndAddAll(Operation expectedLastOperation, List<Operation> operations);
+
+    /**
+     * Appends one operation to each of two different accounts, both or neither, if each account's last
+     * operation is still the expected one. Implementations lock the two accounts in account id order.
+     */
+    boolean compareAndAddPair(Operation expectedFirstLastOperation, Operation first,
+                              Operation expectedSecondLastOperation, Operation second);
+
     List<Operation> getAllOrderByDateDesc(UUID accountId);
+
+    /**
+     * Lazily reads the same operations as {@link #getAllOrderByDateDesc} without materializing them all.
+     */
+    Stream<Operation> streamAllOrderByDateDesc(UUID accountId);
+
+    /**
+     * Operations made from {@code from} inclusive to {@code to} exclusive, most recent first.
+     */
+    List<Operation> getBetweenOrderByDateDesc(UUID accountId, Instant from, Instant to);
+
+    /**
+     * At most {@code limit} operations sorting strictly before {@code before}, most recent first;
+     * a {@code null} cursor starts from the most recent operation. Passing the cursor of the last
+     * operation returned reads the next page.
+     */
+    List<Operation> getPageOrderByDateDesc(UUID accountId, OperationCursor before, int limit);
+
+    /**
+     * Ids of all accounts having at least one operation, in no particular order.
+     */
+    Stream<UUID> streamAccountIds();
+
+    /**
+     * Rollups of the days from {@code from} inclusive to {@code to} exclusive on which the account has
+     * operations, oldest first, days starting at midnight in the zone. Computed from the operations of
+     * the period unless the repository maintains them.
+     */
+    default List<Rollup> getDailyRollups(UUID accountId, LocalDate from, LocalDate to, ZoneId zone) {
+        final var operations = getBetweenOrderByDateDesc(accountId,
+                from.atStartOfDay(zone).toInstant(), to.atStartOfDay(zone).toInstant());
+        return RollupAccumulator.daily(operations, zone);
+    }
 }
@@ -0,0 +1,100 @@
+package io.gerard.services;
+
+import io.gerard.models.Cents;
+import io.gerard.models.Operation;
+import io.gerard.models.OperationTypes;
+import io.gerard.models.Rollup;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Running totals, in cents, of the operations of one account on one day. The balance range includes
+ * the opening balance, the one before the earliest operation, and the closing balance is the one left
+ * by the latest, whatever order the operations are fed in; operations of the same instant count in
+ * the order they were fed.
+ */
+public final class RollupAccumulator {
+    private final LocalDate day;
+    private long credits;
+    private long creditCents;
+    private long debits;
+    private long debitCents;
+    private long minBalanceCents = Long.MAX_VALUE;
+    private long maxBalanceCents = Long.MIN_VALUE;
+    private long openingBalanceCents;
+    private long closingBalanceCents;
+    private Instant openingDateTime;
+    private Instant closingDateTime;
+
+    public RollupAccumulator(LocalDate day) {
+        this.day = day;
+    }
+
+    /**
+     * Rollups of the days of the operations, oldest first.
+     */
+    public static List<Rollup> daily(List<Operation> operationsOrderByDateDesc, ZoneId zone) {
+        final var rollups = new ArrayList<Rollup>();
+        RollupAccumulator current = null;
+        for (int i = operationsOrderByDateDesc.size() - 1; i >= 0; i--) {
+            final var operation = operationsOrderByDateDesc.get(i);
+            final var day = LocalDate.ofInstant(operation.dateTime(), zone);
+            if (current == null || !current.day.equals(day)) {
+                if (current != null) {
+                    rollups.add(current.toRollup());
+                }
+                current = new RollupAccumulator(day);
+            }
+            current.add(operation);
+        }
+        if (current != null) {
+            rollups.add(current.toRollup());
+        }
+        return rollups;
+    }
+
+    public void add(Operation operation) {
+        final var amount = Cents.ofExact(operation.amount());
+        final var balance = Cents.ofExact(operation.newBalance());
+        final long opening;
+        if (operation.operationType() == OperationTypes.DEPOSIT
+                || operation.operationType() == OperationTypes.TRANSFER_IN) {
+            credits++;
+            creditCents = Cents.add(creditCents, amount);
+            opening = Cents.subtract(balance, amount);
+        } else {
+            debits++;
+            debitCents = Cents.add(debitCents, amount);
+            opening = Cents.add(balance, amount);
+        }
+        final var dateTime = operation.dateTime();
+        if (openingDateTime == null || dateTime.isBefore(openingDateTime)) {
+            openingDateTime = dateTime;
+            openingBalanceCents = opening;
+        }
+        if (closingDateTime == null || !dateTime.isBefore(closingDateTime)) {
+            closingDateTime = dateTime;
+            closingBalanceCents = balance;
+        }
+        minBalanceCents = Math.min(minBalanceCents, balance);
+        maxBalanceCents = Math.max(maxBalanceCents, balance);
+    }
+
+    public Rollup toRollup() {
+        return new Rollup(
+                day,
+                day.plusDays(1),
+                credits,
+                Cents.toBigDecimal(creditCents),
+                debits,
+                Cents.toBigDecimal(debitCents),
+                Cents.toBigDecimal(Math.min(minBalanceCents, openingBalanceCents)),
+                Cents.toBigDecimal(Math.max(maxBalanceCents, openingBalanceCents)),
+                Cents.toBigDecimal(closingBalanceCents)
+        );
+    }
+}
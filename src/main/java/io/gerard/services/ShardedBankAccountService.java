@@ -0,0 +1,246 @@
+package io.gerard.services;
+
+import io.gerard.exceptions.AccountNotFoundException;
+import io.gerard.exceptions.AccountNotOpenException;
+import io.gerard.exceptions.NotEnoughFundsException;
+import io.gerard.exceptions.ZeroOrNegativeAmountException;
+import io.gerard.models.Cents;
+import io.gerard.models.Operation;
+import io.gerard.models.OperationTypes;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Runs deposits and withdrawals on single-threaded shards. Accounts are partitioned by id hash;
+ * each shard drains its own ring buffer in arrival order and is the only writer of its accounts,
+ * keeping their last operation in a plain map, so no lock is taken on the balance path.
+ * The repository is still written with {@code compareAndAdd}, which lets the shard reload and
+ * retry if something outside this service wrote to one of its accounts.
+ * <p>
+ * The status of the account is read from the {@link AccountRegistry} on the shard, right before each
+ * operation, with the same rules as {@link BankAccountServiceImpl}: an account opened without any
+ * operation yet has a zero balance, a frozen one only accepts deposits and a closed one nothing.
+ * <p>
+ * Returned futures are completed on the shard thread: dependent stages should use the async
+ * variants to keep the shard free.
+ */
+public class ShardedBankAccountService implements AutoCloseable {
+    private static final int DRAIN_LIMIT = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final OperationRepository operationRepository;
+    private final Clock clock;
+    private final Supplier<UUID> uuidGenerator;
+    private final AccountRegistry accountRegistry;
+    private final boolean historyDefinesAccounts;
+    private final Shard[] shards;
+    private volatile boolean closed;
+
+    ShardedBankAccountService(OperationRepository operationRepository, int shardCount, int queueCapacity,
+                              Clock clock, Supplier<UUID> uuidGenerator, AccountRegistry accountRegistry,
+                              boolean historyDefinesAccounts) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shardCount must be positive");
+        }
+        this.operationRepository = operationRepository;
+        this.clock = clock;
+        this.uuidGenerator = uuidGenerator;
+        this.accountRegistry = accountRegistry;
+        this.historyDefinesAccounts = historyDefinesAccounts;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, queueCapacity);
+        }
+        for (final var shard : shards) {
+            shard.thread.start();
+        }
+    }
+
+    /**
+     * Service whose accounts are the ones opened in the registry, typically the one of the
+     * {@link BankAccountServiceImpl} managing their lifecycle.
+     */
+    public ShardedBankAccountService(OperationRepository operationRepository, int shardCount, int queueCapacity,
+                                     AccountRegistry accountRegistry) {
+        this(operationRepository, shardCount, queueCapacity, Clock.systemDefaultZone(),
+                new TimeOrderedUuidGenerator(), accountRegistry, false);
+    }
+
+    /**
+     * Service where an account exists once it has an operation.
+     */
+    public ShardedBankAccountService(OperationRepository operationRepository, int shardCount, int queueCapacity) {
+        this(operationRepository, shardCount, queueCapacity, Clock.systemDefaultZone(),
+                new TimeOrderedUuidGenerator(), new InMemoryAccountRegistry(), true);
+    }
+
+    public CompletableFuture<Operation> deposit(UUID accountId, BigDecimal amount) {
+        return submit(OperationTypes.DEPOSIT, accountId, amount);
+    }
+
+    public CompletableFuture<Operation> withdraw(UUID accountId, BigDecimal amount) {
+        return submit(OperationTypes.WITHDRAWAL, accountId, amount);
+    }
+
+    /**
+     * Stops accepting operations, lets every shard finish the ones already queued and waits for them.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        for (final var shard : shards) {
+            LockSupport.unpark(shard.thread);
+        }
+        for (final var shard : shards) {
+            shard.thread.join();
+        }
+    }
+
+    private CompletableFuture<Operation> submit(OperationTypes type, UUID accountId, BigDecimal amount) {
+        if (amount.signum() <= 0) {
+            return CompletableFuture.failedFuture(ZeroOrNegativeAmountException.INSTANCE);
+        }
+        final var shard = shardOf(accountId);
+        shard.submitting.incrementAndGet();
+        try {
+            if (closed) {
+                return CompletableFuture.failedFuture(new RejectedExecutionException("Service is closed"));
+            }
+            final var command = new Command(type, accountId, amount, new CompletableFuture<>());
+            if (!shard.commands.offer(command)) {
+                return CompletableFuture.failedFuture(
+                        new RejectedExecutionException("Shard " + shard.index + " is full"));
+            }
+            shard.wakeUp();
+            return command.result();
+        } finally {
+            shard.submitting.decrementAndGet();
+        }
+    }
+
+    private Shard shardOf(UUID accountId) {
+        final var hash = accountId.hashCode();
+        return shards[Math.floorMod(hash ^ (hash >>> 16), shards.length)];
+    }
+
+    private record Command(OperationTypes type, UUID accountId, BigDecimal amount,
+                           CompletableFuture<Operation> result) {
+    }
+
+    private final class Shard implements Runnable {
+        private final int index;
+        private final MpscRingBuffer<Command> commands;
+        private final HashMap<UUID, Operation> lastOperations = new HashMap<>();
+        private final AtomicInteger submitting = new AtomicInteger();
+        private final Thread thread;
+        private volatile boolean sleeping;
+
+        Shard(int index, int queueCapacity) {
+            this.index = index;
+            this.commands = new MpscRingBuffer<>(queueCapacity);
+            this.thread = new Thread(this, "account-shard-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                if (commands.drain(this::execute, DRAIN_LIMIT) > 0) {
+                    continue;
+                }
+                if (closed && submitting.get() == 0 && commands.isEmpty()) {
+                    return;
+                }
+                sleeping = true;
+                if (commands.isEmpty() && !closed) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                sleeping = false;
+            }
+        }
+
+        void wakeUp() {
+            if (sleeping) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        private void execute(Command command) {
+            try {
+                command.result().complete(apply(command));
+            } catch (Exception e) {
+                command.result().completeExceptionally(e);
+            }
+        }
+
+        private Operation apply(Command command) throws AccountNotFoundException, NotEnoughFundsException {
+            final var amountCents = Cents.of(command.amount());
+            final var status = accountRegistry.statusOf(command.accountId());
+            if (status == null && !historyDefinesAccounts) {
+                throw AccountNotFoundException.INSTANCE;
+            }
+            if (status != null && !(command.type() == OperationTypes.WITHDRAWAL
+                    ? status.acceptsDebits()
+                    : status.acceptsCredits())) {
+                throw AccountNotOpenException.INSTANCE;
+            }
+            while (true) {
+                final var lastOperation = lastOperationOf(command.accountId(), status != null);
+                final var lastBalance = lastOperation == null ? 0 : Cents.ofExact(lastOperation.newBalance());
+                final long newBalance;
+                if (command.type() == OperationTypes.WITHDRAWAL) {
+                    if (Cents.isLessThan(lastBalance, amountCents, command.amount())) {
+                        throw NotEnoughFundsException.INSTANCE;
+                    }
+                    newBalance = Cents.subtract(lastBalance, amountCents);
+                } else {
+                    newBalance = Cents.add(lastBalance, amountCents);
+                }
+                final var now = Instant.now(clock);
+                final var operation = new Operation(
+                        uuidGenerator.get(),
+                        command.accountId(),
+                        command.type(),
+                        Cents.toBigDecimal(amountCents),
+                        Cents.toBigDecimal(newBalance),
+                        lastOperation != null && now.isBefore(lastOperation.dateTime()) ? lastOperation.dateTime() : now
+                );
+                if (operationRepository.compareAndAdd(lastOperation, operation)) {
+                    lastOperations.put(command.accountId(), operation);
+                    return operation;
+                }
+                lastOperations.remove(command.accountId());
+            }
+        }
+
+        /**
+         * Returns the last operation of the account, or {@code null} for a registered account that
+         * has none yet.
+         */
+        private Operation lastOperationOf(UUID accountId, boolean registered) throws AccountNotFoundException {
+            final var cached = lastOperations.get(accountId);
+            if (cached != null) {
+                return cached;
+            }
+            final var lastOperation = operationRepository.getLastOperation(accountId).orElse(null);
+            if (lastOperation == null) {
+                if (!registered) {
+                    throw AccountNotFoundException.INSTANCE;
+                }
+                return null;
+            }
+            lastOperations.put(accountId, lastOperation);
+            return lastOperation;
+        }
+    }
+}
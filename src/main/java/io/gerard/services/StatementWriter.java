@@ -0,0 +1,8 @@
+package io.gerard.services;
+
+import java.io.IOException;
+
+@FunctionalInterface
+public interface StatementWriter {
+    void writeTo(Appendable output) throws IOException;
+}
@@ -1,5 +1,22 @@
 package io.gerard.services;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 public interface StringPrinter {
     void print(String value);
+
+    /**
+     * Prints a statement written piece by piece. Implementations able to write straight to their
+     * output should override this rather than build the whole string first.
+     */
+    default void print(StatementWriter statement) {
+        final var output = new StringBuilder();
+        try {
+            statement.writeTo(output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        print(output.toString());
+    }
 }
@@ -0,0 +1,55 @@
+package io.gerard.services;
+
+import java.time.Clock;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Generates version 7 UUIDs (RFC 9562): a 48-bit Unix millisecond timestamp, a 12-bit counter and
+ * 62 random bits. Each thread keeps its own counter and draws from {@link ThreadLocalRandom}, so
+ * generating takes no lock and no {@code SecureRandom}. Ids of one thread are strictly increasing,
+ * a counter overflow borrowing the next millisecond; ids of different threads sort by millisecond.
+ * <p>
+ * The ids are unique but guessable: they must not be used as secrets.
+ */
+public class TimeOrderedUuidGenerator implements Supplier<UUID> {
+    private static final long VERSION = 7L << 12;
+    private static final long VARIANT = 1L << 63;
+    private static final int COUNTER_BITS = 12;
+    private static final int COUNTER_SEED_BOUND = 1 << (COUNTER_BITS - 1);
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+    private static final long RANDOM_MASK = (1L << 62) - 1;
+
+    private final Clock clock;
+    private final ThreadLocal<State> states = ThreadLocal.withInitial(State::new);
+
+    public TimeOrderedUuidGenerator() {
+        this(Clock.systemUTC());
+    }
+
+    public TimeOrderedUuidGenerator(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public UUID get() {
+        final var random = ThreadLocalRandom.current();
+        final var state = states.get();
+        final var now = clock.millis();
+        if (now > state.millis) {
+            state.millis = now;
+            state.counter = random.nextInt(COUNTER_SEED_BOUND);
+        } else if (++state.counter > COUNTER_MASK) {
+            state.millis++;
+            state.counter = random.nextInt(COUNTER_SEED_BOUND);
+        }
+        final var mostSignificantBits = (state.millis << 16) | VERSION | state.counter;
+        return new UUID(mostSignificantBits, VARIANT | (random.nextLong() & RANDOM_MASK));
+    }
+
+    private static final class State {
+        private long millis = Long.MIN_VALUE;
+        private long counter;
+    }
+}
@@ -0,0 +1,87 @@
+package io.gerard.services;
+
+import io.gerard.models.Operation;
+import io.gerard.models.Transfer;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs each call of a blocking {@link BankAccountService} on its own virtual thread. At most
+ * {@code maxInFlight} calls run at once; further calls are rejected immediately rather than queued,
+ * so callers see back pressure as soon as the repository behind the service is saturated.
+ */
+public class VirtualThreadBankAccountService implements AsyncBankAccountService, AutoCloseable {
+    private final BankAccountService delegate;
+    private final Semaphore inFlight;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public VirtualThreadBankAccountService(BankAccountService delegate, int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        this.delegate = delegate;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    @Override
+    public CompletionStage<Operation> deposit(UUID accountId, BigDecimal amount) {
+        return submit(() -> delegate.deposit(accountId, amount));
+    }
+
+    @Override
+    public CompletionStage<Operation> withdraw(UUID accountId, BigDecimal amount) {
+        return submit(() -> delegate.withdraw(accountId, amount));
+    }
+
+    @Override
+    public CompletionStage<Transfer> transfer(UUID fromAccountId, UUID toAccountId, BigDecimal amount) {
+        return submit(() -> delegate.transfer(fromAccountId, toAccountId, amount));
+    }
+
+    @Override
+    public CompletionStage<Void> printAccountStatement(UUID accountId) {
+        return submit(() -> {
+            delegate.printAccountStatement(accountId);
+            return null;
+        });
+    }
+
+    /**
+     * Stops accepting calls and waits for the running ones to finish.
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    private <T> CompletableFuture<T> submit(Callable<T> call) {
+        if (!inFlight.tryAcquire()) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Too many calls in flight"));
+        }
+        final var result = new CompletableFuture<T>();
+        try {
+            executor.execute(() -> {
+                try {
+                    final var value = call.call();
+                    inFlight.release();
+                    result.complete(value);
+                } catch (Throwable e) {
+                    inFlight.release();
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,111 @@
+package io.gerard.connectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncStringPrinterShould {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writeEveryValueOnceInPrintOrderAcrossRotatedFiles() throws Exception {
+        final var sut = AsyncStringPrinter.toRotatingFiles(directory, "statements", 4_096, 16,
+                Duration.ofMillis(1));
+        final var producers = new ArrayList<Future<?>>();
+        try (var executor = Executors.newFixedThreadPool(4)) {
+            for (int producer = 0; producer < 4; producer++) {
+                final var name = "producer-" + producer;
+                producers.add(executor.submit(() -> {
+                    for (int i = 0; i < 1_000; i++) {
+                        sut.print(name + " " + i);
+                    }
+                }));
+            }
+            for (final var producer : producers) {
+                producer.get();
+            }
+        }
+        sut.close();
+
+        final List<Path> files;
+        try (var paths = Files.list(directory)) {
+            files = paths.sorted().toList();
+        }
+        final var lines = new ArrayList<String>();
+        for (final var file : files) {
+            assertTrue(Files.size(file) <= 4_096);
+            lines.addAll(Files.readAllLines(file));
+        }
+        assertTrue(files.size() > 1);
+        assertEquals(4_000, lines.size());
+        for (int producer = 0; producer < 4; producer++) {
+            final var prefix = "producer-" + producer + " ";
+            final var printed = lines.stream().filter(line -> line.startsWith(prefix)).toList();
+            assertEquals(1_000, printed.size());
+            for (int i = 0; i < printed.size(); i++) {
+                assertEquals(prefix + i, printed.get(i));
+            }
+        }
+        assertThrows(RejectedExecutionException.class, () -> sut.print("too late"));
+    }
+
+    @Test
+    void drainStatementsToStandardOutputOnClose() throws IOException, InterruptedException {
+        final var standardOut = System.out;
+        final var captor = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captor));
+        try {
+            final var sut = AsyncStringPrinter.toStandardOutput(4, Duration.ofHours(1));
+            sut.print(output -> output.append("Your account : ").append("42"));
+            sut.print("été");
+            sut.close();
+        } finally {
+            System.setOut(standardOut);
+        }
+
+        assertEquals("Your account : 42" + System.lineSeparator() + "été" + System.lineSeparator(),
+                captor.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void reportAnErrorThatStoppedTheWriterToPrintsAndClose() {
+        final var sut = new AsyncStringPrinter(new AsyncStringPrinter.Output() {
+            @Override
+            public void write(ByteBuffer bytes) {
+                throw new StackOverflowError();
+            }
+
+            @Override
+            public void close() {
+            }
+        }, 16, 2, Duration.ofMillis(1));
+
+        final var printFailure = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> assertThrows(IllegalStateException.class, () -> {
+                    while (true) {
+                        sut.print("statement");
+                    }
+                }));
+        final var closeFailure = assertThrows(IOException.class, sut::close);
+
+        assertInstanceOf(StackOverflowError.class, printFailure.getCause());
+        assertInstanceOf(StackOverflowError.class, closeFailure.getCause());
+    }
+}
@@ -0,0 +1,108 @@
+package io.gerard.connectors;
+
+import io.gerard.models.Operation;
+import io.gerard.models.OperationTypes;
+import io.gerard.models.StatementHeader;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static io.gerard.connectors.OperationFixtures.operation;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryAccountStatementExporterShould {
+
+    private final UUID accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+    private final UUID otherAccountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae4");
+
+    @Test
+    void readBackExportedStatementsInOrder() throws IOException {
+        final var op1 = operation(accountId, OperationTypes.DEPOSIT, "100.00", "100.00", 0);
+        final var op2 = operation(accountId, OperationTypes.WITHDRAWAL, "130.25", "-30.25", 1);
+        final var op3 = operation(otherAccountId, OperationTypes.TRANSFER_IN, "0.01", "0.01", -86_400);
+        final var output = new ByteArrayOutputStream();
+
+        try (var sut = new BinaryAccountStatementExporter(Channels.newChannel(output), 64)) {
+            sut.export(accountId, new BigDecimal("-30.25"), List.of(op2, op1).iterator());
+            sut.export(UUID.randomUUID(), BigDecimal.ZERO, Collections.emptyIterator());
+            sut.export(otherAccountId, new BigDecimal("0.01"), List.of(op3).iterator());
+        }
+
+        try (var reader = reader(output.toByteArray())) {
+            assertEquals(Optional.of(new StatementHeader(accountId, new BigDecimal("-30.25"))),
+                    reader.nextStatement());
+            assertEquals(Optional.of(op2), reader.nextOperation());
+            assertEquals(Optional.of(op1), reader.nextOperation());
+            assertEquals(Optional.empty(), reader.nextOperation());
+            assertEquals(new BigDecimal("0.00"), reader.nextStatement().orElseThrow().balance());
+            assertEquals(Optional.empty(), reader.nextOperation());
+            assertEquals(otherAccountId, reader.nextStatement().orElseThrow().accountId());
+            assertEquals(Optional.of(op3), reader.nextOperation());
+            assertEquals(Optional.empty(), reader.nextStatement());
+        }
+    }
+
+    @Test
+    void skipUnreadOperationsAndRejectTruncatedInput() throws IOException {
+        final var output = new ByteArrayOutputStream();
+        try (var sut = new BinaryAccountStatementExporter(Channels.newChannel(output))) {
+            for (int i = 0; i < 1_000; i++) {
+                sut.export(accountId, new BigDecimal("1.00"),
+                        List.of(operation(accountId, OperationTypes.DEPOSIT, "1.00", "1.00", i)).iterator());
+            }
+        }
+        final var bytes = output.toByteArray();
+
+        try (var reader = reader(bytes)) {
+            var statements = 0;
+            while (reader.nextStatement().isPresent()) {
+                statements++;
+            }
+            assertEquals(1_000, statements);
+        }
+        try (var reader = reader(Arrays.copyOf(bytes, bytes.length - 1))) {
+            assertThrows(EOFException.class, () -> {
+                while (reader.nextStatement().isPresent()) {
+                    reader.nextOperation();
+                }
+            });
+        }
+        try (var reader = reader(new byte[0])) {
+            assertEquals(Optional.empty(), reader.nextStatement());
+        }
+    }
+
+    @Test
+    void rejectUnknownOperationType() throws IOException {
+        final var output = new ByteArrayOutputStream();
+        try (var sut = new BinaryAccountStatementExporter(Channels.newChannel(output))) {
+            sut.export(accountId, BigDecimal.ZERO,
+                    List.of(operation(accountId, OperationTypes.DEPOSIT, "1.00", "0.00", 0)).iterator());
+        }
+        final var bytes = output.toByteArray();
+        final var typeOffset = 5 + 1 + 16 + 1 + 1 + 16;
+
+        for (final var type : new byte[]{-1, (byte) OperationTypes.values().length}) {
+            bytes[typeOffset] = type;
+            try (var reader = reader(bytes)) {
+                reader.nextStatement();
+                final var thrown = assertThrows(IOException.class, reader::nextOperation);
+                assertEquals("Corrupt binary statement export", thrown.getMessage());
+            }
+        }
+    }
+
+    private BinaryAccountStatementReader reader(byte[] bytes) {
+        return new BinaryAccountStatementReader(Channels.newChannel(new ByteArrayInputStream(bytes)), 64);
+    }
+}
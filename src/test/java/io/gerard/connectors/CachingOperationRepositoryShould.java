@@ -0,0 +1,122 @@
+package io.gerard.connectors;
+
+import io.gerard.models.Operation;
+import io.gerard.models.OperationTypes;
+import io.gerard.services.OperationRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingOperationRepositoryShould {
+
+    @Mock
+    private OperationRepository operationRepository;
+
+    private final UUID accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+    private final Instant instant = Instant.parse("2022-11-10T12:35:24.00Z");
+
+    @Test
+    void serveHotAccountFromCacheAfterFirstLookup() {
+        final var sut = new CachingOperationRepository(operationRepository, 10);
+        final var lastOperation = operation(accountId, 100);
+
+        when(operationRepository.getLastOperation(accountId)).thenReturn(Optional.of(lastOperation));
+
+        assertEquals(Optional.of(lastOperation), sut.getLastOperation(accountId));
+        assertEquals(Optional.of(lastOperation), sut.getLastOperation(accountId));
+        assertEquals(Optional.of(lastOperation), sut.getLastOperation(accountId));
+
+        verify(operationRepository).getLastOperation(accountId);
+        verifyNoMoreInteractions(operationRepository);
+        assertEquals(new CachingOperationRepository.Stats(2, 1, 0), sut.stats());
+    }
+
+    @Test
+    void writeThroughSuccessfulCompareAndAddOnly() {
+        final var sut = new CachingOperationRepository(operationRepository, 10);
+        final var lastOperation = operation(accountId, 100);
+        final var accepted = operation(accountId, 110);
+        final var refused = operation(accountId, 120);
+
+        when(operationRepository.getLastOperation(accountId)).thenReturn(Optional.of(lastOperation));
+        when(operationRepository.compareAndAdd(lastOperation, accepted)).thenReturn(true);
+        when(operationRepository.compareAndAdd(lastOperation, refused)).thenReturn(false);
+
+        sut.getLastOperation(accountId);
+        assertTrue(sut.compareAndAdd(lastOperation, accepted));
+        assertFalse(sut.compareAndAdd(lastOperation, refused));
+
+        assertEquals(Optional.of(accepted), sut.getLastOperation(accountId));
+        verify(operationRepository).getLastOperation(accountId);
+    }
+
+    @Test
+    void evictLeastRecentlyUsedAccount() {
+        final var sut = new CachingOperationRepository(operationRepository, 2, 1);
+        final var first = operation(UUID.randomUUID(), 1);
+        final var second = operation(UUID.randomUUID(), 2);
+        final var third = operation(UUID.randomUUID(), 3);
+
+        when(operationRepository.add(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(operationRepository.getLastOperation(second.accountId())).thenReturn(Optional.of(second));
+
+        sut.add(first);
+        sut.add(second);
+        sut.getLastOperation(first.accountId());
+        sut.add(third);
+
+        assertEquals(Optional.of(first), sut.getLastOperation(first.accountId()));
+        assertEquals(Optional.of(third), sut.getLastOperation(third.accountId()));
+        assertEquals(Optional.of(second), sut.getLastOperation(second.accountId()));
+        verify(operationRepository).getLastOperation(second.accountId());
+        assertEquals(new CachingOperationRepository.Stats(3, 1, 2), sut.stats());
+    }
+
+    @Test
+    void serveOtherAccountsWhileAWriteReachesTheStore() throws Exception {
+        final var sut = new CachingOperationRepository(operationRepository, 10, 1);
+        final var other = operation(UUID.randomUUID(), 5);
+        final var written = operation(accountId, 100);
+        final var storing = new CountDownLatch(1);
+        final var stored = new CountDownLatch(1);
+
+        when(operationRepository.getLastOperation(other.accountId())).thenReturn(Optional.of(other));
+        when(operationRepository.add(written)).thenAnswer(invocation -> {
+            storing.countDown();
+            assertTrue(stored.await(5, TimeUnit.SECONDS));
+            return written;
+        });
+
+        final var writer = Executors.newSingleThreadExecutor();
+        try {
+            final var added = writer.submit(() -> sut.add(written));
+            assertTrue(storing.await(5, TimeUnit.SECONDS));
+            assertEquals(Optional.of(other), sut.getLastOperation(other.accountId()));
+            stored.countDown();
+            assertEquals(written, added.get(5, TimeUnit.SECONDS));
+        } finally {
+            writer.shutdown();
+        }
+
+        assertEquals(Optional.of(written), sut.getLastOperation(accountId));
+        verify(operationRepository, never()).getLastOperation(accountId);
+    }
+
+    private Operation operation(UUID accountId, long newBalance) {
+        return new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT, BigDecimal.TEN,
+                BigDecimal.valueOf(newBalance), instant);
+    }
+}
@@ -7,6 +7,7 @@ import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.util.ArrayList;
 
 class ConsolePrinterShould {
 
@@ -46,4 +47,44 @@ class ConsolePrinterShould {
         Assertions.assertEquals(expected + System.lineSeparator(), actual);
     }
 
+    @Test
+    void printStreamedStatement() {
+
+        ConsoleStringPrinter sut = new ConsoleStringPrinter();
+
+        sut.print(output -> output.append("Your account : ").append("f910cf03-e534-4d9d-a473-94ebe3d2cae3"));
+
+        final var actual = outputStreamCaptor.toString();
+
+        Assertions.assertEquals("Your account : f910cf03-e534-4d9d-a473-94ebe3d2cae3" + System.lineSeparator(),
+                actual);
+    }
+
+    @Test
+    void neverInterleaveStatementsPrintedConcurrently() throws Exception {
+
+        ConsoleStringPrinter sut = new ConsoleStringPrinter();
+        final var line = "x".repeat(1000) + System.lineSeparator();
+
+        final var threads = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            final var mark = (char) ('a' + i);
+            threads.add(Thread.startVirtualThread(() -> sut.print(output -> {
+                for (int j = 0; j < 100; j++) {
+                    output.append(mark).append(line);
+                    Thread.yield();
+                }
+            })));
+        }
+        for (final var thread : threads) {
+            thread.join();
+        }
+
+        final var lines = outputStreamCaptor.toString().split(System.lineSeparator());
+        for (int i = 0; i < lines.length; i++) {
+            if (i % 101 < 100) {
+                Assertions.assertEquals(lines[i - i % 101].charAt(0), lines[i].charAt(0));
+            }
+        }
+    }
 }
@@ -3,13 +3,18 @@ package io.gerard.connectors;
 import io.gerard.models.Account;
 import io.gerard.models.Operation;
 import io.gerard.models.OperationTypes;
+import io.gerard.models.Rollup;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 
 class HumanReadableAccountStatementFormatterShould {
@@ -77,4 +82,81 @@ class HumanReadableAccountStatementFormatterShould {
 
         Assertions.assertEquals(expected, actual);
     }
+
+    @Test
+    void streamStatementToAppendable() throws IOException {
+
+        HumanReadableAccountStatementFormatter sut = new HumanReadableAccountStatementFormatter();
+
+        final var accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+
+        final var dateTime1 = LocalDateTime.of(2022, 10, 2, 9, 59, 59).toInstant(ZoneOffset.UTC);
+        final var dateTime2 = LocalDateTime.of(2022, 10, 29, 21, 30, 18).toInstant(ZoneOffset.UTC);
+
+        final var op1 = new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT, BigDecimal.valueOf(100.00),
+                BigDecimal.valueOf(100), dateTime1);
+        final var op2 = new Operation(UUID.randomUUID(), accountId, OperationTypes.WITHDRAWAL, BigDecimal.valueOf(30.00),
+                BigDecimal.valueOf(70.00), dateTime2);
+
+        final var expected = """
+                Your account : f910cf03-e534-4d9d-a473-94ebe3d2cae3
+                	your last balance is : 70.0
+                Operations :\s
+                Date 					Type 		Amount\s
+                29/10/2022 23:30		WITHDRAWAL	30.0
+                02/10/2022 11:59		DEPOSIT		100.0""";
+
+        final var actual = new StringWriter();
+        sut.format(accountId, BigDecimal.valueOf(70.00), List.of(op2, op1).iterator(), actual);
+
+        Assertions.assertEquals(expected, actual.toString());
+    }
+
+    @Test
+    void formatDatesInConfiguredZone() {
+
+        final var sut = new HumanReadableAccountStatementFormatter(ZoneOffset.UTC, Locale.FRANCE);
+
+        final var accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+        final var dateTime = LocalDateTime.of(2022, 10, 29, 21, 30, 18).toInstant(ZoneOffset.UTC);
+        final var op = new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT, BigDecimal.valueOf(30.00),
+                BigDecimal.valueOf(30.00), dateTime);
+
+        final var expected = """
+                Your account : f910cf03-e534-4d9d-a473-94ebe3d2cae3
+                	your last balance is : 30.0
+                Operations :\s
+                Date 					Type 		Amount\s
+                29/10/2022 21:30		DEPOSIT		30.0""";
+
+        final var actual = sut.format(new Account(accountId, BigDecimal.valueOf(30.00), List.of(op)));
+
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @Test
+    void writeSummaryOfThePeriodBeforeItsOperations() throws IOException {
+        final var sut = new HumanReadableAccountStatementFormatter(ZoneOffset.UTC, Locale.FRANCE);
+        final var accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+        final var operation = new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT,
+                new BigDecimal("50.00"), new BigDecimal("150.00"),
+                LocalDateTime.of(2022, 10, 6, 17, 10, 31).toInstant(ZoneOffset.UTC));
+        final var summary = new Rollup(LocalDate.of(2022, 10, 1), LocalDate.of(2022, 11, 1), 1,
+                new BigDecimal("50.00"), 0, BigDecimal.ZERO, new BigDecimal("150.00"), new BigDecimal("150.00"),
+                new BigDecimal("150.00"));
+        final var output = new StringWriter();
+
+        sut.format(accountId, new BigDecimal("150.00"), summary, List.of(operation).iterator(), output);
+
+        Assertions.assertEquals("""
+                Your account : f910cf03-e534-4d9d-a473-94ebe3d2cae3
+                	your last balance is : 150.00
+                Summary from 2022-10-01 to 2022-10-31 :\s
+                	credits : 1, total 50.00
+                	debits : 0, total 0
+                	lowest balance : 150.00, highest balance : 150.00
+                Operations :\s
+                Date \t\t\t\t\tType \t\tAmount\s
+                06/10/2022 17:10\t\tDEPOSIT\t\t50.00""", output.toString());
+    }
 }
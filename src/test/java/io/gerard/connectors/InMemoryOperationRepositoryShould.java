@@ -0,0 +1,206 @@
+package io.gerard.connectors;
+
+import io.gerard.exceptions.NotEnoughFundsException;
+import io.gerard.models.Operation;
+import io.gerard.models.OperationCursor;
+import io.gerard.models.OperationTypes;
+import io.gerard.services.BankAccountServiceImpl;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryOperationRepositoryShould {
+
+    private final UUID accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+    private final Instant instant = Instant.parse("2022-11-10T12:35:24.00Z");
+
+    @Test
+    void returnLastAddedOperation() {
+        final var sut = new InMemoryOperationRepository();
+        final var op1 = operation(OperationTypes.DEPOSIT, 100, 100, instant);
+        final var op2 = operation(OperationTypes.WITHDRAWAL, 30, 70, instant.plusSeconds(1));
+
+        sut.add(op1);
+        sut.add(op2);
+
+        assertEquals(Optional.of(op2), sut.getLastOperation(accountId));
+        assertEquals(Optional.empty(), sut.getLastOperation(UUID.randomUUID()));
+    }
+
+    @Test
+    void returnOperationsOrderByDateDescEvenWhenAddedOutOfOrder() {
+        final var sut = new InMemoryOperationRepository();
+        final var op1 = operation(OperationTypes.DEPOSIT, 100, 100, instant);
+        final var op2 = operation(OperationTypes.DEPOSIT, 50, 150, instant.plusSeconds(2));
+        final var op3 = operation(OperationTypes.WITHDRAWAL, 30, 120, instant.plusSeconds(1));
+
+        sut.add(op1);
+        sut.add(op2);
+        sut.add(op3);
+
+        assertEquals(List.of(op2, op3, op1), sut.getAllOrderByDateDesc(accountId));
+        assertEquals(Optional.of(op3), sut.getLastOperation(accountId));
+        assertEquals(List.of(), sut.getAllOrderByDateDesc(UUID.randomUUID()));
+    }
+
+    @Test
+    void refuseCompareAndAddWhenLastOperationChanged() {
+        final var sut = new InMemoryOperationRepository();
+        final var op1 = operation(OperationTypes.DEPOSIT, 100, 100, instant);
+        final var op2 = operation(OperationTypes.WITHDRAWAL, 30, 70, instant.plusSeconds(1));
+        final var concurrent = operation(OperationTypes.WITHDRAWAL, 80, 20, instant.plusSeconds(1));
+
+        assertTrue(sut.compareAndAdd(null, op1));
+        assertTrue(sut.compareAndAdd(op1, op2));
+        assertFalse(sut.compareAndAdd(op1, concurrent));
+        assertFalse(sut.compareAndAdd(null, concurrent));
+
+        assertEquals(List.of(op2, op1), sut.getAllOrderByDateDesc(accountId));
+    }
+
+    @Test
+    void appendAllOperationsOnlyWhenLastOperationUnchanged() {
+        final var sut = new InMemoryOperationRepository();
+        final var op1 = operation(OperationTypes.DEPOSIT, 100, 100, instant);
+        final var op2 = operation(OperationTypes.WITHDRAWAL, 30, 70, instant.plusSeconds(1));
+        final var op3 = operation(OperationTypes.DEPOSIT, 5, 75, instant.plusSeconds(2));
+
+        sut.add(op1);
+
+        assertFalse(sut.compareAndAddAll(null, List.of(op2, op3)));
+        assertTrue(sut.compareAndAddAll(op1, List.of(op2, op3)));
+        assertFalse(sut.compareAndAddAll(op1, List.of(op2, op3)));
+
+        assertEquals(List.of(op3, op2, op1), sut.getAllOrderByDateDesc(accountId));
+        assertEquals(Optional.of(op3), sut.getLastOperation(accountId));
+    }
+
+    @Test
+    void returnOperationsBetweenTwoInstantsOrderByDateDesc() {
+        final var sut = new InMemoryOperationRepository();
+        final var op1 = operation(OperationTypes.DEPOSIT, 100, 100, instant);
+        final var op2 = operation(OperationTypes.DEPOSIT, 50, 150, instant.plusSeconds(1));
+        final var op3 = operation(OperationTypes.WITHDRAWAL, 30, 120, instant.plusSeconds(2));
+        final var op4 = operation(OperationTypes.WITHDRAWAL, 20, 100, instant.plusSeconds(3));
+
+        List.of(op3, op1, op4, op2).forEach(sut::add);
+
+        assertEquals(List.of(op3, op2), sut.getBetweenOrderByDateDesc(accountId, instant.plusSeconds(1),
+                instant.plusSeconds(3)));
+        assertEquals(List.of(op4, op3, op2, op1), sut.getBetweenOrderByDateDesc(accountId, Instant.MIN, Instant.MAX));
+        assertEquals(List.of(), sut.getBetweenOrderByDateDesc(accountId, instant.plusSeconds(3), instant));
+        assertEquals(List.of(), sut.getBetweenOrderByDateDesc(UUID.randomUUID(), Instant.MIN, Instant.MAX));
+    }
+
+    @Test
+    void pageThroughOperationsFromMostRecentWithCursor() {
+        final var sut = new InMemoryOperationRepository();
+        final var op1 = operation(OperationTypes.DEPOSIT, 100, 100, instant);
+        final var op2 = operation(OperationTypes.DEPOSIT, 50, 150, instant.plusSeconds(1));
+        final var op3 = operation(OperationTypes.WITHDRAWAL, 30, 120, instant.plusSeconds(1));
+        final var op4 = operation(OperationTypes.WITHDRAWAL, 20, 100, instant.plusSeconds(2));
+        List.of(op1, op2, op3, op4).forEach(sut::add);
+        final var sameInstant = op2.operationId().compareTo(op3.operationId()) < 0
+                ? List.of(op3, op2)
+                : List.of(op2, op3);
+
+        final var firstPage = sut.getPageOrderByDateDesc(accountId, null, 2);
+        final var secondPage = sut.getPageOrderByDateDesc(accountId, OperationCursor.of(firstPage.get(1)), 2);
+        final var lastPage = sut.getPageOrderByDateDesc(accountId, OperationCursor.of(secondPage.get(1)), 2);
+
+        assertEquals(List.of(op4, sameInstant.get(0)), firstPage);
+        assertEquals(List.of(sameInstant.get(1), op1), secondPage);
+        assertEquals(List.of(), lastPage);
+        assertThrows(IllegalArgumentException.class, () -> sut.getPageOrderByDateDesc(accountId, null, -1));
+    }
+
+    @Test
+    void neverOverdrawAccountUnderConcurrentWithdrawals() {
+        final var sut = new InMemoryOperationRepository();
+        sut.add(operation(OperationTypes.DEPOSIT, 500, 500, instant));
+        final var service = new BankAccountServiceImpl(sut, new HumanReadableAccountStatementFormatter(), value -> {
+        });
+
+        final var threads = 16;
+        final var accepted = new AtomicInteger();
+        final var start = new CountDownLatch(1);
+        try (var executor = Executors.newFixedThreadPool(threads)) {
+            for (int i = 0; i < threads; i++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                        for (int j = 0; j < 50; j++) {
+                            service.withdraw(accountId, BigDecimal.ONE);
+                            accepted.incrementAndGet();
+                        }
+                    } catch (NotEnoughFundsException e) {
+                        // expected once the balance is exhausted
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+            }
+            start.countDown();
+        }
+
+        final var lastBalance = sut.getLastOperation(accountId).orElseThrow().newBalance();
+        assertEquals(0, BigDecimal.valueOf(500 - accepted.get()).compareTo(lastBalance));
+        assertEquals(accepted.get() + 1, sut.getAllOrderByDateDesc(accountId).size());
+        assertTrue(lastBalance.signum() >= 0);
+    }
+
+    @Test
+    void keepTotalBalanceUnderConcurrentTransfersInBothDirections() {
+        final var sut = new InMemoryOperationRepository();
+        final var merchantId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae4");
+        sut.add(operation(OperationTypes.DEPOSIT, 1_000, 1_000, instant));
+        sut.add(new Operation(UUID.randomUUID(), merchantId, OperationTypes.DEPOSIT, BigDecimal.valueOf(1_000),
+                BigDecimal.valueOf(1_000), instant));
+        final var service = new BankAccountServiceImpl(sut, new HumanReadableAccountStatementFormatter(), value -> {
+        });
+
+        final var threads = 8;
+        final var start = new CountDownLatch(1);
+        try (var executor = Executors.newFixedThreadPool(threads)) {
+            for (int i = 0; i < threads; i++) {
+                final var toMerchant = i % 2 == 0;
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                        for (int j = 0; j < 200; j++) {
+                            if (toMerchant) {
+                                service.transfer(accountId, merchantId, BigDecimal.ONE);
+                            } else {
+                                service.transfer(merchantId, accountId, BigDecimal.ONE);
+                            }
+                        }
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+            }
+            start.countDown();
+        }
+
+        final var balance = sut.getLastOperation(accountId).orElseThrow().newBalance();
+        final var merchantBalance = sut.getLastOperation(merchantId).orElseThrow().newBalance();
+        assertEquals(0, BigDecimal.valueOf(1_000).compareTo(balance));
+        assertEquals(0, BigDecimal.valueOf(2_000).compareTo(balance.add(merchantBalance)));
+        assertEquals(1_601, sut.getAllOrderByDateDesc(accountId).size());
+        assertEquals(1_601, sut.getAllOrderByDateDesc(merchantId).size());
+    }
+
+    private Operation operation(OperationTypes type, long amount, long newBalance, Instant dateTime) {
+        return new Operation(UUID.randomUUID(), accountId, type, BigDecimal.valueOf(amount),
+                BigDecimal.valueOf(newBalance), dateTime);
+    }
+}
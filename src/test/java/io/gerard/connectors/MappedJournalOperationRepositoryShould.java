@@ -0,0 +1,283 @@
+package io.gerard.connectors;
+
+import io.gerard.models.Operation;
+import io.gerard.models.OperationCursor;
+import io.gerard.models.OperationTypes;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static io.gerard.connectors.OperationFixtures.INSTANT;
+import static io.gerard.connectors.OperationFixtures.operation;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedJournalOperationRepositoryShould {
+
+    private final UUID accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+    private final UUID otherAccountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae4");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readBackOperationsAcrossSegmentsAfterReopening() throws IOException {
+        final var op1 = operation(accountId, OperationTypes.DEPOSIT, "100.00", "100.00", 0);
+        final var op2 = operation(otherAccountId, OperationTypes.DEPOSIT, "20.50", "20.50", 1);
+        final var op3 = operation(accountId, OperationTypes.WITHDRAWAL, "30.25", "69.75", 2);
+        final var op4 = operation(accountId, OperationTypes.DEPOSIT, "0.01", "69.76", 3);
+
+        try (var sut = MappedJournalOperationRepository.open(directory, 2, 1)) {
+            sut.add(op1);
+            sut.add(op2);
+            assertTrue(sut.compareAndAdd(op1, op3));
+            assertFalse(sut.compareAndAdd(op1, op4));
+            assertTrue(sut.compareAndAdd(op3, op4));
+        }
+
+        try (var files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+
+        try (var sut = MappedJournalOperationRepository.open(directory, 2, 1)) {
+            assertEquals(Optional.of(op4), sut.getLastOperation(accountId));
+            assertEquals(Optional.of(op2), sut.getLastOperation(otherAccountId));
+            assertEquals(List.of(op4, op3, op1), sut.getAllOrderByDateDesc(accountId));
+            assertEquals(List.of(), sut.getAllOrderByDateDesc(UUID.randomUUID()));
+        }
+    }
+
+    @Test
+    void recoverUpToTornRecordAndKeepAppendingAfterIt() throws IOException {
+        final var op1 = operation(accountId, OperationTypes.DEPOSIT, "100.00", "100.00", 0);
+        final var op2 = operation(accountId, OperationTypes.WITHDRAWAL, "10.00", "90.00", 1);
+        final var op3 = operation(accountId, OperationTypes.WITHDRAWAL, "5.00", "85.00", 2);
+
+        try (var sut = MappedJournalOperationRepository.open(directory, 16, 1)) {
+            sut.add(op1);
+            sut.add(op2);
+        }
+
+        try (var channel = FileChannel.open(directory.resolve("00000000000000000000.journal"),
+                StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), OperationRecords.SIZE + 20);
+        }
+
+        try (var sut = MappedJournalOperationRepository.open(directory, 16, 1)) {
+            assertEquals(Optional.of(op1), sut.getLastOperation(accountId));
+            assertTrue(sut.compareAndAdd(op1, op3));
+        }
+
+        try (var sut = MappedJournalOperationRepository.open(directory, 16, 1)) {
+            assertEquals(List.of(op3, op1), sut.getAllOrderByDateDesc(accountId));
+        }
+    }
+
+    @Test
+    void neverReplayRecordsWrittenAfterATornOne() throws IOException {
+        final var op1 = operation(accountId, OperationTypes.DEPOSIT, "100.00", "100.00", 0);
+        final var op2 = operation(accountId, OperationTypes.WITHDRAWAL, "10.00", "90.00", 1);
+        final var op3 = operation(accountId, OperationTypes.DEPOSIT, "10.00", "100.00", 2);
+        final var op4 = operation(accountId, OperationTypes.WITHDRAWAL, "20.00", "80.00", 3);
+
+        try (var sut = MappedJournalOperationRepository.open(directory, 16, 1)) {
+            List.of(op1, op2, op3).forEach(sut::add);
+        }
+
+        try (var channel = FileChannel.open(directory.resolve("00000000000000000000.journal"),
+                StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), OperationRecords.SIZE + 20);
+        }
+
+        try (var sut = MappedJournalOperationRepository.open(directory, 16, 1)) {
+            assertEquals(Optional.of(op1), sut.getLastOperation(accountId));
+            assertTrue(sut.compareAndAdd(op1, op4));
+        }
+
+        try (var sut = MappedJournalOperationRepository.open(directory, 16, 1)) {
+            assertEquals(Optional.of(op4), sut.getLastOperation(accountId));
+            assertEquals(List.of(op4, op1), sut.getAllOrderByDateDesc(accountId));
+        }
+    }
+
+    @Test
+    void queryOperationsByPeriodAndPageAfterReopening() throws IOException {
+        final var op1 = operation(accountId, OperationTypes.DEPOSIT, "100.00", "100.00", 0);
+        final var op2 = operation(otherAccountId, OperationTypes.DEPOSIT, "20.50", "20.50", 1);
+        final var op3 = operation(accountId, OperationTypes.WITHDRAWAL, "30.25", "69.75", 2);
+        final var op4 = operation(accountId, OperationTypes.DEPOSIT, "0.01", "69.76", 3);
+
+        try (var sut = MappedJournalOperationRepository.open(directory, 2, 1)) {
+            List.of(op4, op2, op1, op3).forEach(sut::add);
+        }
+
+        try (var sut = MappedJournalOperationRepository.open(directory, 2, 1)) {
+            assertEquals(List.of(op3, op1), sut.getBetweenOrderByDateDesc(accountId, INSTANT, INSTANT.plusSeconds(3)));
+            assertEquals(List.of(op4), sut.getBetweenOrderByDateDesc(accountId, INSTANT.plusNanos(2_000_000_001L),
+                    Instant.MAX));
+            assertEquals(List.of(op4, op3), sut.getPageOrderByDateDesc(accountId, null, 2));
+            assertEquals(List.of(op1), sut.getPageOrderByDateDesc(accountId, OperationCursor.of(op3), 2));
+            assertEquals(List.of(), sut.getPageOrderByDateDesc(otherAccountId, OperationCursor.of(op2), 2));
+        }
+    }
+
+    @Test
+    void dropTransferWhoseSecondRecordIsTorn() throws IOException {
+        final var op1 = operation(accountId, OperationTypes.DEPOSIT, "100.00", "100.00", 0);
+        final var op2 = operation(otherAccountId, OperationTypes.DEPOSIT, "20.00", "20.00", 1);
+        final var debit = operation(accountId, OperationTypes.TRANSFER_OUT, "10.00", "90.00", 2);
+        final var credit = operation(otherAccountId, OperationTypes.TRANSFER_IN, "10.00", "30.00", 2);
+
+        try (var sut = MappedJournalOperationRepository.open(directory, 16, 1)) {
+            sut.add(op1);
+            sut.add(op2);
+            assertTrue(sut.compareAndAddPair(op1, debit, op2, credit));
+            assertEquals(Optional.of(credit), sut.getLastOperation(otherAccountId));
+        }
+
+        try (var channel = FileChannel.open(directory.resolve("00000000000000000000.journal"),
+                StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), 3L * OperationRecords.SIZE + 20);
+        }
+
+        try (var sut = MappedJournalOperationRepository.open(directory, 16, 1)) {
+            assertEquals(Optional.of(op1), sut.getLastOperation(accountId));
+            assertEquals(Optional.of(op2), sut.getLastOperation(otherAccountId));
+            assertTrue(sut.compareAndAddPair(op1, debit, op2, credit));
+        }
+
+        try (var sut = MappedJournalOperationRepository.open(directory, 16, 1)) {
+            assertEquals(List.of(debit, op1), sut.getAllOrderByDateDesc(accountId));
+            assertEquals(List.of(credit, op2), sut.getAllOrderByDateDesc(otherAccountId));
+        }
+    }
+
+    @Test
+    void replayOnlyTheTailWrittenAfterTheSnapshot() throws IOException {
+        final var op1 = operation(accountId, OperationTypes.DEPOSIT, "100.00", "100.00", 0);
+        final var op2 = operation(otherAccountId, OperationTypes.DEPOSIT, "20.50", "20.50", 1);
+        final var op3 = operation(accountId, OperationTypes.WITHDRAWAL, "30.25", "69.75", 3);
+        final var op4 = operation(accountId, OperationTypes.DEPOSIT, "0.01", "69.76", 2);
+        final var op5 = operation(accountId, OperationTypes.DEPOSIT, "0.24", "70.00", 4);
+
+        try (var sut = MappedJournalOperationRepository.open(directory, 2, 1)) {
+            List.of(op1, op2, op3).forEach(sut::add);
+            sut.snapshot();
+            sut.add(op4);
+        }
+
+        try (var channel = FileChannel.open(directory.resolve("00000000000000000000.journal"),
+                StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), 60);
+        }
+
+        try (var sut = MappedJournalOperationRepository.open(directory, 2, 1)) {
+            assertEquals(Optional.of(op4), sut.getLastOperation(accountId));
+            assertEquals(Optional.of(op2), sut.getLastOperation(otherAccountId));
+            assertTrue(sut.compareAndAdd(op4, op5));
+            assertEquals(List.of(op5, op3, op4, op1), sut.getAllOrderByDateDesc(accountId));
+            assertEquals(List.of(op3, op4), sut.getPageOrderByDateDesc(accountId, OperationCursor.of(op5), 2));
+            assertEquals(List.of(op2), sut.getAllOrderByDateDesc(otherAccountId));
+        }
+    }
+
+    @Test
+    void checkpointAccountsRatherThanTheirHistory() throws IOException {
+        final var snapshot = directory.resolve("journal.snapshot");
+        final var operations = new ArrayList<Operation>();
+        try (var sut = MappedJournalOperationRepository.open(directory, 64, 8)) {
+            sut.add(operation(otherAccountId, OperationTypes.DEPOSIT, "1.00", "1.00", 0));
+            for (int i = 0; i < 300; i++) {
+                final var operation = operation(accountId, OperationTypes.DEPOSIT, "1.00", (i + 1) + ".00",
+                        i % 2 == 0 ? i : -i);
+                sut.add(operation);
+                operations.add(operation);
+                if (i == 0) {
+                    sut.snapshot();
+                }
+            }
+            final var size = Files.size(snapshot);
+            sut.snapshot();
+            assertEquals(size, Files.size(snapshot));
+        }
+
+        final var latest = operations.get(operations.size() - 1);
+        operations.sort(Comparator.comparing(Operation::dateTime).reversed());
+        try (var sut = MappedJournalOperationRepository.open(directory, 64, 8)) {
+            final var last = operation(accountId, OperationTypes.DEPOSIT, "1.00", "301.00", 1000);
+            assertEquals(Optional.of(latest), sut.getLastOperation(accountId));
+            assertTrue(sut.compareAndAdd(latest, last));
+            operations.add(0, last);
+            assertEquals(operations, sut.getAllOrderByDateDesc(accountId));
+            assertEquals(1, sut.getAllOrderByDateDesc(otherAccountId).size());
+        }
+    }
+
+    @Test
+    void refuseToOpenWhenTheLastRecordCoveredBySnapshotIsCorrupt() throws IOException {
+        final var op1 = operation(accountId, OperationTypes.DEPOSIT, "100.00", "100.00", 0);
+        final var op2 = operation(accountId, OperationTypes.WITHDRAWAL, "10.00", "90.00", 1);
+
+        try (var sut = MappedJournalOperationRepository.open(directory, 16, 1)) {
+            List.of(op1, op2).forEach(sut::add);
+            sut.snapshot();
+        }
+
+        try (var channel = FileChannel.open(directory.resolve("00000000000000000000.journal"),
+                StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), OperationRecords.SIZE + 40);
+        }
+
+        assertThrows(IOException.class, () -> MappedJournalOperationRepository.open(directory, 16, 1));
+    }
+
+    @Test
+    void keepOperationsWrittenWhileSnapshotsAreTaken() throws Exception {
+        final var scheduler = Executors.newSingleThreadScheduledExecutor();
+        Operation last = null;
+        try (var sut = MappedJournalOperationRepository.open(directory, 64, 8)) {
+            final var snapshots = sut.scheduleSnapshots(scheduler, Duration.ofMillis(1));
+            for (int i = 0; i < 500; i++) {
+                final var operation = operation(i % 2 == 0 ? accountId : otherAccountId, OperationTypes.DEPOSIT,
+                        "1.00", (i / 2 + 1) + ".00", i);
+                sut.add(operation);
+                if (i % 2 == 0) {
+                    last = operation;
+                }
+            }
+            snapshots.cancel(false);
+        } finally {
+            scheduler.shutdown();
+            assertTrue(scheduler.awaitTermination(1, TimeUnit.SECONDS));
+        }
+
+        try (var sut = MappedJournalOperationRepository.open(directory, 64, 8)) {
+            assertEquals(Optional.of(last), sut.getLastOperation(accountId));
+            assertEquals(250, sut.getAllOrderByDateDesc(accountId).size());
+            assertEquals(250, sut.getAllOrderByDateDesc(otherAccountId).size());
+        }
+    }
+
+    @Test
+    void refuseAmountsWithMoreThanTwoDecimals() throws IOException {
+        try (var sut = MappedJournalOperationRepository.open(directory)) {
+            final var operation = operation(accountId, OperationTypes.DEPOSIT, "0.001", "0.001", 0);
+            assertThrows(ArithmeticException.class, () -> sut.add(operation));
+            assertEquals(Optional.empty(), sut.getLastOperation(accountId));
+        }
+    }
+}
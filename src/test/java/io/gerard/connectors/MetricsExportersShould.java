@@ -0,0 +1,48 @@
+package io.gerard.connectors;
+
+import io.gerard.models.MetricSnapshot;
+import org.junit.jupiter.api.Test;
+
+import javax.management.JMException;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsExportersShould {
+
+    private final MetricSnapshot deposits = new MetricSnapshot("service.deposit", 3, Map.of(), 100, 200, 300, 400, 500);
+    private final MetricSnapshot withdrawals = new MetricSnapshot("service.withdraw", 2,
+            Map.of("NotEnoughFundsException", 1L), 10, 20, 30, 40, 50);
+
+    @Test
+    void printOneLinePerMetric() {
+        final var printed = new StringBuilder();
+        final var sut = new TextMetricsExporter(printed::append);
+
+        sut.export(List.of(deposits, withdrawals));
+
+        assertEquals("""
+                service.deposit calls=3 p50=100ns p90=200ns p99=300ns p99.9=400ns max=500ns errors={}
+                service.withdraw calls=2 p50=10ns p90=20ns p99=30ns p99.9=40ns max=50ns \
+                errors={NotEnoughFundsException=1}""", printed.toString());
+    }
+
+    @Test
+    void publishLatestExportAsMBeanAttributes() throws JMException {
+        final var server = MBeanServerFactory.newMBeanServer();
+        final var sut = new JmxMetricsExporter(server, "io.gerard");
+        final var name = new ObjectName("io.gerard:type=Metric,name=service.withdraw");
+
+        sut.export(List.of(deposits, withdrawals));
+        sut.export(List.of(new MetricSnapshot("service.withdraw", 5, Map.of(), 1, 2, 3, 4, 5)));
+
+        assertEquals(5L, server.getAttribute(name, "Calls"));
+        assertEquals(4L, server.getAttribute(name, "P999Nanos"));
+        assertTrue(((TabularData) server.getAttribute(name, "Errors")).isEmpty());
+        assertEquals(3L, server.getAttribute(new ObjectName("io.gerard:type=Metric,name=service.deposit"), "Calls"));
+    }
+}
@@ -0,0 +1,135 @@
+package io.gerard.connectors;
+
+import io.gerard.models.Operation;
+import io.gerard.models.OperationCursor;
+import io.gerard.models.OperationTypes;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static io.gerard.connectors.OperationFixtures.INSTANT;
+import static io.gerard.connectors.OperationFixtures.operation;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapOperationRepositoryShould {
+
+    private final UUID accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+    private final UUID otherAccountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae4");
+
+    @Test
+    void returnOperationsOrderByDateDescAcrossChunksEvenWhenAddedOutOfOrder() {
+        final var sut = new OffHeapOperationRepository(2);
+        final var op1 = operation(accountId, OperationTypes.DEPOSIT, "100.00", "100.00", 0);
+        final var op2 = operation(otherAccountId, OperationTypes.DEPOSIT, "20.50", "20.50", 1);
+        final var op3 = operation(accountId, OperationTypes.DEPOSIT, "50.00", "150.00", 3);
+        final var op4 = operation(accountId, OperationTypes.WITHDRAWAL, "30.25", "119.75", 2);
+        final var op5 = operation(accountId, OperationTypes.TRANSFER_IN, "0.25", "120.00", -1);
+
+        List.of(op1, op2, op3, op4, op5).forEach(sut::add);
+
+        assertEquals(Optional.of(op5), sut.getLastOperation(accountId));
+        assertEquals(List.of(op3, op4, op1, op5), sut.getAllOrderByDateDesc(accountId));
+        assertEquals(List.of(op3, op4, op1, op5), sut.streamAllOrderByDateDesc(accountId).toList());
+        assertEquals(List.of(op2), sut.getAllOrderByDateDesc(otherAccountId));
+        assertEquals(List.of(), sut.getAllOrderByDateDesc(UUID.randomUUID()));
+        assertEquals(Optional.empty(), sut.getLastOperation(UUID.randomUUID()));
+    }
+
+    @Test
+    void appendOnlyWhenLastOperationUnchanged() {
+        final var sut = new OffHeapOperationRepository(4);
+        final var op1 = operation(accountId, OperationTypes.DEPOSIT, "100.00", "100.00", 0);
+        final var op2 = operation(accountId, OperationTypes.WITHDRAWAL, "30.00", "70.00", 1);
+        final var op3 = operation(accountId, OperationTypes.DEPOSIT, "5.00", "75.00", 2);
+        final var credit = operation(otherAccountId, OperationTypes.TRANSFER_IN, "5.00", "5.00", 2);
+        final var debit = operation(accountId, OperationTypes.TRANSFER_OUT, "5.00", "70.00", 3);
+
+        assertTrue(sut.compareAndAdd(null, op1));
+        assertFalse(sut.compareAndAdd(null, op2));
+        assertFalse(sut.compareAndAddAll(null, List.of(op2, op3)));
+        assertTrue(sut.compareAndAddAll(op1, List.of(op2, op3)));
+        assertFalse(sut.compareAndAddPair(op2, debit, null, credit));
+        assertTrue(sut.compareAndAddPair(op3, debit, null, credit));
+
+        assertEquals(List.of(debit, op3, op2, op1), sut.getAllOrderByDateDesc(accountId));
+        assertEquals(Optional.of(credit), sut.getLastOperation(otherAccountId));
+    }
+
+    @Test
+    void queryOperationsByPeriodAndPage() {
+        final var sut = new OffHeapOperationRepository(3);
+        final var op1 = operation(accountId, OperationTypes.DEPOSIT, "100.00", "100.00", 0);
+        final var op2 = operation(accountId, OperationTypes.DEPOSIT, "50.00", "150.00", 1);
+        final var op3 = operation(accountId, OperationTypes.WITHDRAWAL, "30.00", "120.00", 2);
+        final var op4 = operation(accountId, OperationTypes.WITHDRAWAL, "20.00", "100.00", 3);
+        List.of(op3, op1, op4, op2).forEach(sut::add);
+
+        assertEquals(List.of(op3, op2), sut.getBetweenOrderByDateDesc(accountId, INSTANT.plusSeconds(1),
+                INSTANT.plusSeconds(3)));
+        assertEquals(List.of(op4, op3, op2, op1), sut.getBetweenOrderByDateDesc(accountId, Instant.MIN, Instant.MAX));
+        assertEquals(List.of(), sut.getBetweenOrderByDateDesc(accountId, INSTANT.plusSeconds(3), INSTANT));
+        assertEquals(List.of(op4, op3), sut.getPageOrderByDateDesc(accountId, null, 2));
+        assertEquals(List.of(op2, op1), sut.getPageOrderByDateDesc(accountId, OperationCursor.of(op3), 2));
+        assertThrows(IllegalArgumentException.class, () -> sut.getPageOrderByDateDesc(accountId, null, -1));
+    }
+
+    @Test
+    void chainConcurrentWritesOfManyAccounts() throws InterruptedException {
+        final var sut = new OffHeapOperationRepository(64);
+        final var accountIds = IntStream.range(0, 8).mapToObj(i -> UUID.randomUUID()).toList();
+
+        final var threads = accountIds.stream().map(id -> Thread.startVirtualThread(() -> {
+            Operation last = null;
+            for (int i = 0; i < 500; i++) {
+                final var next = operation(id, OperationTypes.DEPOSIT, "1.00", (i + 1) + ".00", i);
+                assertTrue(sut.compareAndAdd(last, next));
+                last = next;
+            }
+        })).toList();
+        for (final var thread : threads) {
+            thread.join();
+        }
+
+        for (final var id : accountIds) {
+            final var operations = sut.getAllOrderByDateDesc(id);
+            assertEquals(500, operations.size());
+            assertEquals(new BigDecimal("500.00"), operations.get(0).newBalance());
+            assertEquals(Optional.of(operations.get(0)), sut.getLastOperation(id));
+            assertEquals(operations.subList(100, 110),
+                    sut.getPageOrderByDateDesc(id, OperationCursor.of(operations.get(99)), 10));
+        }
+        assertEquals(8, sut.streamAccountIds().count());
+    }
+
+    @Test
+    void refuseAmountsWithMoreThanTwoDecimals() {
+        final var sut = new OffHeapOperationRepository();
+        final var operation = operation(accountId, OperationTypes.DEPOSIT, "0.001", "0.001", 0);
+
+        assertThrows(ArithmeticException.class, () -> sut.add(operation));
+        assertEquals(Optional.empty(), sut.getLastOperation(accountId));
+    }
+
+    @Test
+    void refuseCallsOnceClosed() {
+        final var sut = new OffHeapOperationRepository(2);
+        final var op1 = operation(accountId, OperationTypes.DEPOSIT, "100.00", "100.00", 0);
+        final var op2 = operation(accountId, OperationTypes.DEPOSIT, "50.00", "150.00", 1);
+        sut.add(op1);
+        final var stream = sut.streamAllOrderByDateDesc(accountId);
+
+        sut.close();
+        sut.close();
+
+        assertThrows(IllegalStateException.class, () -> sut.add(op2));
+        assertThrows(IllegalStateException.class, () -> sut.compareAndAdd(op1, op2));
+        assertThrows(IllegalStateException.class, () -> sut.getLastOperation(accountId));
+        assertThrows(IllegalStateException.class, () -> sut.getAllOrderByDateDesc(accountId));
+        assertThrows(IllegalStateException.class, stream::toList);
+    }
+}
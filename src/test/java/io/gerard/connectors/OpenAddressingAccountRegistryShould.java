@@ -0,0 +1,70 @@
+package io.gerard.connectors;
+
+import io.gerard.models.AccountStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenAddressingAccountRegistryShould {
+
+    private final UUID accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void openAccountsOnceAndChangeTheirStatusWhenStillExpected() {
+        final var sut = new OpenAddressingAccountRegistry(2);
+        final var accountIds = new ArrayList<UUID>();
+        for (int i = 0; i < 100; i++) {
+            accountIds.add(UUID.randomUUID());
+        }
+
+        accountIds.forEach(id -> assertTrue(sut.open(id)));
+
+        assertFalse(sut.open(accountIds.get(42)));
+        assertNull(sut.statusOf(accountId));
+        accountIds.forEach(id -> assertEquals(AccountStatus.OPEN, sut.statusOf(id)));
+        assertTrue(sut.compareAndSetStatus(accountIds.get(7), AccountStatus.OPEN, AccountStatus.FROZEN));
+        assertFalse(sut.compareAndSetStatus(accountIds.get(7), AccountStatus.OPEN, AccountStatus.CLOSED));
+        assertFalse(sut.compareAndSetStatus(accountId, AccountStatus.OPEN, AccountStatus.CLOSED));
+        assertEquals(AccountStatus.FROZEN, sut.statusOf(accountIds.get(7)));
+    }
+
+    @Test
+    void keepAccountsInItsFileAcrossGrowthAndReopening() throws IOException {
+        final var file = directory.resolve("accounts.registry");
+        final var accountIds = new ArrayList<UUID>();
+        try (var sut = OpenAddressingAccountRegistry.mapped(file)) {
+            for (int i = 0; i < 3_000; i++) {
+                final var id = UUID.randomUUID();
+                accountIds.add(id);
+                sut.open(id);
+            }
+            sut.compareAndSetStatus(accountIds.get(0), AccountStatus.OPEN, AccountStatus.CLOSED);
+        }
+
+        try (var reopened = OpenAddressingAccountRegistry.mapped(file)) {
+            assertEquals(AccountStatus.CLOSED, reopened.statusOf(accountIds.get(0)));
+            accountIds.subList(1, accountIds.size())
+                    .forEach(id -> assertEquals(AccountStatus.OPEN, reopened.statusOf(id)));
+            assertFalse(reopened.open(accountIds.get(2_999)));
+            assertTrue(reopened.open(accountId));
+        }
+        assertFalse(Files.exists(directory.resolve("accounts.registry.tmp")));
+    }
+
+    @Test
+    void refuseAFileThatIsNotARegistry() throws IOException {
+        final var file = Files.writeString(directory.resolve("accounts.registry"), "not a registry");
+
+        assertThrows(IOException.class, () -> OpenAddressingAccountRegistry.mapped(file));
+    }
+}
@@ -0,0 +1,20 @@
+package io.gerard.connectors;
+
+import io.gerard.models.Operation;
+import io.gerard.models.OperationTypes;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+final class OperationFixtures {
+    static final Instant INSTANT = Instant.parse("2022-11-10T12:35:24.123456789Z");
+
+    private OperationFixtures() {
+    }
+
+    static Operation operation(UUID accountId, OperationTypes type, String amount, String newBalance, long seconds) {
+        return new Operation(UUID.randomUUID(), accountId, type, new BigDecimal(amount), new BigDecimal(newBalance),
+                INSTANT.plusSeconds(seconds));
+    }
+}
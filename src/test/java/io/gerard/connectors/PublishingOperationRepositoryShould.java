@@ -0,0 +1,96 @@
+package io.gerard.connectors;
+
+import io.gerard.models.Operation;
+import io.gerard.models.OperationEvent;
+import io.gerard.models.OperationTypes;
+import io.gerard.services.OperationFeed;
+import io.gerard.services.OperationRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PublishingOperationRepositoryShould {
+
+    @Mock
+    private OperationRepository operationRepository;
+
+    private final UUID accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+    private final UUID otherAccountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae4");
+
+    @Test
+    void publishOnlyTheOperationsActuallyRecorded() {
+        final var feed = new OperationFeed(16, Runnable::run);
+        final var sut = new PublishingOperationRepository(operationRepository, feed);
+        final var received = new ArrayList<OperationEvent>();
+        feed.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(OperationEvent item) {
+                received.add(item);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                fail(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        final var rejected = operation(accountId, "10.00");
+        final var deposit = operation(accountId, "20.00");
+        final var debit = operation(accountId, "15.00");
+        final var credit = operation(otherAccountId, "5.00");
+
+        when(operationRepository.compareAndAdd(null, rejected)).thenReturn(false);
+        when(operationRepository.compareAndAdd(null, deposit)).thenReturn(true);
+        when(operationRepository.compareAndAddPair(deposit, debit, null, credit)).thenReturn(true);
+
+        assertFalse(sut.compareAndAdd(null, rejected));
+        assertTrue(sut.compareAndAdd(null, deposit));
+        assertTrue(sut.compareAndAddPair(deposit, debit, null, credit));
+
+        assertEquals(List.of(new OperationEvent(0, deposit), new OperationEvent(1, debit),
+                new OperationEvent(2, credit)), received);
+    }
+
+    @Test
+    void keepRecordingOperationsTheClosedFeedDrops() {
+        final var feed = new OperationFeed(16, Runnable::run);
+        final var sut = new PublishingOperationRepository(operationRepository, feed);
+        final var deposit = operation(accountId, "10.00");
+        final var debit = operation(accountId, "5.00");
+        final var credit = operation(otherAccountId, "5.00");
+        feed.close();
+
+        when(operationRepository.compareAndAdd(null, deposit)).thenReturn(true);
+        when(operationRepository.compareAndAddPair(deposit, debit, null, credit)).thenReturn(true);
+
+        assertTrue(sut.compareAndAdd(null, deposit));
+        assertTrue(sut.compareAndAddPair(deposit, debit, null, credit));
+
+        assertEquals(3, sut.unpublishedOperations());
+    }
+
+    private static Operation operation(UUID accountId, String balance) {
+        return new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT, BigDecimal.TEN,
+                new BigDecimal(balance), Instant.parse("2022-11-10T12:35:24.00Z"));
+    }
+}
@@ -0,0 +1,80 @@
+package io.gerard.connectors;
+
+import io.gerard.models.Operation;
+import io.gerard.models.OperationTypes;
+import io.gerard.models.Rollup;
+import io.gerard.services.RollupAccumulator;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RollupOperationRepositoryShould {
+
+    private final UUID accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+    private final ZoneId zone = ZoneId.of("Europe/Paris");
+    private final LocalDate day = LocalDate.of(2022, 11, 10);
+
+    @Test
+    void rollUpHistoryRecordedBeforeAndOperationsRecordedThrough() {
+        final var history = new InMemoryOperationRepository();
+        final var first = operation(OperationTypes.DEPOSIT, "100.00", "100.00", "2022-11-10T08:00:00Z");
+        history.add(first);
+        final var sut = new RollupOperationRepository(history, zone);
+
+        final var second = operation(OperationTypes.WITHDRAWAL, "30.00", "70.00", "2022-11-10T09:00:00Z");
+        final var third = operation(OperationTypes.TRANSFER_IN, "5.50", "75.50", "2022-11-10T22:59:59Z");
+        final var nextDay = operation(OperationTypes.DEPOSIT, "10.00", "85.50", "2022-11-10T23:00:00Z");
+        assertTrue(sut.compareAndAdd(first, second));
+        assertTrue(sut.compareAndAddAll(second, List.of(third, nextDay)));
+
+        final var expected = List.of(
+                new Rollup(day, day.plusDays(1), 2, new BigDecimal("105.50"), 1, new BigDecimal("30.00"),
+                        new BigDecimal("0.00"), new BigDecimal("100.00"), new BigDecimal("75.50")),
+                new Rollup(day.plusDays(1), day.plusDays(2), 1, new BigDecimal("10.00"), 0, new BigDecimal("0.00"),
+                        new BigDecimal("75.50"), new BigDecimal("85.50"), new BigDecimal("85.50")));
+        assertEquals(expected, sut.getDailyRollups(accountId, day, day.plusDays(7), zone));
+        assertEquals(expected, history.getDailyRollups(accountId, day, day.plusDays(7), zone));
+        assertEquals(expected.subList(0, 1), sut.getDailyRollups(accountId, day, day.plusDays(1), zone));
+        assertEquals(3, sut.getDailyRollups(accountId, day, day.plusDays(7), ZoneOffset.UTC).get(0).credits());
+        assertEquals(List.of(), sut.getDailyRollups(UUID.randomUUID(), day, day.plusDays(7), zone));
+    }
+
+    @Test
+    void summarizeDaysIntoOnePeriod() {
+        final var monday = new Rollup(day, day.plusDays(1), 2, new BigDecimal("105.50"), 1, new BigDecimal("30.00"),
+                new BigDecimal("70.00"), new BigDecimal("100.00"), new BigDecimal("75.50"));
+        final var friday = new Rollup(day.plusDays(4), day.plusDays(5), 0, BigDecimal.ZERO, 1, new BigDecimal("50.00"),
+                new BigDecimal("25.50"), new BigDecimal("25.50"), new BigDecimal("25.50"));
+
+        final var week = monday.followedBy(friday);
+
+        assertEquals(new Rollup(day, day.plusDays(5), 2, new BigDecimal("105.50"), 2, new BigDecimal("80.00"),
+                new BigDecimal("25.50"), new BigDecimal("100.00"), new BigDecimal("25.50")), week);
+    }
+
+    @Test
+    void closeTheDayOnTheLatestOperationWhateverTheOrderOperationsAreFedIn() {
+        final var morning = operation(OperationTypes.DEPOSIT, "100.00", "150.00", "2022-11-10T08:00:00Z");
+        final var evening = operation(OperationTypes.WITHDRAWAL, "30.00", "120.00", "2022-11-10T18:00:00Z");
+        final var accumulator = new RollupAccumulator(day);
+
+        accumulator.add(evening);
+        accumulator.add(morning);
+
+        assertEquals(new Rollup(day, day.plusDays(1), 1, new BigDecimal("100.00"), 1, new BigDecimal("30.00"),
+                new BigDecimal("50.00"), new BigDecimal("150.00"), new BigDecimal("120.00")), accumulator.toRollup());
+    }
+
+    private Operation operation(OperationTypes type, String amount, String balance, String dateTime) {
+        return new Operation(UUID.randomUUID(), accountId, type, new BigDecimal(amount), new BigDecimal(balance),
+                Instant.parse(dateTime));
+    }
+}
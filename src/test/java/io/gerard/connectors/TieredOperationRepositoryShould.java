@@ -0,0 +1,218 @@
+package io.gerard.connectors;
+
+import io.gerard.models.Operation;
+import io.gerard.models.OperationCursor;
+import io.gerard.models.OperationTypes;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TieredOperationRepositoryShould {
+
+    private final UUID accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+    private final UUID otherAccountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae4");
+    private final Instant instant = Instant.parse("2022-11-10T12:35:24.123456789Z");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readAcrossTiersAfterArchivingOlderOperations() throws IOException {
+        try (var sut = new TieredOperationRepository(directory)) {
+            final var operations = record(sut, accountId, 1_000);
+            record(sut, otherAccountId, 3);
+
+            sut.compact(instant.plusSeconds(600));
+            sut.compact(instant.plusSeconds(900));
+
+            final var descending = operations.reversed();
+            assertEquals(new TieredOperationRepository.Stats(100 + 1, 2), sut.stats());
+            assertEquals(descending, sut.getAllOrderByDateDesc(accountId));
+            assertEquals(descending, sut.streamAllOrderByDateDesc(accountId).toList());
+            assertEquals(descending.subList(150, 450),
+                    sut.getBetweenOrderByDateDesc(accountId, instant.plusSeconds(550), instant.plusSeconds(850)));
+            assertEquals(descending.subList(95, 115),
+                    sut.getPageOrderByDateDesc(accountId, OperationCursor.of(descending.get(94)), 20));
+            assertEquals(Optional.of(operations.get(999)), sut.getLastOperation(accountId));
+            assertEquals(3, sut.getAllOrderByDateDesc(otherAccountId).size());
+        }
+    }
+
+    @Test
+    void serveEveryOperationAfterReopening() throws IOException {
+        final List<Operation> operations;
+        try (var sut = new TieredOperationRepository(directory)) {
+            operations = record(sut, accountId, 10);
+            record(sut, otherAccountId, 1);
+            sut.compact(instant.plusSeconds(60));
+        }
+
+        try (var reopened = new TieredOperationRepository(directory)) {
+            assertEquals(operations.reversed(), reopened.getAllOrderByDateDesc(accountId));
+            assertEquals(Optional.of(operations.get(9)), reopened.getLastOperation(accountId));
+            assertEquals(1, reopened.getAllOrderByDateDesc(otherAccountId).size());
+            final var next = operation(accountId, 100);
+            assertTrue(reopened.compareAndAdd(operations.get(9), next));
+            assertEquals(next, reopened.getAllOrderByDateDesc(accountId).get(0));
+        }
+    }
+
+    @Test
+    void refuseToReopenARepositoryThatWasNotClosed() throws IOException {
+        final var crashed = new TieredOperationRepository(directory);
+        try {
+            record(crashed, accountId, 10);
+            crashed.compact(instant.plusSeconds(60));
+
+            assertThrows(IOException.class, () -> new TieredOperationRepository(directory));
+        } finally {
+            crashed.close();
+        }
+    }
+
+    @Test
+    void refuseWritesAndCompactionsOnceClosed() throws IOException {
+        final List<Operation> operations;
+        final ScheduledFuture<?> schedule;
+        try (var scheduler = Executors.newSingleThreadScheduledExecutor()) {
+            final var sut = new TieredOperationRepository(directory);
+            operations = record(sut, accountId, 10);
+            schedule = sut.scheduleCompaction(scheduler, Clock.systemUTC(), Duration.ZERO, Duration.ofHours(1));
+
+            sut.close();
+
+            assertTrue(schedule.isCancelled());
+            assertThrows(IllegalStateException.class, () -> sut.add(operation(accountId, 10)));
+            assertThrows(IllegalStateException.class, () -> sut.compareAndAdd(operations.get(9),
+                    operation(accountId, 10)));
+            assertThrows(IllegalStateException.class, () -> sut.compact(instant.plusSeconds(60)));
+            assertThrows(IllegalStateException.class,
+                    () -> sut.scheduleCompaction(scheduler, Clock.systemUTC(), Duration.ZERO, Duration.ofHours(1)));
+            sut.close();
+        }
+
+        try (var reopened = new TieredOperationRepository(directory)) {
+            assertEquals(operations.reversed(), reopened.getAllOrderByDateDesc(accountId));
+        }
+    }
+
+    @Test
+    void keepCompactingAfterACompactionFailed() throws IOException, InterruptedException {
+        try (var sut = new TieredOperationRepository(directory);
+             var scheduler = Executors.newSingleThreadScheduledExecutor()) {
+            record(sut, accountId, 10);
+            final var clock = mock(Clock.class);
+            final var compacted = new CountDownLatch(1);
+            when(clock.instant()).thenThrow(new IllegalStateException("clock unavailable")).thenAnswer(invocation -> {
+                compacted.countDown();
+                return instant.plusSeconds(60);
+            });
+
+            final var schedule = sut.scheduleCompaction(scheduler, clock, Duration.ZERO, Duration.ofMillis(1));
+
+            assertTrue(compacted.await(10, TimeUnit.SECONDS));
+            assertFalse(schedule.isDone());
+            schedule.cancel(false);
+        }
+    }
+
+    @Test
+    void mergeSegmentsSoTheirNumberStaysLogarithmic() throws IOException {
+        final List<Operation> operations;
+        final byte[] firstSegment;
+        try (var sut = new TieredOperationRepository(directory)) {
+            operations = record(sut, accountId, 41);
+            sut.compact(instant.plusSeconds(10));
+            firstSegment = Files.readAllBytes(segmentFiles().get(0));
+            sut.compact(instant.plusSeconds(20));
+            sut.compact(instant.plusSeconds(30));
+            assertEquals(2, sut.stats().segments());
+
+            sut.compact(instant.plusSeconds(40));
+
+            assertEquals(new TieredOperationRepository.Stats(1, 1), sut.stats());
+            assertEquals(operations.reversed(), sut.getAllOrderByDateDesc(accountId));
+            assertEquals(List.of(directory.resolve("segment-00000000000000000000-00000000000000000003.seg")),
+                    segmentFiles());
+        }
+        Files.write(directory.resolve("segment-00000000000000000000.seg"), firstSegment);
+
+        try (var reopened = new TieredOperationRepository(directory)) {
+            assertEquals(operations.reversed(), reopened.getAllOrderByDateDesc(accountId));
+            assertEquals(1, segmentFiles().size());
+        }
+    }
+
+    @Test
+    void fillAPageFromTheNewestBlocksOnly() throws IOException {
+        try (var sut = new TieredOperationRepository(directory)) {
+            final var operations = record(sut, accountId, 1_000);
+            sut.compact(instant.plusSeconds(999));
+            try (var channel = FileChannel.open(segmentFiles().get(0), StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(new byte[]{0x5A, 0x5A, 0x5A}), 12);
+            }
+
+            final var descending = operations.reversed();
+            assertEquals(descending.subList(0, 300), sut.getPageOrderByDateDesc(accountId, null, 300));
+            assertEquals(descending.subList(301, 321),
+                    sut.getPageOrderByDateDesc(accountId, OperationCursor.of(descending.get(300)), 20));
+            assertThrows(UncheckedIOException.class, () -> sut.getAllOrderByDateDesc(accountId));
+        }
+    }
+
+    @Test
+    void refuseToServeACorruptedBlock() throws IOException {
+        try (var sut = new TieredOperationRepository(directory)) {
+            record(sut, accountId, 10);
+            sut.compact(instant.plusSeconds(60));
+            try (var channel = FileChannel.open(segmentFiles().get(0), StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(new byte[]{0x5A, 0x5A, 0x5A}), 12);
+            }
+
+            assertThrows(UncheckedIOException.class, () -> sut.getAllOrderByDateDesc(accountId));
+        }
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("segment-")).sorted().toList();
+        }
+    }
+
+    private List<Operation> record(TieredOperationRepository sut, UUID accountId, int count) {
+        final var operations = new ArrayList<Operation>();
+        for (int i = 0; i < count; i++) {
+            final var operation = operation(accountId, i);
+            sut.add(operation);
+            operations.add(operation);
+        }
+        return operations;
+    }
+
+    private Operation operation(UUID accountId, int second) {
+        return new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT, new BigDecimal("1.00"),
+                new BigDecimal(second + 1 + ".00"), instant.plusSeconds(second));
+    }
+}
@@ -0,0 +1,40 @@
+package io.gerard.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CentsShould {
+
+    @Test
+    void roundAmountsHalfDownLikeBigDecimal() {
+        for (final var amount : new String[]{"10", "0.005", "0.015", "1.004", "1.0051", "12.345", "99.999"}) {
+            final var value = new BigDecimal(amount);
+            assertEquals(value.setScale(2, RoundingMode.HALF_DOWN), Cents.toBigDecimal(Cents.of(value)), amount);
+        }
+    }
+
+    @Test
+    void refuseToOverflow() {
+        final var max = Cents.of(BigDecimal.valueOf(Long.MAX_VALUE).movePointLeft(2));
+
+        assertEquals(Long.MAX_VALUE, max);
+        assertThrows(ArithmeticException.class, () -> Cents.add(max, 1));
+        assertThrows(ArithmeticException.class, () -> Cents.subtract(Long.MIN_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> Cents.of(BigDecimal.valueOf(Long.MAX_VALUE)));
+        assertThrows(ArithmeticException.class, () -> Cents.ofExact(new BigDecimal("0.001")));
+    }
+
+    @Test
+    void compareBalanceAgainstUnroundedAmount() {
+        final var roundedDown = new BigDecimal("10.004");
+
+        assertTrue(Cents.isLessThan(999, 1000, BigDecimal.TEN));
+        assertFalse(Cents.isLessThan(1000, 1000, BigDecimal.TEN));
+        assertFalse(Cents.isLessThan(1001, Cents.of(roundedDown), roundedDown));
+        assertTrue(Cents.isLessThan(1000, Cents.of(roundedDown), roundedDown));
+    }
+}
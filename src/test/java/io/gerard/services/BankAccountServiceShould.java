@@ -1,26 +1,48 @@
 package io.gerard.services;
 
+import io.gerard.connectors.OpenAddressingAccountRegistry;
 import io.gerard.exceptions.AccountNotFoundException;
+import io.gerard.exceptions.AccountNotOpenException;
+import io.gerard.exceptions.NonZeroBalanceException;
 import io.gerard.exceptions.NotEnoughFundsException;
+import io.gerard.exceptions.SameAccountTransferException;
 import io.gerard.exceptions.ZeroOrNegativeAmountException;
-import io.gerard.models.Account;
+import io.gerard.models.Cents;
+import io.gerard.models.Movement;
 import io.gerard.models.Operation;
+import io.gerard.models.OperationCursor;
+import io.gerard.models.OperationResult;
 import io.gerard.models.OperationTypes;
+import io.gerard.models.RejectionReason;
+import io.gerard.models.Rollup;
+import io.gerard.models.Transfer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.*;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -80,7 +102,7 @@ class BankAccountServiceShould {
 
         when(uuidGenerator.get()).thenReturn(operationId);
         when(operationRepository.getLastOperation(accountId)).thenReturn(Optional.of(lastOperation));
-        when(operationRepository.add(expected)).thenReturn(expected);
+        when(operationRepository.compareAndAdd(lastOperation, expected)).thenReturn(true);
 
         final var actual = bankAccountService.deposit(accountId, amount);
 
@@ -88,11 +110,130 @@ class BankAccountServiceShould {
 
         verify(uuidGenerator).get();
         verify(operationRepository).getLastOperation(accountId);
-        verify(operationRepository).add(expected);
+        verify(operationRepository).compareAndAdd(lastOperation, expected);
         verifyNoMoreInteractions(uuidGenerator, operationRepository);
         verifyNoInteractions(accountStatementFormatter, stringPrinter);
     }
 
+    @Test
+    void neverDateAnOperationBeforeTheOneItFollowsWhenTheClockMovesBackwardsBetweenRetries() {
+        final var accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+        final var clock = mock(Clock.class);
+        final var service = new BankAccountServiceImpl(operationRepository, accountStatementFormatter, stringPrinter,
+                clock, uuidGenerator);
+        final var stale = new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT,
+                BigDecimal.TEN, BigDecimal.TEN, instant);
+        final var latest = new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT,
+                BigDecimal.TEN, BigDecimal.valueOf(20), instant.plusSeconds(10));
+
+        when(clock.instant()).thenReturn(instant.plusSeconds(5), instant.plusSeconds(2));
+        when(uuidGenerator.get()).thenAnswer(invocation -> UUID.randomUUID());
+        when(operationRepository.getLastOperation(accountId)).thenReturn(Optional.of(stale), Optional.of(latest));
+        when(operationRepository.compareAndAdd(eq(stale), any())).thenReturn(false);
+        when(operationRepository.compareAndAdd(eq(latest), any())).thenReturn(true);
+
+        final var result = (OperationResult.Accepted) service.tryDeposit(accountId, BigDecimal.ONE);
+
+        assertEquals(latest.dateTime(), result.operation().dateTime());
+        assertEquals(new BigDecimal("21.00"), result.operation().newBalance());
+    }
+
+    @Test
+    void rejectAmountsAndBalancesBeyondTheCentRange() {
+        final var accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+        final var lastOperation = new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT,
+                BigDecimal.TEN, Cents.toBigDecimal(Long.MAX_VALUE), instant);
+        final var outOfRange = OperationResult.Rejected.of(RejectionReason.AMOUNT_OUT_OF_RANGE);
+
+        when(operationRepository.getLastOperation(accountId)).thenReturn(Optional.of(lastOperation));
+
+        assertEquals(outOfRange, bankAccountService.tryDeposit(accountId, new BigDecimal("1E30")));
+        assertEquals(outOfRange, bankAccountService.tryWithdraw(accountId, new BigDecimal("1E30")));
+        assertEquals(outOfRange, bankAccountService.tryDeposit(accountId, new BigDecimal("0.01")));
+        assertThrows(ArithmeticException.class, () -> bankAccountService.deposit(accountId, new BigDecimal("0.01")));
+        verify(operationRepository, never()).compareAndAdd(any(), any());
+    }
+
+    @Test
+    void returnFirstOperationWhenDepositIsRetriedWithSameIdempotencyKey()
+            throws ZeroOrNegativeAmountException, AccountNotFoundException {
+        final var accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+        final var lastOperation = new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT,
+                BigDecimal.TEN, BigDecimal.valueOf(100), instant);
+
+        when(uuidGenerator.get()).thenAnswer(invocation -> UUID.randomUUID());
+        when(operationRepository.getLastOperation(accountId)).thenReturn(Optional.of(lastOperation));
+        when(operationRepository.compareAndAdd(eq(lastOperation), any())).thenReturn(true);
+
+        final var first = bankAccountService.deposit(accountId, BigDecimal.TEN, "request-1");
+        final var retry = bankAccountService.deposit(accountId, BigDecimal.TEN, "request-1");
+        final var other = bankAccountService.deposit(accountId, BigDecimal.TEN, "request-2");
+
+        assertSame(first, retry);
+        assertNotEquals(first.operationId(), other.operationId());
+        verify(operationRepository, times(2)).compareAndAdd(eq(lastOperation), any());
+    }
+
+    @Test
+    void retryADepositWhoseFirstAttemptDiedOfAnError()
+            throws ZeroOrNegativeAmountException, AccountNotFoundException {
+        final var accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+        final var lastOperation = new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT,
+                BigDecimal.TEN, BigDecimal.valueOf(100), instant);
+
+        when(uuidGenerator.get()).thenAnswer(invocation -> UUID.randomUUID());
+        when(operationRepository.getLastOperation(accountId)).thenReturn(Optional.of(lastOperation));
+        when(operationRepository.compareAndAdd(eq(lastOperation), any()))
+                .thenThrow(new StackOverflowError())
+                .thenReturn(true);
+
+        assertThrows(StackOverflowError.class,
+                () -> bankAccountService.deposit(accountId, BigDecimal.TEN, "request-1"));
+        final var retry = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> bankAccountService.deposit(accountId, BigDecimal.TEN, "request-1"));
+
+        assertEquals(new BigDecimal("110.00"), retry.newBalance());
+        verify(operationRepository, times(2)).compareAndAdd(eq(lastOperation), any());
+    }
+
+    @Test
+    void rejectWithdrawalReusingTheIdempotencyKeyOfADeposit()
+            throws ZeroOrNegativeAmountException, AccountNotFoundException {
+        final var accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+        final var lastOperation = new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT,
+                BigDecimal.TEN, BigDecimal.valueOf(100), instant);
+
+        when(uuidGenerator.get()).thenAnswer(invocation -> UUID.randomUUID());
+        when(operationRepository.getLastOperation(accountId)).thenReturn(Optional.of(lastOperation));
+        when(operationRepository.compareAndAdd(eq(lastOperation), any())).thenReturn(true);
+
+        bankAccountService.deposit(accountId, BigDecimal.TEN, "request-1");
+
+        assertThrows(IllegalArgumentException.class,
+                () -> bankAccountService.withdraw(accountId, BigDecimal.TEN, "request-1"));
+        verify(operationRepository).compareAndAdd(eq(lastOperation), any());
+    }
+
+    @Test
+    void applyWithdrawalRetryWhenFirstAttemptWasRejected()
+            throws ZeroOrNegativeAmountException, AccountNotFoundException, NotEnoughFundsException {
+        final var accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+        final var empty = new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT,
+                BigDecimal.ONE, BigDecimal.ONE, instant);
+        final var funded = new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT,
+                BigDecimal.TEN, BigDecimal.valueOf(11), instant);
+
+        when(uuidGenerator.get()).thenReturn(UUID.randomUUID());
+        when(operationRepository.getLastOperation(accountId)).thenReturn(Optional.of(empty), Optional.of(funded));
+        when(operationRepository.compareAndAdd(eq(funded), any())).thenReturn(true);
+
+        assertThrows(NotEnoughFundsException.class,
+                () -> bankAccountService.withdraw(accountId, BigDecimal.TEN, "request-1"));
+        final var operation = bankAccountService.withdraw(accountId, BigDecimal.TEN, "request-1");
+
+        assertEquals(0, BigDecimal.ONE.compareTo(operation.newBalance()));
+    }
+
     @Test
     void throwNotFoundExceptionWhenDepositWithNonExistingAccountAndPositiveAmount() {
         final var accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
@@ -108,6 +249,152 @@ class BankAccountServiceShould {
         verifyNoInteractions(uuidGenerator, accountStatementFormatter, stringPrinter);
     }
 
+    @Test
+    void returnRejectionWhenTryingToWithdrawMoreThanTheBalance() {
+        final var accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+        final var lastOperation = new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT,
+                BigDecimal.ONE, BigDecimal.ONE, instant);
+
+        when(operationRepository.getLastOperation(accountId)).thenReturn(Optional.of(lastOperation));
+
+        final var result = bankAccountService.tryWithdraw(accountId, BigDecimal.TEN);
+
+        assertSame(OperationResult.Rejected.of(RejectionReason.NOT_ENOUGH_FUNDS), result);
+        assertEquals(new OperationResult.Rejected(RejectionReason.ACCOUNT_NOT_FOUND),
+                bankAccountService.tryDeposit(UUID.randomUUID(), BigDecimal.TEN));
+        verify(operationRepository, never()).compareAndAdd(any(), any());
+        verifyNoInteractions(uuidGenerator);
+    }
+
+    @Test
+    void throwSharedStacklessExceptionWhenWithdrawingMoreThanTheBalance() {
+        final var accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+        final var lastOperation = new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT,
+                BigDecimal.ONE, BigDecimal.ONE, instant);
+
+        when(operationRepository.getLastOperation(accountId)).thenReturn(Optional.of(lastOperation));
+
+        final var exception = assertThrows(NotEnoughFundsException.class,
+                () -> bankAccountService.withdraw(accountId, BigDecimal.TEN));
+
+        assertSame(NotEnoughFundsException.INSTANCE, exception);
+        assertEquals(0, exception.getStackTrace().length);
+    }
+
+    @Test
+    void depositOnAnOpenedAccountWithoutOperations() {
+        final var accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+        final var service = serviceWithRegistry();
+        service.openAccount(accountId);
+
+        when(uuidGenerator.get()).thenReturn(UUID.randomUUID());
+        when(operationRepository.getLastOperation(accountId)).thenReturn(Optional.empty());
+        when(operationRepository.compareAndAdd(eq(null), any())).thenReturn(true);
+
+        final var result = service.tryDeposit(accountId, BigDecimal.TEN);
+
+        final var operation = ((OperationResult.Accepted) result).operation();
+        assertEquals(new BigDecimal("10.00"), operation.newBalance());
+        assertFalse(service.openAccount(accountId));
+    }
+
+    @Test
+    void rejectOperationsOfUnknownFrozenAndClosedAccountsBeforeReadingTheirHistory()
+            throws AccountNotFoundException, NonZeroBalanceException {
+        final var frozen = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+        final var closed = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae4");
+        final var service = serviceWithRegistry();
+        service.openAccount(frozen);
+        service.openAccount(closed);
+        service.freezeAccount(frozen);
+        when(operationRepository.getLastOperation(closed)).thenReturn(Optional.empty());
+        service.closeAccount(closed);
+        clearInvocations(operationRepository);
+
+        assertEquals(OperationResult.Rejected.of(RejectionReason.ACCOUNT_NOT_FOUND),
+                service.tryDeposit(UUID.randomUUID(), BigDecimal.TEN));
+        assertEquals(OperationResult.Rejected.of(RejectionReason.ACCOUNT_NOT_OPEN),
+                service.tryWithdraw(frozen, BigDecimal.TEN));
+        assertEquals(OperationResult.Rejected.of(RejectionReason.ACCOUNT_NOT_OPEN),
+                service.tryDeposit(closed, BigDecimal.TEN));
+        assertThrows(AccountNotOpenException.class, () -> service.transfer(frozen, closed, BigDecimal.ONE));
+        assertThrows(AccountNotOpenException.class, () -> service.freezeAccount(closed));
+        verifyNoInteractions(operationRepository, uuidGenerator);
+    }
+
+    @Test
+    void refuseToCloseAnAccountWhoseBalanceIsNotZero() {
+        final var accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+        final var service = serviceWithRegistry();
+        service.openAccount(accountId);
+        final var lastOperation = new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT,
+                BigDecimal.TEN, BigDecimal.TEN, instant);
+
+        when(operationRepository.getLastOperation(accountId)).thenReturn(Optional.of(lastOperation));
+
+        assertThrows(NonZeroBalanceException.class, () -> service.closeAccount(accountId));
+        assertEquals(OperationResult.Rejected.of(RejectionReason.NOT_ENOUGH_FUNDS),
+                service.tryWithdraw(accountId, BigDecimal.valueOf(11)));
+    }
+
+    @Test
+    void waitForADepositInFlightBeforeClosingAnAccount() throws Exception {
+        final var accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+        final var service = serviceWithRegistry();
+        service.openAccount(accountId);
+        final var last = new AtomicReference<Operation>();
+        final var depositing = new CountDownLatch(1);
+        final var recorded = new CountDownLatch(1);
+
+        when(uuidGenerator.get()).thenAnswer(invocation -> UUID.randomUUID());
+        when(operationRepository.getLastOperation(accountId))
+                .thenAnswer(invocation -> Optional.ofNullable(last.get()));
+        when(operationRepository.compareAndAdd(eq(null), any())).thenAnswer(invocation -> {
+            depositing.countDown();
+            assertTrue(recorded.await(5, TimeUnit.SECONDS));
+            last.set(invocation.getArgument(1));
+            return true;
+        });
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final var deposit = executor.submit(() -> service.tryDeposit(accountId, BigDecimal.TEN));
+            assertTrue(depositing.await(5, TimeUnit.SECONDS));
+            final var close = executor.submit(() -> {
+                service.closeAccount(accountId);
+                return null;
+            });
+
+            assertThrows(TimeoutException.class, () -> close.get(100, TimeUnit.MILLISECONDS));
+            recorded.countDown();
+
+            assertInstanceOf(OperationResult.Accepted.class, deposit.get());
+            final var thrown = assertThrows(ExecutionException.class, close::get);
+            assertInstanceOf(NonZeroBalanceException.class, thrown.getCause());
+        }
+    }
+
+    @Test
+    void manageTheLifecycleOfAccountsDefinedByTheirHistoryWithoutRegistry() throws Exception {
+        final var existing = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+        final var opened = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae4");
+        final var lastOperation = new Operation(UUID.randomUUID(), existing, OperationTypes.DEPOSIT,
+                BigDecimal.TEN, BigDecimal.TEN, instant);
+
+        when(uuidGenerator.get()).thenReturn(UUID.randomUUID());
+        when(operationRepository.getLastOperation(existing)).thenReturn(Optional.of(lastOperation));
+        when(operationRepository.getLastOperation(opened)).thenReturn(Optional.empty());
+        when(operationRepository.compareAndAdd(eq(null), any())).thenReturn(true);
+
+        assertFalse(bankAccountService.openAccount(existing));
+        assertTrue(bankAccountService.openAccount(opened));
+        assertInstanceOf(OperationResult.Accepted.class, bankAccountService.tryDeposit(opened, BigDecimal.ONE));
+        bankAccountService.freezeAccount(existing);
+
+        assertEquals(OperationResult.Rejected.of(RejectionReason.ACCOUNT_NOT_OPEN),
+                bankAccountService.tryWithdraw(existing, BigDecimal.ONE));
+        assertThrows(AccountNotFoundException.class, () -> bankAccountService.freezeAccount(UUID.randomUUID()));
+    }
+
     @Test
     void throwNegAmountExceptionWhenDepositWithExistingAccountAndNegativeAmount() {
         final var accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
@@ -145,7 +432,7 @@ class BankAccountServiceShould {
 
         when(uuidGenerator.get()).thenReturn(operationId);
         when(operationRepository.getLastOperation(accountId)).thenReturn(Optional.of(lastOperation));
-        when(operationRepository.add(expected)).thenReturn(expected);
+        when(operationRepository.compareAndAdd(lastOperation, expected)).thenReturn(true);
 
         final var actual = bankAccountService.withdraw(accountId, amount);
 
@@ -153,7 +440,7 @@ class BankAccountServiceShould {
 
         verify(uuidGenerator).get();
         verify(operationRepository).getLastOperation(accountId);
-        verify(operationRepository).add(expected);
+        verify(operationRepository).compareAndAdd(lastOperation, expected);
         verifyNoMoreInteractions(uuidGenerator, operationRepository);
         verifyNoInteractions(accountStatementFormatter, stringPrinter);
     }
@@ -207,7 +494,151 @@ class BankAccountServiceShould {
     }
 
     @Test
-    void printStatementWithOperations() {
+    void retryWithdrawAgainstNewBalanceWhenAnotherOperationWasAddedConcurrently() {
+        final var accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+        final var operationId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae4");
+        final var amount = BigDecimal.TEN.setScale(2, RoundingMode.HALF_DOWN);
+
+        final var staleLastOperation = new Operation(
+                UUID.randomUUID(),
+                accountId,
+                OperationTypes.DEPOSIT,
+                amount,
+                BigDecimal.valueOf(15),
+                instant
+        );
+        final var concurrentOperation = new Operation(
+                UUID.randomUUID(),
+                accountId,
+                OperationTypes.WITHDRAWAL,
+                amount,
+                BigDecimal.valueOf(5),
+                instant
+        );
+
+        final var staleWithdrawal = new Operation(
+                operationId,
+                accountId,
+                OperationTypes.WITHDRAWAL,
+                amount,
+                BigDecimal.valueOf(5.00).setScale(2, RoundingMode.HALF_DOWN),
+                instant
+        );
+
+        when(uuidGenerator.get()).thenReturn(operationId);
+        when(operationRepository.getLastOperation(accountId))
+                .thenReturn(Optional.of(staleLastOperation))
+                .thenReturn(Optional.of(concurrentOperation));
+        when(operationRepository.compareAndAdd(staleLastOperation, staleWithdrawal)).thenReturn(false);
+
+        assertThrows(NotEnoughFundsException.class, () -> bankAccountService.withdraw(accountId, amount));
+
+        verify(uuidGenerator).get();
+        verify(operationRepository, times(2)).getLastOperation(accountId);
+        verify(operationRepository).compareAndAdd(staleLastOperation, staleWithdrawal);
+        verifyNoMoreInteractions(uuidGenerator, operationRepository);
+        verifyNoInteractions(accountStatementFormatter, stringPrinter);
+    }
+
+    @Test
+    void applyBatchPerAccountWithOneLookupAndOneAppendEach() {
+        final var accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+        final var otherAccountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae5");
+        final var unknownAccountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae6");
+        final var operationId1 = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae7");
+        final var operationId2 = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae8");
+        final var operationId3 = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae9");
+
+        final var lastOperation = new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT,
+                BigDecimal.TEN, BigDecimal.valueOf(100), instant);
+        final var otherLastOperation = new Operation(UUID.randomUUID(), otherAccountId, OperationTypes.DEPOSIT,
+                BigDecimal.TEN, BigDecimal.valueOf(5), instant);
+
+        final var movements = List.of(
+                new Movement(accountId, OperationTypes.WITHDRAWAL, BigDecimal.valueOf(30)),
+                new Movement(otherAccountId, OperationTypes.WITHDRAWAL, BigDecimal.TEN),
+                new Movement(unknownAccountId, OperationTypes.DEPOSIT, BigDecimal.TEN),
+                new Movement(accountId, OperationTypes.WITHDRAWAL, BigDecimal.valueOf(80)),
+                new Movement(otherAccountId, OperationTypes.DEPOSIT, BigDecimal.valueOf(-1)),
+                new Movement(accountId, OperationTypes.DEPOSIT, BigDecimal.valueOf(12.5)),
+                new Movement(otherAccountId, OperationTypes.DEPOSIT, BigDecimal.ONE)
+        );
+
+        final var withdrawal = new Operation(operationId1, accountId, OperationTypes.WITHDRAWAL,
+                BigDecimal.valueOf(30).setScale(2, RoundingMode.HALF_DOWN),
+                BigDecimal.valueOf(70).setScale(2, RoundingMode.HALF_DOWN), instant);
+        final var deposit = new Operation(operationId2, accountId, OperationTypes.DEPOSIT,
+                BigDecimal.valueOf(12.5).setScale(2, RoundingMode.HALF_DOWN),
+                BigDecimal.valueOf(82.5).setScale(2, RoundingMode.HALF_DOWN), instant);
+        final var otherDeposit = new Operation(operationId3, otherAccountId, OperationTypes.DEPOSIT,
+                BigDecimal.ONE.setScale(2, RoundingMode.HALF_DOWN),
+                BigDecimal.valueOf(6).setScale(2, RoundingMode.HALF_DOWN), instant);
+
+        when(uuidGenerator.get()).thenReturn(operationId1, operationId2, operationId3);
+        when(operationRepository.getLastOperation(accountId)).thenReturn(Optional.of(lastOperation));
+        when(operationRepository.getLastOperation(otherAccountId)).thenReturn(Optional.of(otherLastOperation));
+        when(operationRepository.getLastOperation(unknownAccountId)).thenReturn(Optional.empty());
+        when(operationRepository.compareAndAddAll(lastOperation, List.of(withdrawal, deposit))).thenReturn(true);
+        when(operationRepository.compareAndAddAll(otherLastOperation, List.of(otherDeposit))).thenReturn(true);
+
+        final var actual = bankAccountService.applyBatch(movements);
+
+        assertEquals(List.of(
+                new OperationResult.Accepted(withdrawal),
+                new OperationResult.Rejected(RejectionReason.NOT_ENOUGH_FUNDS),
+                new OperationResult.Rejected(RejectionReason.ACCOUNT_NOT_FOUND),
+                new OperationResult.Rejected(RejectionReason.NOT_ENOUGH_FUNDS),
+                new OperationResult.Rejected(RejectionReason.ZERO_OR_NEGATIVE_AMOUNT),
+                new OperationResult.Accepted(deposit),
+                new OperationResult.Accepted(otherDeposit)
+        ), actual);
+
+        verify(uuidGenerator, times(3)).get();
+        verify(operationRepository).getLastOperation(accountId);
+        verify(operationRepository).getLastOperation(otherAccountId);
+        verify(operationRepository).getLastOperation(unknownAccountId);
+        verify(operationRepository).compareAndAddAll(lastOperation, List.of(withdrawal, deposit));
+        verify(operationRepository).compareAndAddAll(otherLastOperation, List.of(otherDeposit));
+        verifyNoMoreInteractions(uuidGenerator, operationRepository);
+        verifyNoInteractions(accountStatementFormatter, stringPrinter);
+    }
+
+    @Test
+    void rejectInvalidMovementsBeforeWritingAnyAccount() {
+        final var accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+        final var otherAccountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae5");
+        final var operationId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae7");
+        final var lastOperation = new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT,
+                BigDecimal.TEN, BigDecimal.TEN, instant);
+        final var otherLastOperation = new Operation(UUID.randomUUID(), otherAccountId, OperationTypes.DEPOSIT,
+                BigDecimal.TEN, new BigDecimal("92233720368547758.07"), instant);
+
+        final var movements = List.of(
+                new Movement(accountId, OperationTypes.DEPOSIT, BigDecimal.ONE),
+                new Movement(accountId, OperationTypes.TRANSFER_IN, BigDecimal.TEN),
+                new Movement(accountId, null, BigDecimal.TEN),
+                new Movement(accountId, OperationTypes.DEPOSIT, new BigDecimal("1e30")),
+                new Movement(otherAccountId, OperationTypes.DEPOSIT, BigDecimal.ONE)
+        );
+        final var deposit = new Operation(operationId, accountId, OperationTypes.DEPOSIT,
+                new BigDecimal("1.00"), new BigDecimal("11.00"), instant);
+
+        when(uuidGenerator.get()).thenReturn(operationId);
+        when(operationRepository.getLastOperation(accountId)).thenReturn(Optional.of(lastOperation));
+        when(operationRepository.getLastOperation(otherAccountId)).thenReturn(Optional.of(otherLastOperation));
+        when(operationRepository.compareAndAddAll(lastOperation, List.of(deposit))).thenReturn(true);
+
+        assertEquals(List.of(
+                new OperationResult.Accepted(deposit),
+                new OperationResult.Rejected(RejectionReason.UNSUPPORTED_OPERATION_TYPE),
+                new OperationResult.Rejected(RejectionReason.UNSUPPORTED_OPERATION_TYPE),
+                new OperationResult.Rejected(RejectionReason.AMOUNT_OUT_OF_RANGE),
+                new OperationResult.Rejected(RejectionReason.AMOUNT_OUT_OF_RANGE)
+        ), bankAccountService.applyBatch(movements));
+    }
+
+    @Test
+    void printStatementWithOperations() throws IOException {
 
         final var accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
         final var balance = BigDecimal.valueOf(3320.0);
@@ -238,20 +669,239 @@ class BankAccountServiceShould {
                 2022-10-06T17:10:31		DEPOSIT		50.0
                 2022-10-02T09:59:59		DEPOSIT		100.0""";
 
-        final var account = new Account(accountId, balance, operationList);
-
-        when(operationRepository.getAllOrderByDateDesc(accountId)).thenReturn(operationList);
-        when(accountStatementFormatter.format(account))
-                .thenReturn(expected);
-        doNothing().when(stringPrinter).print(expected);
+        final var printed = new StringBuilder();
+
+        when(operationRepository.streamAllOrderByDateDesc(accountId)).thenReturn(operationList.stream());
+        doAnswer(invocation -> {
+            final Iterator<Operation> operations = invocation.getArgument(2);
+            final var formatted = new ArrayList<Operation>();
+            operations.forEachRemaining(formatted::add);
+            assertEquals(operationList, formatted);
+            invocation.<Appendable>getArgument(3).append(expected);
+            return null;
+        }).when(accountStatementFormatter).format(eq(accountId), eq(balance), any(), any());
+        doAnswer(invocation -> {
+            invocation.<StatementWriter>getArgument(0).writeTo(printed);
+            return null;
+        }).when(stringPrinter).print(any(StatementWriter.class));
 
         assertDoesNotThrow(() ->bankAccountService.printAccountStatement(accountId));
 
-        verify(operationRepository).getAllOrderByDateDesc(accountId);
-        verify(accountStatementFormatter).format(account);
-        verify(stringPrinter).print(expected);
+        assertEquals(expected, printed.toString());
+        verify(operationRepository).streamAllOrderByDateDesc(accountId);
+        verify(accountStatementFormatter).format(eq(accountId), eq(balance), any(), any());
+        verify(stringPrinter).print(any(StatementWriter.class));
 
         verifyNoMoreInteractions(operationRepository, accountStatementFormatter, stringPrinter);
         verifyNoInteractions(uuidGenerator);
     }
+
+    @Test
+    void printStatementWithZeroBalanceForAccountWithoutOperations() throws IOException {
+        final var accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+
+        when(operationRepository.streamAllOrderByDateDesc(accountId)).thenReturn(Stream.empty());
+        doAnswer(invocation -> {
+            invocation.<StatementWriter>getArgument(0).writeTo(new StringBuilder());
+            return null;
+        }).when(stringPrinter).print(any(StatementWriter.class));
+
+        bankAccountService.printAccountStatement(accountId);
+
+        verify(accountStatementFormatter).format(eq(accountId), eq(BigDecimal.ZERO), any(), any());
+        verifyNoInteractions(uuidGenerator);
+    }
+
+    @Test
+    void exportStatementWithBalanceOfMostRecentOperation() throws IOException {
+        final var accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+        final var op1 = new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT, BigDecimal.TEN,
+                BigDecimal.valueOf(20), instant);
+        final var op2 = new Operation(UUID.randomUUID(), accountId, OperationTypes.WITHDRAWAL, BigDecimal.ONE,
+                BigDecimal.valueOf(19), instant.plusSeconds(1));
+        final var exported = new ArrayList<Operation>();
+        final AccountStatementExporter exporter = (id, balance, operations) -> {
+            assertEquals(accountId, id);
+            assertEquals(BigDecimal.valueOf(19), balance);
+            operations.forEachRemaining(exported::add);
+        };
+
+        when(operationRepository.streamAllOrderByDateDesc(accountId)).thenReturn(Stream.of(op2, op1));
+
+        bankAccountService.exportAccountStatement(accountId, exporter);
+
+        assertEquals(List.of(op2, op1), exported);
+        verifyNoInteractions(stringPrinter, accountStatementFormatter);
+    }
+
+    @Test
+    void printStatementOfLastOperations() throws IOException {
+        final var accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+        final var op1 = new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT, BigDecimal.TEN,
+                BigDecimal.valueOf(20), instant);
+        final var op2 = new Operation(UUID.randomUUID(), accountId, OperationTypes.WITHDRAWAL, BigDecimal.ONE,
+                BigDecimal.valueOf(19), instant.plusSeconds(1));
+
+        when(operationRepository.getPageOrderByDateDesc(accountId, null, 2)).thenReturn(List.of(op2, op1));
+        doAnswer(invocation -> {
+            invocation.<StatementWriter>getArgument(0).writeTo(new StringBuilder());
+            return null;
+        }).when(stringPrinter).print(any(StatementWriter.class));
+
+        bankAccountService.printAccountStatement(accountId, 2);
+
+        verify(accountStatementFormatter).format(eq(accountId), eq(BigDecimal.valueOf(19)), any(), any());
+        verify(operationRepository).getPageOrderByDateDesc(accountId, null, 2);
+        verifyNoMoreInteractions(operationRepository);
+        verifyNoInteractions(uuidGenerator);
+    }
+
+    @Test
+    void printStatementOfPeriodWithBalanceAtPeriodEnd() throws IOException {
+        final var accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+        final var from = Instant.parse("2022-10-01T00:00:00Z");
+        final var to = Instant.parse("2022-11-01T00:00:00Z");
+        final var previous = new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT, BigDecimal.TEN,
+                BigDecimal.valueOf(42), from.minusSeconds(1));
+
+        when(operationRepository.getBetweenOrderByDateDesc(accountId, from, to)).thenReturn(List.of());
+        when(operationRepository.getPageOrderByDateDesc(accountId, OperationCursor.startOf(to), 1))
+                .thenReturn(List.of(previous));
+        doAnswer(invocation -> {
+            invocation.<StatementWriter>getArgument(0).writeTo(new StringBuilder());
+            return null;
+        }).when(stringPrinter).print(any(StatementWriter.class));
+
+        bankAccountService.printAccountStatement(accountId, from, to);
+
+        verify(accountStatementFormatter).format(eq(accountId), eq(BigDecimal.valueOf(42)), any(), any());
+        verifyNoInteractions(uuidGenerator);
+    }
+
+    @Test
+    void summarizeTheDailyRollupsOfThePeriod() {
+        final var accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+        final var from = LocalDate.of(2022, 11, 1);
+        final var to = LocalDate.of(2022, 12, 1);
+        final var monday = new Rollup(from, from.plusDays(1), 1, new BigDecimal("100.00"), 0,
+                new BigDecimal("0.00"), new BigDecimal("0.00"), new BigDecimal("100.00"), new BigDecimal("100.00"));
+        final var friday = new Rollup(from.plusDays(4), from.plusDays(5), 0, new BigDecimal("0.00"), 1,
+                new BigDecimal("40.00"), new BigDecimal("60.00"), new BigDecimal("100.00"), new BigDecimal("60.00"));
+
+        when(operationRepository.getDailyRollups(accountId, from, to, ZoneId.of("Europe/Paris")))
+                .thenReturn(List.of(monday, friday));
+
+        assertEquals(Optional.of(monday.followedBy(friday)), bankAccountService.summarize(accountId, from, to));
+        assertEquals(Optional.empty(), bankAccountService.summarize(UUID.randomUUID(), from, to));
+    }
+
+    @Test
+    void printMonthlyStatementWithTheSummaryOfTheMonth() throws IOException {
+        final var accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+        final var month = YearMonth.of(2022, 11);
+        final var from = month.atDay(1);
+        final var to = month.plusMonths(1).atDay(1);
+        final var zone = ZoneId.of("Europe/Paris");
+        final var operation = new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT,
+                new BigDecimal("10.00"), new BigDecimal("52.00"), instant);
+        final var summary = new Rollup(LocalDate.of(2022, 11, 10), LocalDate.of(2022, 11, 11), 1,
+                new BigDecimal("10.00"), 0, new BigDecimal("0.00"), new BigDecimal("42.00"),
+                new BigDecimal("52.00"), new BigDecimal("52.00"));
+
+        when(operationRepository.getBetweenOrderByDateDesc(accountId, from.atStartOfDay(zone).toInstant(),
+                to.atStartOfDay(zone).toInstant())).thenReturn(List.of(operation));
+        when(operationRepository.getDailyRollups(accountId, from, to, zone)).thenReturn(List.of(summary));
+        doAnswer(invocation -> {
+            invocation.<StatementWriter>getArgument(0).writeTo(new StringBuilder());
+            return null;
+        }).when(stringPrinter).print(any(StatementWriter.class));
+
+        bankAccountService.printAccountStatement(accountId, month);
+
+        verify(accountStatementFormatter).format(eq(accountId), eq(new BigDecimal("52.00")), eq(summary), any(),
+                any());
+        verifyNoInteractions(uuidGenerator);
+    }
+
+    @Test
+    void printMonthlyStatementWithAnEmptySummaryWhenTheMonthHasNoOperations() throws IOException {
+        final var accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+        final var month = YearMonth.of(2022, 12);
+        final var from = month.atDay(1);
+        final var to = month.plusMonths(1).atDay(1);
+        final var end = to.atStartOfDay(ZoneId.of("Europe/Paris")).toInstant();
+
+        when(operationRepository.getBetweenOrderByDateDesc(eq(accountId), any(), eq(end))).thenReturn(List.of());
+        when(operationRepository.getPageOrderByDateDesc(accountId, OperationCursor.startOf(end), 1))
+                .thenReturn(List.of());
+        doAnswer(invocation -> {
+            invocation.<StatementWriter>getArgument(0).writeTo(new StringBuilder());
+            return null;
+        }).when(stringPrinter).print(any(StatementWriter.class));
+
+        bankAccountService.printAccountStatement(accountId, month);
+
+        final var zero = new BigDecimal("0.00");
+        verify(accountStatementFormatter).format(eq(accountId), eq(zero),
+                eq(new Rollup(from, to, 0, zero, 0, zero, zero, zero, zero)), any(), any());
+    }
+
+    @Test
+    void transferAmountAsDebitAndCreditRecordedTogether()
+            throws ZeroOrNegativeAmountException, AccountNotFoundException, NotEnoughFundsException,
+            SameAccountTransferException {
+        final var fromAccountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+        final var toAccountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae5");
+        final var debitId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae7");
+        final var creditId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae8");
+        final var amount = BigDecimal.valueOf(30);
+
+        final var lastDebited = new Operation(UUID.randomUUID(), fromAccountId, OperationTypes.DEPOSIT,
+                BigDecimal.valueOf(100), BigDecimal.valueOf(100), instant);
+        final var lastCredited = new Operation(UUID.randomUUID(), toAccountId, OperationTypes.DEPOSIT,
+                BigDecimal.valueOf(5), BigDecimal.valueOf(5), instant);
+        final var debit = new Operation(debitId, fromAccountId, OperationTypes.TRANSFER_OUT,
+                amount.setScale(2, RoundingMode.HALF_DOWN),
+                BigDecimal.valueOf(70).setScale(2, RoundingMode.HALF_DOWN), instant);
+        final var credit = new Operation(creditId, toAccountId, OperationTypes.TRANSFER_IN,
+                amount.setScale(2, RoundingMode.HALF_DOWN),
+                BigDecimal.valueOf(35).setScale(2, RoundingMode.HALF_DOWN), instant);
+
+        when(uuidGenerator.get()).thenReturn(debitId, creditId);
+        when(operationRepository.getLastOperation(fromAccountId)).thenReturn(Optional.of(lastDebited));
+        when(operationRepository.getLastOperation(toAccountId)).thenReturn(Optional.of(lastCredited));
+        when(operationRepository.compareAndAddPair(lastDebited, debit, lastCredited, credit)).thenReturn(true);
+
+        final var actual = bankAccountService.transfer(fromAccountId, toAccountId, amount);
+
+        assertEquals(new Transfer(debit, credit), actual);
+        verify(operationRepository).compareAndAddPair(lastDebited, debit, lastCredited, credit);
+        verifyNoInteractions(accountStatementFormatter, stringPrinter);
+    }
+
+    @Test
+    void refuseTransferToSameAccountOrBeyondBalance() {
+        final var fromAccountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+        final var toAccountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae5");
+        final var lastDebited = new Operation(UUID.randomUUID(), fromAccountId, OperationTypes.DEPOSIT,
+                BigDecimal.TEN, BigDecimal.TEN, instant);
+        final var lastCredited = new Operation(UUID.randomUUID(), toAccountId, OperationTypes.DEPOSIT,
+                BigDecimal.TEN, BigDecimal.TEN, instant);
+
+        when(operationRepository.getLastOperation(fromAccountId)).thenReturn(Optional.of(lastDebited));
+        when(operationRepository.getLastOperation(toAccountId)).thenReturn(Optional.of(lastCredited));
+
+        assertThrows(SameAccountTransferException.class,
+                () -> bankAccountService.transfer(fromAccountId, fromAccountId, BigDecimal.ONE));
+        assertThrows(NotEnoughFundsException.class,
+                () -> bankAccountService.transfer(fromAccountId, toAccountId, BigDecimal.valueOf(11)));
+
+        verify(operationRepository, never()).compareAndAddPair(any(), any(), any(), any());
+        verifyNoInteractions(uuidGenerator);
+    }
+
+    private BankAccountServiceImpl serviceWithRegistry() {
+        return new BankAccountServiceImpl(operationRepository, accountStatementFormatter, stringPrinter,
+                Clock.fixed(instant, ZoneId.of("Europe/Paris")), uuidGenerator, new OpenAddressingAccountRegistry());
+    }
 }
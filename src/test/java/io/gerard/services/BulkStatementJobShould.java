@@ -0,0 +1,144 @@
+package io.gerard.services;
+
+import io.gerard.connectors.BinaryAccountStatementExporter;
+import io.gerard.connectors.BinaryAccountStatementReader;
+import io.gerard.connectors.InMemoryOperationRepository;
+import io.gerard.models.BulkStatementProgress;
+import io.gerard.models.Operation;
+import io.gerard.models.OperationTypes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkStatementJobShould {
+
+    private final Instant instant = Instant.parse("2022-11-10T12:35:24.00Z");
+    private final InMemoryOperationRepository repository = new InMemoryOperationRepository();
+    private final BankAccountService service = new BankAccountServiceImpl(repository, null, null);
+    private final List<UUID> accountIds = new ArrayList<>();
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 25; i++) {
+            final var accountId = UUID.randomUUID();
+            accountIds.add(accountId);
+            repository.add(new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT, BigDecimal.TEN,
+                    BigDecimal.TEN, instant));
+        }
+        accountIds.sort(null);
+    }
+
+    @Test
+    void exportEveryAccountOnceAndReportProgressPerBatch() throws Exception {
+        final var checkpoint = directory.resolve("statements.checkpoint");
+        final var exported = ConcurrentHashMap.<UUID>newKeySet();
+        final var progress = new ArrayList<BulkStatementProgress>();
+        final var sut = new BulkStatementJob(repository, service, (accountId, balance, operations) -> {
+            assertEquals(BigDecimal.TEN, balance);
+            assertTrue(exported.add(accountId));
+        }, checkpoint, 4, 10);
+
+        final var result = sut.run(progress::add);
+
+        assertEquals(Set.copyOf(accountIds), exported);
+        assertEquals(List.of(10L, 20L, 25L), progress.stream().map(BulkStatementProgress::exported).toList());
+        assertEquals(25, result.total());
+        assertEquals(0, result.resumed());
+        assertFalse(Files.exists(checkpoint));
+    }
+
+    @Test
+    void resumeAfterLastCompleteBatchOfAFailedRun() throws Exception {
+        final var checkpoint = directory.resolve("statements.checkpoint");
+        final var failing = accountIds.get(14);
+        final var failed = new BulkStatementJob(repository, service, (accountId, balance, operations) -> {
+            if (accountId.equals(failing)) {
+                throw new IOException("disk full");
+            }
+        }, checkpoint, 2, 10);
+
+        assertThrows(IOException.class, () -> failed.run(progress -> { }));
+        assertEquals(accountIds.get(9).toString(), Files.readString(checkpoint));
+
+        final var exported = ConcurrentHashMap.<UUID>newKeySet();
+        final var resumed = new BulkStatementJob(repository, service,
+                (accountId, balance, operations) -> exported.add(accountId), checkpoint, 2, 10);
+        final var result = resumed.run(progress -> { });
+
+        assertEquals(Set.copyOf(accountIds.subList(10, 25)), exported);
+        assertEquals(10, result.resumed());
+        assertEquals(15, result.exported());
+        assertFalse(Files.exists(checkpoint));
+    }
+
+    @Test
+    void keepCheckpointBeforeABatchWhoseExportDiedOfAnError() throws Exception {
+        final var checkpoint = directory.resolve("statements.checkpoint");
+        final var failing = accountIds.get(14);
+        final var failed = new BulkStatementJob(repository, service, (accountId, balance, operations) -> {
+            if (accountId.equals(failing)) {
+                throw new OutOfMemoryError("export buffer");
+            }
+        }, checkpoint, 2, 10);
+
+        assertThrows(OutOfMemoryError.class, () -> failed.run(progress -> { }));
+        assertEquals(accountIds.get(9).toString(), Files.readString(checkpoint));
+    }
+
+    @Test
+    void writeWholeStatementsThroughABinaryExporterSharedByEveryWorker() throws Exception {
+        final var expected = new HashMap<UUID, List<UUID>>();
+        for (final var accountId : accountIds.subList(0, 5)) {
+            var balance = BigDecimal.TEN;
+            for (int i = 1; i <= 300; i++) {
+                balance = balance.add(BigDecimal.ONE);
+                repository.add(new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT, BigDecimal.ONE,
+                        balance, instant.plusSeconds(i)));
+            }
+        }
+        accountIds.forEach(accountId -> expected.put(accountId,
+                repository.getAllOrderByDateDesc(accountId).stream().map(Operation::operationId).toList()));
+        final var file = directory.resolve("statements.bin");
+
+        try (var exporter = new BinaryAccountStatementExporter(FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE))) {
+            new BulkStatementJob(repository, service, exporter, directory.resolve("statements.checkpoint"), 8, 25)
+                    .run(progress -> { });
+        }
+
+        final var exported = new HashMap<UUID, List<UUID>>();
+        try (var reader = new BinaryAccountStatementReader(FileChannel.open(file))) {
+            for (var header = reader.nextStatement(); header.isPresent(); header = reader.nextStatement()) {
+                final var operations = new ArrayList<Operation>();
+                var operation = reader.nextOperation();
+                while (operation.isPresent()) {
+                    operations.add(operation.get());
+                    operation = reader.nextOperation();
+                }
+                assertEquals(0, operations.get(0).newBalance().compareTo(header.get().balance()));
+                assertNull(exported.put(header.get().accountId(),
+                        operations.stream().map(Operation::operationId).toList()));
+            }
+        }
+        assertEquals(expected, exported);
+    }
+}
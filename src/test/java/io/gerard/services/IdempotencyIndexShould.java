@@ -0,0 +1,113 @@
+package io.gerard.services;
+
+import io.gerard.models.Operation;
+import io.gerard.models.OperationTypes;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.gerard.models.OperationTypes.DEPOSIT;
+import static java.math.BigDecimal.TEN;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class IdempotencyIndexShould {
+
+    private final UUID accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+    private final Instant instant = Instant.parse("2022-11-10T12:35:24.00Z");
+
+    @Test
+    void rememberKeysForAtLeastOneWindowAndForgetThemAfterTwo() {
+        final var clock = mock(Clock.class);
+        when(clock.instant()).thenReturn(instant);
+        final var sut = new IdempotencyIndex(clock, Duration.ofMinutes(10), 1_000);
+        final var first = new CompletableFuture<Operation>();
+
+        assertNull(sut.putIfAbsent(accountId, "request-1", DEPOSIT, TEN, first));
+        assertSame(first, sut.putIfAbsent(accountId, "request-1", DEPOSIT, TEN, new CompletableFuture<>()));
+        assertNull(sut.putIfAbsent(UUID.randomUUID(), "request-1", DEPOSIT, TEN, new CompletableFuture<>()));
+
+        when(clock.instant()).thenReturn(instant.plus(Duration.ofMinutes(15)));
+        assertSame(first, sut.putIfAbsent(accountId, "request-1", DEPOSIT, TEN, new CompletableFuture<>()));
+
+        when(clock.instant()).thenReturn(instant.plus(Duration.ofMinutes(25)));
+        assertNull(sut.putIfAbsent(accountId, "request-1", DEPOSIT, TEN, new CompletableFuture<>()));
+    }
+
+    @Test
+    void holdAtMostTwoGenerationsOfKeys() {
+        final var clock = Clock.fixed(instant, Clock.systemUTC().getZone());
+        final var sut = new IdempotencyIndex(clock, Duration.ofDays(1), 2);
+        final var first = new CompletableFuture<Operation>();
+        sut.putIfAbsent(accountId, "request-0", DEPOSIT, TEN, first);
+        sut.putIfAbsent(accountId, "request-1", DEPOSIT, TEN, new CompletableFuture<>());
+        sut.putIfAbsent(accountId, "request-2", DEPOSIT, TEN, new CompletableFuture<>());
+
+        assertSame(first, sut.putIfAbsent(accountId, "request-0", DEPOSIT, TEN, new CompletableFuture<>()));
+
+        sut.putIfAbsent(accountId, "request-3", DEPOSIT, TEN, new CompletableFuture<>());
+        sut.putIfAbsent(accountId, "request-4", DEPOSIT, TEN, new CompletableFuture<>());
+
+        assertNull(sut.putIfAbsent(accountId, "request-0", DEPOSIT, TEN, new CompletableFuture<>()));
+    }
+
+    @Test
+    void forgetRemovedKeys() {
+        final var sut = new IdempotencyIndex(Clock.systemUTC());
+        final var failed = new CompletableFuture<Operation>();
+        sut.putIfAbsent(accountId, "request-1", DEPOSIT, TEN, failed);
+
+        sut.remove(accountId, "request-1", failed);
+
+        assertNull(sut.putIfAbsent(accountId, "request-1", DEPOSIT, TEN, new CompletableFuture<>()));
+    }
+
+    @Test
+    void rejectAKeyReusedForAnotherOperation() {
+        final var sut = new IdempotencyIndex(Clock.systemUTC());
+        final var first = new CompletableFuture<Operation>();
+        sut.putIfAbsent(accountId, "request-1", DEPOSIT, TEN, first);
+
+        assertSame(first, sut.putIfAbsent(accountId, "request-1", DEPOSIT, new BigDecimal("10.00"),
+                new CompletableFuture<>()));
+        assertThrows(IllegalArgumentException.class, () -> sut.putIfAbsent(accountId, "request-1",
+                OperationTypes.WITHDRAWAL, TEN, new CompletableFuture<>()));
+        assertThrows(IllegalArgumentException.class, () -> sut.putIfAbsent(accountId, "request-1",
+                DEPOSIT, BigDecimal.ONE, new CompletableFuture<>()));
+    }
+
+    @Test
+    void registerEachKeyOnceWhileGenerationsRotate() {
+        final var sut = new IdempotencyIndex(Clock.systemUTC(), Duration.ofDays(1), 8);
+        final var registered = new AtomicInteger();
+        final var everyThread = new CyclicBarrier(4);
+        try (var executor = Executors.newFixedThreadPool(4)) {
+            for (int thread = 0; thread < 4; thread++) {
+                executor.execute(() -> {
+                    for (int i = 0; i < 2_000; i++) {
+                        try {
+                            everyThread.await();
+                        } catch (InterruptedException | BrokenBarrierException e) {
+                            return;
+                        }
+                        final var pending = new CompletableFuture<Operation>();
+                        if (sut.putIfAbsent(accountId, "request-" + i, DEPOSIT, TEN, pending) == null) {
+                            registered.incrementAndGet();
+                        }
+                    }
+                });
+            }
+        }
+
+        assertEquals(2_000, registered.get());
+    }
+}
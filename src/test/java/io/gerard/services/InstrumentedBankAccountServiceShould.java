@@ -0,0 +1,58 @@
+package io.gerard.services;
+
+import io.gerard.exceptions.AccountNotFoundException;
+import io.gerard.exceptions.NotEnoughFundsException;
+import io.gerard.exceptions.ZeroOrNegativeAmountException;
+import io.gerard.models.Operation;
+import io.gerard.models.OperationTypes;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InstrumentedBankAccountServiceShould {
+
+    @Mock
+    private BankAccountService bankAccountService;
+
+    private final UUID accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+
+    @Test
+    void countCallsAndErrorsByExceptionType()
+            throws ZeroOrNegativeAmountException, AccountNotFoundException, NotEnoughFundsException {
+        final var registry = new MetricsRegistry();
+        final var sut = new InstrumentedBankAccountService(bankAccountService, registry);
+        final var operation = new Operation(UUID.randomUUID(), accountId, OperationTypes.WITHDRAWAL, BigDecimal.ONE,
+                BigDecimal.ZERO, Instant.parse("2022-11-10T12:35:24.00Z"));
+
+        when(bankAccountService.withdraw(accountId, BigDecimal.ONE))
+                .thenReturn(operation)
+                .thenThrow(new NotEnoughFundsException());
+        when(bankAccountService.deposit(accountId, BigDecimal.ZERO)).thenThrow(new ZeroOrNegativeAmountException());
+
+        assertEquals(operation, sut.withdraw(accountId, BigDecimal.ONE));
+        assertThrows(NotEnoughFundsException.class, () -> sut.withdraw(accountId, BigDecimal.ONE));
+        assertThrows(ZeroOrNegativeAmountException.class, () -> sut.deposit(accountId, BigDecimal.ZERO));
+
+        final var snapshots = registry.snapshot();
+        assertEquals(6, snapshots.size());
+        final var deposits = snapshots.get(1);
+        assertEquals("service.deposit", deposits.name());
+        assertEquals(1, deposits.calls());
+        assertEquals(Map.of("ZeroOrNegativeAmountException", 1L), deposits.errors());
+        final var withdrawals = snapshots.get(5);
+        assertEquals("service.withdraw", withdrawals.name());
+        assertEquals(2, withdrawals.calls());
+        assertEquals(Map.of("NotEnoughFundsException", 1L), withdrawals.errors());
+        assertTrue(withdrawals.maxNanos() >= withdrawals.p50Nanos());
+    }
+}
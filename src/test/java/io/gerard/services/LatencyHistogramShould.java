@@ -0,0 +1,41 @@
+package io.gerard.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramShould {
+
+    @Test
+    void mapEveryValueToABucketWhoseRangeContainsIt() {
+        for (final var value : new long[]{0, 1, 63, 64, 65, 127, 128, 1_000, 123_456_789, Long.MAX_VALUE}) {
+            final var index = LatencyHistogram.indexOf(value);
+            assertTrue(LatencyHistogram.highestValueOf(index) >= value);
+            assertTrue(index == 0 || LatencyHistogram.highestValueOf(index - 1) < value);
+        }
+    }
+
+    @Test
+    void reportPercentilesWithinThreePercent() {
+        final var sut = new LatencyHistogram();
+        for (int i = 1; i <= 10_000; i++) {
+            sut.record(i * 1_000L);
+        }
+
+        final var snapshot = sut.snapshot();
+
+        assertEquals(10_000, snapshot.totalCount());
+        assertEquals(5_000_000, snapshot.percentile(50), 5_000_000 * 0.03);
+        assertEquals(9_900_000, snapshot.percentile(99), 9_900_000 * 0.03);
+        assertEquals(10_000_000, snapshot.max(), 10_000_000 * 0.03);
+        assertTrue(snapshot.max() >= 10_000_000);
+    }
+
+    @Test
+    void reportZeroWhenEmpty() {
+        final var snapshot = new LatencyHistogram().snapshot();
+
+        assertEquals(0, snapshot.percentile(99));
+        assertEquals(0, snapshot.max());
+    }
+}
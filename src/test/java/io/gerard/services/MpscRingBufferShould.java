@@ -0,0 +1,73 @@
+package io.gerard.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MpscRingBufferShould {
+
+    @Test
+    void refuseOffersOnceFullUntilDrained() {
+        final var sut = new MpscRingBuffer<Integer>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(sut.offer(i));
+        }
+        assertFalse(sut.offer(4));
+
+        final var drained = new ArrayList<Integer>();
+        assertEquals(3, sut.drain(drained::add, 3));
+        assertTrue(sut.offer(4));
+        assertEquals(2, sut.drain(drained::add, 10));
+
+        assertEquals(List.of(0, 1, 2, 3, 4), drained);
+        assertTrue(sut.isEmpty());
+    }
+
+    @Test
+    void keepEachProducerOrderUnderConcurrentOffers() throws InterruptedException {
+        final var sut = new MpscRingBuffer<long[]>(1024);
+        final var producers = 8;
+        final var perProducer = 20_000;
+        final var start = new CountDownLatch(1);
+        final var lastSeen = new long[producers];
+        Arrays.fill(lastSeen, -1);
+
+        try (var executor = Executors.newFixedThreadPool(producers)) {
+            for (int p = 0; p < producers; p++) {
+                final var producer = p;
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    for (long i = 0; i < perProducer; i++) {
+                        final var element = new long[]{producer, i};
+                        while (!sut.offer(element)) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                });
+            }
+            start.countDown();
+            var received = 0;
+            while (received < producers * perProducer) {
+                received += sut.drain(element -> {
+                    final var producer = (int) element[0];
+                    assertEquals(lastSeen[producer] + 1, element[1]);
+                    lastSeen[producer] = element[1];
+                }, 64);
+            }
+        }
+
+        for (final var last : lastSeen) {
+            assertEquals(perProducer - 1, last);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package io.gerard.services;
+
+import io.gerard.models.Operation;
+import io.gerard.models.OperationEvent;
+import io.gerard.models.OperationTypes;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OperationFeedShould {
+    private final OperationFeed sut = new OperationFeed(4, Runnable::run);
+
+    @Test
+    void deliverOnlyTheRequestedEventsInPublicationOrder() {
+        final var subscriber = new RecordingSubscriber();
+        sut.subscribe(subscriber);
+
+        subscriber.subscription.request(2);
+        sut.publish(operations(3));
+
+        assertEquals(List.of(0L, 1L), subscriber.sequences());
+        subscriber.subscription.request(2);
+        assertEquals(List.of(0L, 1L, 2L), subscriber.sequences());
+        sut.publish(operations(1));
+        assertEquals(List.of(0L, 1L, 2L, 3L), subscriber.sequences());
+        sut.close();
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    void resumeFromARetainedSequence() {
+        sut.publish(operations(3));
+        final var subscriber = new RecordingSubscriber();
+
+        sut.subscribe(subscriber, 1);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertEquals(List.of(1L, 2L), subscriber.sequences());
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    void failASubscriberFallingBehindTheRetentionWithoutHoldingPublishersBack() {
+        final var subscriber = new RecordingSubscriber();
+        sut.subscribe(subscriber);
+        subscriber.subscription.request(1);
+
+        sut.publish(operations(1));
+        assertEquals(1, sut.publish(operations(9)));
+        subscriber.subscription.request(1);
+
+        assertEquals(List.of(0L), subscriber.sequences());
+        final var error = assertInstanceOf(OperationFeed.LaggingSubscriberException.class, subscriber.error);
+        assertEquals(1, error.sequence());
+        assertEquals(10, sut.nextSequence());
+    }
+
+    @Test
+    void signalASubscriberOnlyOnceItsOnSubscribeReturned() throws InterruptedException {
+        final var subscribed = new boolean[1];
+        final var signalledEarly = new ArrayList<String>();
+        sut.subscribe(new RecordingSubscriber() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+                final var publisher = Thread.ofPlatform().start(() -> {
+                    sut.publish(operations(1));
+                    sut.close();
+                });
+                try {
+                    publisher.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                subscribed[0] = true;
+            }
+
+            @Override
+            public void onNext(OperationEvent item) {
+                if (!subscribed[0]) {
+                    signalledEarly.add("onNext");
+                }
+                super.onNext(item);
+            }
+
+            @Override
+            public void onComplete() {
+                if (!subscribed[0]) {
+                    signalledEarly.add("onComplete");
+                }
+                super.onComplete();
+            }
+        });
+
+        assertEquals(List.of(), signalledEarly);
+    }
+
+    @Test
+    void failASubscriberWhoseDeliveryIsRejectedWithoutFailingThePublisher() {
+        final var feed = new OperationFeed(4, command -> {
+            throw new RejectedExecutionException();
+        });
+        final var subscriber = new RecordingSubscriber();
+        feed.subscribe(subscriber);
+
+        assertEquals(0, feed.publish(operations(1)));
+
+        assertInstanceOf(RejectedExecutionException.class, subscriber.error);
+    }
+
+    private static List<Operation> operations(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new Operation(UUID.randomUUID(), UUID.randomUUID(), OperationTypes.DEPOSIT,
+                        BigDecimal.TEN, BigDecimal.TEN, Instant.EPOCH))
+                .toList();
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<OperationEvent> {
+        private final List<OperationEvent> events = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private Throwable error;
+        private boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(OperationEvent item) {
+            events.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+
+        List<Long> sequences() {
+            return events.stream().map(OperationEvent::sequence).toList();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package io.gerard.services;
+
+import io.gerard.exceptions.AccountNotFoundException;
+import io.gerard.exceptions.NotEnoughFundsException;
+import io.gerard.exceptions.ZeroOrNegativeAmountException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OperationMetricsShould {
+
+    @Test
+    void snapshotErrorCountsSortedByExceptionName() {
+        final var sut = new OperationMetrics("service.withdraw");
+
+        sut.recordError(System.nanoTime(), ZeroOrNegativeAmountException.INSTANCE);
+        sut.recordError(System.nanoTime(), NotEnoughFundsException.INSTANCE);
+        sut.recordError(System.nanoTime(), AccountNotFoundException.INSTANCE);
+        sut.recordError(System.nanoTime(), NotEnoughFundsException.INSTANCE);
+
+        final var snapshot = sut.snapshot();
+        assertEquals(4, snapshot.calls());
+        assertEquals(List.of("AccountNotFoundException", "NotEnoughFundsException", "ZeroOrNegativeAmountException"),
+                List.copyOf(snapshot.errors().keySet()));
+        assertEquals(2L, snapshot.errors().get("NotEnoughFundsException"));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.errors().clear());
+    }
+}
@@ -0,0 +1,110 @@
+package io.gerard.services;
+
+import io.gerard.connectors.InMemoryOperationRepository;
+import io.gerard.exceptions.AccountNotFoundException;
+import io.gerard.exceptions.AccountNotOpenException;
+import io.gerard.exceptions.NotEnoughFundsException;
+import io.gerard.exceptions.ZeroOrNegativeAmountException;
+import io.gerard.models.AccountStatus;
+import io.gerard.models.Operation;
+import io.gerard.models.OperationTypes;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedBankAccountServiceShould {
+
+    private final Instant instant = Instant.parse("2022-11-10T12:35:24.00Z");
+
+    @Test
+    void applyOperationsOfEachAccountInArrivalOrder() throws Exception {
+        final var repository = new InMemoryOperationRepository();
+        final var accountIds = new ArrayList<UUID>();
+        for (int i = 0; i < 16; i++) {
+            final var accountId = UUID.randomUUID();
+            accountIds.add(accountId);
+            repository.add(new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT, BigDecimal.TEN,
+                    BigDecimal.TEN, instant));
+        }
+
+        final var futures = new ArrayList<CompletableFuture<Operation>>();
+        try (var sut = new ShardedBankAccountService(repository, 4, 1024)) {
+            for (int round = 0; round < 20; round++) {
+                for (final var accountId : accountIds) {
+                    futures.add(sut.withdraw(accountId, BigDecimal.ONE));
+                }
+            }
+            CompletableFuture.allOf(futures.stream()
+                    .map(future -> future.exceptionally(e -> null))
+                    .toArray(CompletableFuture[]::new)).get();
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            final var round = i / accountIds.size();
+            if (round < 10) {
+                assertEquals(0, BigDecimal.valueOf(9 - round).compareTo(futures.get(i).get().newBalance()));
+            } else {
+                final var exception = assertThrows(ExecutionException.class, futures.get(i)::get);
+                assertInstanceOf(NotEnoughFundsException.class, exception.getCause());
+            }
+        }
+        for (final var accountId : accountIds) {
+            assertEquals(11, repository.getAllOrderByDateDesc(accountId).size());
+        }
+    }
+
+    @Test
+    void failFuturesOfInvalidOperations() throws Exception {
+        try (var sut = new ShardedBankAccountService(new InMemoryOperationRepository(), 2, 16)) {
+            final var zeroAmount = assertThrows(ExecutionException.class,
+                    () -> sut.deposit(UUID.randomUUID(), BigDecimal.ZERO).get());
+            final var unknownAccount = assertThrows(ExecutionException.class,
+                    () -> sut.deposit(UUID.randomUUID(), BigDecimal.ONE).get());
+
+            assertInstanceOf(ZeroOrNegativeAmountException.class, zeroAmount.getCause());
+            assertInstanceOf(AccountNotFoundException.class, unknownAccount.getCause());
+
+            sut.close();
+
+            final var closed = assertThrows(ExecutionException.class,
+                    () -> sut.deposit(UUID.randomUUID(), BigDecimal.ONE).get());
+            assertInstanceOf(RejectedExecutionException.class, closed.getCause());
+        }
+    }
+
+    @Test
+    void applyTheStatusOfRegisteredAccounts() throws Exception {
+        final var registry = new InMemoryAccountRegistry();
+        final var opened = UUID.randomUUID();
+        final var frozen = UUID.randomUUID();
+        final var closed = UUID.randomUUID();
+        List.of(opened, frozen, closed).forEach(registry::open);
+        registry.compareAndSetStatus(frozen, AccountStatus.OPEN, AccountStatus.FROZEN);
+        registry.compareAndSetStatus(closed, AccountStatus.OPEN, AccountStatus.CLOSED);
+
+        try (var sut = new ShardedBankAccountService(new InMemoryOperationRepository(), 2, 16, registry)) {
+            assertEquals(0, BigDecimal.TEN.compareTo(sut.deposit(opened, BigDecimal.TEN).get().newBalance()));
+            assertEquals(0, BigDecimal.ONE.compareTo(sut.deposit(frozen, BigDecimal.ONE).get().newBalance()));
+
+            final var frozenWithdrawal = assertThrows(ExecutionException.class,
+                    () -> sut.withdraw(frozen, BigDecimal.ONE).get());
+            final var closedDeposit = assertThrows(ExecutionException.class,
+                    () -> sut.deposit(closed, BigDecimal.ONE).get());
+            final var unknownDeposit = assertThrows(ExecutionException.class,
+                    () -> sut.deposit(UUID.randomUUID(), BigDecimal.ONE).get());
+
+            assertInstanceOf(AccountNotOpenException.class, frozenWithdrawal.getCause());
+            assertInstanceOf(AccountNotOpenException.class, closedDeposit.getCause());
+            assertEquals(AccountNotFoundException.class, unknownDeposit.getCause().getClass());
+        }
+    }
+}
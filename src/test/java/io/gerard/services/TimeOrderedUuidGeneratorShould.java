@@ -0,0 +1,66 @@
+package io.gerard.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeOrderedUuidGeneratorShould {
+
+    private final Instant instant = Instant.parse("2022-11-10T12:35:24.123Z");
+
+    @Test
+    void generateVersion7IdsCarryingTheClockMillis() {
+        final var sut = new TimeOrderedUuidGenerator(Clock.fixed(instant, ZoneOffset.UTC));
+
+        final var id = sut.get();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        assertEquals(instant.toEpochMilli(), id.getMostSignificantBits() >>> 16);
+    }
+
+    @Test
+    void generateStrictlyIncreasingIdsWithinAThreadEvenInTheSameMillisecond() {
+        final var sut = new TimeOrderedUuidGenerator(Clock.fixed(instant, ZoneOffset.UTC));
+
+        var previous = sut.get();
+        for (int i = 0; i < 20_000; i++) {
+            final var next = sut.get();
+            assertTrue(next.compareTo(previous) > 0);
+            previous = next;
+        }
+    }
+
+    @Test
+    void generateUniqueIdsAcrossThreads() throws Exception {
+        final var sut = new TimeOrderedUuidGenerator();
+        final var ids = ConcurrentHashMap.<UUID>newKeySet();
+        final var futures = new ArrayList<Future<List<UUID>>>();
+        try (var executor = Executors.newFixedThreadPool(8)) {
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executor.submit(() -> {
+                    final var generated = new ArrayList<UUID>();
+                    for (int i = 0; i < 10_000; i++) {
+                        generated.add(sut.get());
+                    }
+                    return generated;
+                }));
+            }
+            for (final var future : futures) {
+                ids.addAll(future.get());
+            }
+        }
+        assertEquals(80_000, new HashSet<>(ids).size());
+    }
+}
@@ -0,0 +1,73 @@
+package io.gerard.services;
+
+import io.gerard.exceptions.AccountNotFoundException;
+import io.gerard.exceptions.NotEnoughFundsException;
+import io.gerard.exceptions.ZeroOrNegativeAmountException;
+import io.gerard.models.Operation;
+import io.gerard.models.OperationTypes;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VirtualThreadBankAccountServiceShould {
+
+    @Mock
+    private BankAccountService bankAccountService;
+
+    private final UUID accountId = UUID.fromString("f910cf03-e534-4d9d-a473-94ebe3d2cae3");
+
+    @Test
+    void completeWithOperationOrWithServiceException() throws Exception {
+        final var operation = new Operation(UUID.randomUUID(), accountId, OperationTypes.DEPOSIT, BigDecimal.ONE,
+                BigDecimal.ONE, Instant.parse("2022-11-10T12:35:24.00Z"));
+
+        when(bankAccountService.deposit(accountId, BigDecimal.ONE)).thenReturn(operation);
+        when(bankAccountService.withdraw(accountId, BigDecimal.TEN)).thenThrow(new NotEnoughFundsException());
+
+        try (var sut = new VirtualThreadBankAccountService(bankAccountService, 10)) {
+            assertEquals(operation, sut.deposit(accountId, BigDecimal.ONE).toCompletableFuture().get());
+            final var exception = assertThrows(ExecutionException.class,
+                    () -> sut.withdraw(accountId, BigDecimal.TEN).toCompletableFuture().get());
+            assertInstanceOf(NotEnoughFundsException.class, exception.getCause());
+        }
+    }
+
+    @Test
+    void rejectCallsBeyondMaxInFlightUntilOneCompletes()
+            throws ZeroOrNegativeAmountException, AccountNotFoundException, ExecutionException,
+            InterruptedException {
+        final var started = new CountDownLatch(1);
+        final var release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return null;
+        }).when(bankAccountService).printAccountStatement(accountId);
+        when(bankAccountService.deposit(accountId, BigDecimal.ONE)).thenReturn(null);
+
+        try (var sut = new VirtualThreadBankAccountService(bankAccountService, 1)) {
+            final var statement = sut.printAccountStatement(accountId).toCompletableFuture();
+            started.await();
+
+            final var rejected = assertThrows(ExecutionException.class,
+                    () -> sut.deposit(accountId, BigDecimal.ONE).toCompletableFuture().get());
+            assertInstanceOf(RejectedExecutionException.class, rejected.getCause());
+
+            release.countDown();
+            statement.get();
+            assertNull(sut.deposit(accountId, BigDecimal.ONE).toCompletableFuture().get());
+        }
+    }
+}